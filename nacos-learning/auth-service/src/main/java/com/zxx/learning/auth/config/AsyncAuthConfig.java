@@ -0,0 +1,83 @@
+package com.zxx.learning.auth.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * 登录 / 注册异步处理配置
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>登录、注册接口返回 CompletableFuture，Servlet 线程在提交任务后立即释放</li>
+ *     <li>authRpcExecutor：执行对 user-service 的 Feign 调用（IO 等待为主，线程数较多）</li>
+ *     <li>authRedisExecutor：执行角色写入与 StpUtil.login 等 Redis 写操作</li>
+ *     <li>任务提交时复制当前线程的 RequestAttributes，Sa-Token 在工作线程中仍能读写当前请求
+ *     （StpUtil.login 依赖请求上下文写入 token）</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Configuration
+public class AsyncAuthConfig implements WebMvcConfigurer {
+
+    @Value("${auth.async.request-timeout:10000}")
+    private long requestTimeout;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(requestTimeout);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor authRpcExecutor(@Value("${auth.async.rpc-threads:64}") int threads,
+                                                  @Value("${auth.async.rpc-queue-capacity:1000}") int queueCapacity) {
+        return executor("auth-rpc-", threads, queueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor authRedisExecutor(@Value("${auth.async.redis-threads:16}") int threads,
+                                                    @Value("${auth.async.redis-queue-capacity:1000}") int queueCapacity) {
+        return executor("auth-redis-", threads, queueCapacity);
+    }
+
+    private ThreadPoolTaskExecutor executor(String threadNamePrefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setTaskDecorator(new RequestContextTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(10);
+        // 默认 AbortPolicy：队列满时抛出 TaskRejectedException，由全局异常处理返回 503
+        return executor;
+    }
+
+    /**
+     * 把提交线程的 RequestAttributes 传递到工作线程，执行结束后恢复
+     */
+    static class RequestContextTaskDecorator implements TaskDecorator {
+
+        @Override
+        public Runnable decorate(Runnable runnable) {
+            final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+            return () -> {
+                RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+                RequestContextHolder.setRequestAttributes(attributes);
+                try {
+                    runnable.run();
+                } finally {
+                    RequestContextHolder.setRequestAttributes(previous);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.zxx.learning.auth.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 登录失败防护
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>按用户名、按客户端 IP 分别统计滑动窗口内的登录失败次数（前一窗口按剩余比例加权 + 当前窗口），
+ *     超过阈值时在调用 user-service 之前直接拒绝，不再消耗 Feign 调用与 BCrypt 计算</li>
+ *     <li>本地计数器已超过阈值时直接拒绝（快速路径）；否则一次 MGET 读取 Redis 中的集群合计值再判断，
+ *     其他实例上的失败同样生效。失败时把计数累加到 Redis，并把集群合计值回写到本地；Redis 不可用时退化为本地计数</li>
+ *     <li>user-service 返回“用户未注册”的用户名在本地短暂缓存，重复尝试直接返回</li>
+ *     <li>登录成功清空该用户名的失败计数；IP 计数不清空，避免攻击者用自有账号重置</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LoginAttemptGuard {
+
+    /**
+     * Redis 失败计数 key 前缀：sa:login-fail:{user|ip}:{key}:{窗口序号}
+     */
+    public static final String FAIL_KEY_PREFIX = "sa:login-fail:";
+
+    private final LoginGuardProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Window> userWindows = new ConcurrentHashMap<>();
+    private final Map<String, Window> ipWindows = new ConcurrentHashMap<>();
+    private final Map<String, Long> unknownUsers = new ConcurrentHashMap<>();
+
+    private Counter blockedCounter;
+    private Counter unknownUserCounter;
+
+    @PostConstruct
+    public void init() {
+        blockedCounter = Counter.builder("auth.login.guard.rejected").tag("reason", "too_many_failures")
+                .register(meterRegistry);
+        unknownUserCounter = Counter.builder("auth.login.guard.rejected").tag("reason", "unknown_user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 登录前检查
+     *
+     * @param username 用户名
+     * @param ip       客户端 IP
+     * @return 检查结果
+     */
+    public Verdict check(String username, String ip) {
+        if (!properties.isEnabled()) {
+            return Verdict.ALLOW;
+        }
+        long now = System.currentTimeMillis();
+        long window = windowMillis();
+        if (exceeded(userWindows.get(username), properties.getMaxUserFailures(), now, window)
+                || exceeded(ipWindows.get(ip), properties.getMaxIpFailures(), now, window)
+                || remoteExceeded(username, ip, now, window)) {
+            blockedCounter.increment();
+            return Verdict.BLOCKED;
+        }
+        Long expireAt = unknownUsers.get(username);
+        if (expireAt != null) {
+            if (expireAt > now) {
+                unknownUserCounter.increment();
+                return Verdict.UNKNOWN_USER;
+            }
+            unknownUsers.remove(username, expireAt);
+        }
+        return Verdict.ALLOW;
+    }
+
+    /**
+     * 记录一次登录失败
+     *
+     * @param unknownUser 是否为未注册用户名
+     */
+    public void onFailure(String username, String ip, boolean unknownUser) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long window = windowMillis();
+        Window userWindow = window(userWindows, username, now, window);
+        Window ipWindow = window(ipWindows, ip, now, window);
+        userWindow.add(now, window);
+        ipWindow.add(now, window);
+
+        if (unknownUser) {
+            if (unknownUsers.size() >= properties.getUnknownUserCacheSize()) {
+                purgeUnknownUsers(now);
+            }
+            if (unknownUsers.size() < properties.getUnknownUserCacheSize()) {
+                unknownUsers.put(username, now + properties.getUnknownUserTtl() * 1000);
+            }
+        }
+
+        syncRemote(username, userWindow, ip, ipWindow, now, window);
+    }
+
+    /**
+     * 登录成功：清空该用户名的失败计数
+     */
+    public void onSuccess(String username) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        userWindows.remove(username);
+        unknownUsers.remove(username);
+        long bucket = System.currentTimeMillis() / windowMillis();
+        try {
+            redisTemplate.delete(Arrays.asList(
+                    failKey("user", username, bucket), failKey("user", username, bucket - 1)));
+        } catch (Exception e) {
+            log.warn("清理登录失败计数异常, username={}", username, e);
+        }
+    }
+
+    /**
+     * 注册成功：移除未注册缓存
+     */
+    public void onRegistered(String username) {
+        unknownUsers.remove(username);
+    }
+
+    /**
+     * 解析客户端 IP
+     *
+     * <p>X-Forwarded-For 左侧的段由客户端任意填写，不可信；每经过一层受信代理会在右侧追加一段。
+     * 按 {@link LoginGuardProperties#getTrustedProxies()} 从右往左数：0 表示只用 remoteAddr，
+     * 1 表示取最右一段（Gateway 追加的真实来源地址），依此类推；段数不足时取最左一段。</p>
+     */
+    public String resolveClientIp(HttpServletRequest request) {
+        int trustedProxies = properties.getTrustedProxies();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (trustedProxies <= 0 || !StringUtils.hasText(forwarded)) {
+            return request.getRemoteAddr();
+        }
+        String[] hops = StringUtils.tokenizeToStringArray(forwarded, ",");
+        if (hops.length == 0) {
+            return request.getRemoteAddr();
+        }
+        return hops[Math.max(0, hops.length - trustedProxies)];
+    }
+
+    /**
+     * 读取 Redis 中的集群失败计数（一次 MGET），回写到本地计数器后判断是否超过阈值
+     */
+    private boolean remoteExceeded(String username, String ip, long now, long window) {
+        long bucket = now / window;
+        List<String> values;
+        try {
+            values = redisTemplate.opsForValue().multiGet(Arrays.asList(
+                    failKey("user", username, bucket), failKey("user", username, bucket - 1),
+                    failKey("ip", ip, bucket), failKey("ip", ip, bucket - 1)));
+        } catch (Exception e) {
+            log.warn("读取登录失败计数异常，按本地计数判断, username={}, ip={}", username, ip, e);
+            return false;
+        }
+        if (values == null || values.size() < 4) {
+            return false;
+        }
+        Window userWindow = observeRemote(userWindows, username, bucket * window,
+                toLong(values.get(0)), toLong(values.get(1)), now, window);
+        Window ipWindow = observeRemote(ipWindows, ip, bucket * window,
+                toLong(values.get(2)), toLong(values.get(3)), now, window);
+        return exceeded(userWindow, properties.getMaxUserFailures(), now, window)
+                || exceeded(ipWindow, properties.getMaxIpFailures(), now, window);
+    }
+
+    /**
+     * 集群计数为 0 时不创建本地计数器，避免正常登录占用计数器容量
+     */
+    private Window observeRemote(Map<String, Window> windows, String key, long bucketStart,
+                                 long current, long previous, long now, long windowMillis) {
+        Window window = windows.get(key);
+        if (window == null && current == 0 && previous == 0) {
+            return null;
+        }
+        if (window == null) {
+            window = window(windows, key, now, windowMillis);
+        }
+        window.observeRemote(bucketStart, current, previous);
+        return window;
+    }
+
+    /**
+     * 失败计数累加到 Redis（一次 pipeline），并把集群合计值回写到本地计数器
+     */
+    private void syncRemote(String username, Window userWindow, String ip, Window ipWindow, long now, long window) {
+        final long bucket = now / window;
+        final long ttl = window * 2;
+        final byte[][] keys = {
+                bytes(failKey("user", username, bucket)), bytes(failKey("user", username, bucket - 1)),
+                bytes(failKey("ip", ip, bucket)), bytes(failKey("ip", ip, bucket - 1))
+        };
+        try {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                pipelineIncr(connection, keys[0], keys[1], ttl);
+                pipelineIncr(connection, keys[2], keys[3], ttl);
+                return null;
+            });
+            userWindow.observeRemote(bucket * window, toLong(results.get(0)), toLong(results.get(2)));
+            ipWindow.observeRemote(bucket * window, toLong(results.get(3)), toLong(results.get(5)));
+        } catch (Exception e) {
+            // Redis 不可用时退化为单实例本地计数
+            log.warn("同步登录失败计数异常, username={}, ip={}", username, ip, e);
+        }
+    }
+
+    private static void pipelineIncr(RedisConnection connection, byte[] currentKey, byte[] previousKey, long ttl) {
+        connection.stringCommands().incr(currentKey);
+        connection.keyCommands().pExpire(currentKey, ttl);
+        connection.stringCommands().get(previousKey);
+    }
+
+    private boolean exceeded(Window window, int max, long now, long windowMillis) {
+        return window != null && max > 0 && window.estimate(now, windowMillis) >= max;
+    }
+
+    private Window window(Map<String, Window> windows, String key, long now, long windowMillis) {
+        Window window = windows.get(key);
+        if (window != null) {
+            return window;
+        }
+        if (windows.size() >= properties.getMaxTrackedKeys()) {
+            purgeIdle(windows, now, windowMillis);
+        }
+        return windows.computeIfAbsent(key, k -> new Window());
+    }
+
+    private void purgeIdle(Map<String, Window> windows, long now, long windowMillis) {
+        Iterator<Window> iterator = windows.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().estimate(now, windowMillis) <= 0) {
+                iterator.remove();
+            }
+        }
+        if (windows.size() >= properties.getMaxTrackedKeys()) {
+            log.warn("登录失败计数器过多，清空本地计数, size={}", windows.size());
+            windows.clear();
+        }
+    }
+
+    private void purgeUnknownUsers(long now) {
+        unknownUsers.values().removeIf(expireAt -> expireAt <= now);
+    }
+
+    private long windowMillis() {
+        return Math.max(1, properties.getWindow()) * 1000;
+    }
+
+    private static String failKey(String type, String key, long bucket) {
+        return FAIL_KEY_PREFIX + type + ":" + key + ":" + bucket;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    /**
+     * 检查结果
+     */
+    public enum Verdict {
+        ALLOW, BLOCKED, UNKNOWN_USER
+    }
+
+    /**
+     * 单个 key 的滑动窗口计数（前一窗口按剩余比例加权 + 当前窗口），本地与集群合计取较大值
+     */
+    private static final class Window {
+
+        private long bucketStart;
+        private long current;
+        private long previous;
+        private long remoteBucketStart = -1;
+        private long remoteCurrent;
+        private long remotePrevious;
+
+        synchronized void add(long now, long windowMillis) {
+            roll(now, windowMillis);
+            current++;
+        }
+
+        synchronized void observeRemote(long bucketStart, long current, long previous) {
+            remoteBucketStart = bucketStart;
+            remoteCurrent = current;
+            remotePrevious = previous;
+        }
+
+        synchronized double estimate(long now, long windowMillis) {
+            roll(now, windowMillis);
+            double weight = 1.0 - (double) (now - bucketStart) / windowMillis;
+            double local = previous * weight + current;
+            double remote = 0;
+            if (remoteBucketStart == bucketStart) {
+                remote = remotePrevious * weight + remoteCurrent;
+            } else if (remoteBucketStart == bucketStart - windowMillis) {
+                remote = remoteCurrent * weight;
+            }
+            return Math.max(local, remote);
+        }
+
+        private void roll(long now, long windowMillis) {
+            long start = now - now % windowMillis;
+            if (start == bucketStart) {
+                return;
+            }
+            previous = start - bucketStart == windowMillis ? current : 0;
+            current = 0;
+            bucketStart = start;
+        }
+    }
+}
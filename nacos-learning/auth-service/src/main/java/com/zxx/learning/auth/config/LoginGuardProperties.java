@@ -0,0 +1,59 @@
+package com.zxx.learning.auth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 登录失败防护配置
+ *
+ * <p>配置前缀：auth.login-guard，配置源头见 nacos-config-examples/auth-service-dev.yaml</p>
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "auth.login-guard")
+public class LoginGuardProperties {
+
+    /**
+     * 是否启用登录失败防护
+     */
+    private boolean enabled = true;
+
+    /**
+     * 失败计数的滑动窗口，单位秒
+     */
+    private long window = 300;
+
+    /**
+     * 窗口内单个用户名允许的最大失败次数
+     */
+    private int maxUserFailures = 5;
+
+    /**
+     * 窗口内单个客户端 IP 允许的最大失败次数
+     */
+    private int maxIpFailures = 50;
+
+    /**
+     * 未注册用户名的本地缓存时间，单位秒（其他途径创建的用户最多延迟该时间后可登录）
+     */
+    private long unknownUserTtl = 60;
+
+    /**
+     * 未注册用户名缓存的最大条数
+     */
+    private int unknownUserCacheSize = 10000;
+
+    /**
+     * 本地失败计数器的最大条数，超过后清理空闲计数器
+     */
+    private int maxTrackedKeys = 100000;
+
+    /**
+     * auth-service 前面追加 X-Forwarded-For 的受信代理层数（默认只有 Gateway 一层），
+     * 客户端 IP 取 X-Forwarded-For 从右往左第该层数段；0 表示忽略 X-Forwarded-For，只用 remoteAddr
+     */
+    private int trustedProxies = 1;
+}
@@ -1,13 +1,18 @@
 package com.zxx.learning.auth.config;
 
+import com.zxx.learning.common.redis.RedisShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -18,8 +23,11 @@ import java.util.Set;
  * <p>说明：
  * <ul>
  *     <li>key 结构：sa:roles:{loginId}</li>
+ *     <li>反向索引：sa:role-members:{role}，Set<String> loginId，用于按角色批量吊销会话</li>
  *     <li>value：Set<String>，例如 user、admin</li>
  *     <li>使用同步的 StringRedisTemplate，因为 StpInterface.getRoleList() 是同步方法</li>
+ *     <li>与 token 使用同一个 {@link RedisShardRouter} 分片，Gateway 按相同规则读取</li>
+ *     <li>批量写入使用可变参数 SADD，并通过分片路由器的写批次按分片 pipeline 提交</li>
  * </ul>
  * </p>
  */
@@ -29,8 +37,14 @@ import java.util.Set;
 public class RedisRoleStore {
 
     private static final String KEY_PREFIX = "sa:roles:";
+    private static final String MEMBERS_PREFIX = "sa:role-members:";
 
-    private final StringRedisTemplate redisTemplate;
+    /**
+     * 批量写入时每个写批次包含的用户数
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private final RedisShardRouter shardRouter;
 
     /**
      * 为指定用户添加一个角色（如果已存在则忽略）
@@ -46,16 +60,82 @@ public class RedisRoleStore {
         String value = role.trim();
 
         try {
-            // 使用同步方法写入 Redis Set
-            Long result = redisTemplate.opsForSet().add(key, value);
-            if (result != null && result > 0) {
-                log.debug("成功向 Redis 写入角色, loginId={}, role={}", loginId, value);
-            }
+            // 写入 Redis Set（登录时与 token、会话写入合并在同一个 pipeline 中）
+            final byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+            final byte[] rawValue = value.getBytes(StandardCharsets.UTF_8);
+            shardRouter.write(key, connection -> connection.setCommands().sAdd(rawKey, rawValue));
+            final String membersKey = MEMBERS_PREFIX + value;
+            final byte[] rawMembersKey = membersKey.getBytes(StandardCharsets.UTF_8);
+            final byte[] rawLoginId = loginId.trim().getBytes(StandardCharsets.UTF_8);
+            shardRouter.write(membersKey, connection -> connection.setCommands().sAdd(rawMembersKey, rawLoginId));
+            log.debug("向 Redis 写入角色, loginId={}, role={}", loginId, value);
         } catch (Exception e) {
             log.error("向 Redis 写入角色异常, loginId={}, role={}", loginId, value, e);
         }
     }
 
+    /**
+     * 为多个用户批量添加角色
+     *
+     * <p>每个用户一条可变参数 SADD，角色反向索引按角色聚合为可变参数 SADD；
+     * 每 {@link #BATCH_SIZE} 个用户提交一次写批次，按分片各用一次 pipeline。</p>
+     *
+     * @param userRoles loginId -> 角色列表
+     * @return 实际写入的用户数
+     */
+    public int addRolesBatch(Map<String, List<String>> userRoles) {
+        if (userRoles == null || userRoles.isEmpty()) {
+            return 0;
+        }
+        int users = 0;
+        Map<String, Set<String>> members = new HashMap<>();
+        shardRouter.beginBatch();
+        try {
+            for (Map.Entry<String, List<String>> entry : userRoles.entrySet()) {
+                if (!StringUtils.hasText(entry.getKey()) || entry.getValue() == null) {
+                    continue;
+                }
+                String loginId = entry.getKey().trim();
+                Set<String> roles = new LinkedHashSet<>();
+                for (String role : entry.getValue()) {
+                    if (StringUtils.hasText(role)) {
+                        roles.add(role.trim());
+                    }
+                }
+                if (roles.isEmpty()) {
+                    continue;
+                }
+                String key = buildKey(loginId);
+                final byte[] rawKey = bytes(key);
+                final byte[][] rawRoles = bytes(roles);
+                shardRouter.write(key, connection -> connection.setCommands().sAdd(rawKey, rawRoles));
+                for (String role : roles) {
+                    members.computeIfAbsent(role, r -> new LinkedHashSet<>()).add(loginId);
+                }
+                if (++users % BATCH_SIZE == 0) {
+                    writeMembers(members);
+                    shardRouter.flushBatch();
+                    shardRouter.beginBatch();
+                }
+            }
+            writeMembers(members);
+        } finally {
+            shardRouter.flushBatch();
+        }
+        log.info("批量写入角色完成, users={}", users);
+        return users;
+    }
+
+    private void writeMembers(Map<String, Set<String>> members) {
+        for (Map.Entry<String, Set<String>> entry : members.entrySet()) {
+            final String membersKey = MEMBERS_PREFIX + entry.getKey();
+            final byte[] rawMembersKey = bytes(membersKey);
+            final byte[][] rawLoginIds = bytes(entry.getValue());
+            shardRouter.write(membersKey, connection -> connection.setCommands().sAdd(rawMembersKey, rawLoginIds));
+        }
+        members.clear();
+    }
+
     /**
      * 获取指定用户的角色列表
      *
@@ -66,9 +146,9 @@ public class RedisRoleStore {
         if (!StringUtils.hasText(loginId)) {
             return Collections.emptyList();
         }
-        String key = buildKey(loginId);
+        final String key = buildKey(loginId);
         try {
-            Set<String> roles = redisTemplate.opsForSet().members(key);
+            Set<String> roles = shardRouter.read(key, template -> emptyToNull(template.opsForSet().members(key)));
             if (roles == null || roles.isEmpty()) {
                 return Collections.emptyList();
             }
@@ -79,7 +159,44 @@ public class RedisRoleStore {
         }
     }
 
+    /**
+     * 获取拥有指定角色的用户列表
+     *
+     * @param role 角色编码
+     * @return loginId 列表（可能为空列表，绝不为 null）
+     */
+    public List<String> getRoleMembers(String role) {
+        if (!StringUtils.hasText(role)) {
+            return Collections.emptyList();
+        }
+        final String key = MEMBERS_PREFIX + role.trim();
+        try {
+            Set<String> members = shardRouter.read(key, template -> emptyToNull(template.opsForSet().members(key)));
+            return members != null ? new java.util.ArrayList<>(members) : Collections.<String>emptyList();
+        } catch (Exception e) {
+            log.error("从 Redis 读取角色成员异常, role={}", role, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private static Set<String> emptyToNull(Set<String> roles) {
+        return roles == null || roles.isEmpty() ? null : roles;
+    }
+
     private String buildKey(String loginId) {
         return KEY_PREFIX + loginId.trim();
     }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] bytes(Collection<String> values) {
+        byte[][] raw = new byte[values.size()][];
+        int i = 0;
+        for (String value : values) {
+            raw[i++] = bytes(value);
+        }
+        return raw;
+    }
 }
@@ -1,14 +1,32 @@
 package com.zxx.learning.auth.config;
 
+import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.regex.Pattern;
 
 /**
  * 使用 Redis 存储用户技能的实现（基于 StringRedisTemplate，同步版本）。
@@ -19,7 +37,14 @@ import java.util.Set;
  * <ul>
  *     <li>key 结构：sa:skills:{loginId}</li>
  *     <li>value：Set<String>，例如 java、python、spring</li>
+ *     <li>倒排索引：sa:skill-users:{skill}，Set<String> loginId，与用户技能在同一个 Lua 脚本中原子更新</li>
+ *     <li>技能热度：sa:skill-popularity，ZSet 技能 -> 拥有人数；技能名称：sa:skill-names，分数全为 0 的 ZSet，用于前缀补全，
+ *     两者都随技能增删增量维护，不需要扫描 sa:skills:*</li>
  *     <li>使用同步的 StringRedisTemplate</li>
+ *     <li>批量写入使用 pipeline，不再逐个技能往返</li>
+ *     <li>多技能搜索不使用 ZINTERSTORE / ZUNIONSTORE：交集从最小集合逐个校验，结果存为每次搜索独占的快照
+ *     sa:skill-search:{快照 id}；并集不物化，按技能热度顺序流式翻页</li>
+ *     <li>Lua 脚本使用 {@link DefaultRedisScript}：按 SHA1 执行 EVALSHA，Redis 未缓存时才回退为发送脚本正文的 EVAL</li>
  * </ul>
  * </p>
  */
@@ -29,6 +54,162 @@ import java.util.Set;
 public class RedisSkillStore {
 
     private static final String KEY_PREFIX = "sa:skills:";
+    private static final String INDEX_PREFIX = "sa:skill-users:";
+    private static final String SEARCH_PREFIX = "sa:skill-search:";
+    private static final String POPULARITY_KEY = "sa:skill-popularity";
+    private static final String NAMES_KEY = "sa:skill-names";
+
+    /**
+     * 批量写入时每次 pipeline 包含的用户数
+     */
+    private static final int PIPELINE_BATCH_SIZE = 1000;
+
+    /**
+     * 交集搜索快照的空闲过期时间（毫秒）。快照按搜索会话独立存放，每次翻页顺延；
+     * 过期后下一页按当前数据重建并从游标处继续，因此翻页期间的技能变化最多在该时间内不体现在后续页中
+     */
+    private static final long SEARCH_SNAPSHOT_TTL = 60000;
+
+    /**
+     * 快照 id：32 位十六进制，校验后才拼进 key，避免游标被用来访问任意 key
+     */
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9a-f]{32}");
+
+    /**
+     * 添加技能：KEYS[1] 用户技能 key，KEYS[2] 技能热度 key，KEYS[3] 技能名称 key，KEYS[4..n] 技能倒排 key；
+     * ARGV[1] loginId，ARGV[2..n] 技能。只有新增的技能才会增加热度计数
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "local added = 0\n" +
+            "for i = 2, #ARGV do\n" +
+            "  redis.call('SADD', KEYS[i + 2], ARGV[1])\n" +
+            "  if redis.call('SADD', KEYS[1], ARGV[i]) == 1 then\n" +
+            "    redis.call('ZINCRBY', KEYS[2], 1, ARGV[i])\n" +
+            "    redis.call('ZADD', KEYS[3], 0, ARGV[i])\n" +
+            "    added = added + 1\n" +
+            "  end\n" +
+            "end\n" +
+            "return added", Long.class);
+
+    /**
+     * 移除技能：参数同 {@link #ADD_SCRIPT}，拥有人数降为 0 的技能从热度与名称索引中删除
+     */
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "local removed = 0\n" +
+            "for i = 2, #ARGV do\n" +
+            "  redis.call('SREM', KEYS[i + 2], ARGV[1])\n" +
+            "  if redis.call('SREM', KEYS[1], ARGV[i]) == 1 then\n" +
+            "    removed = removed + 1\n" +
+            "    if tonumber(redis.call('ZINCRBY', KEYS[2], -1, ARGV[i])) <= 0 then\n" +
+            "      redis.call('ZREM', KEYS[2], ARGV[i])\n" +
+            "      redis.call('ZREM', KEYS[3], ARGV[i])\n" +
+            "    end\n" +
+            "  end\n" +
+            "end\n" +
+            "return removed", Long.class);
+
+    /**
+     * 前缀补全：KEYS[1] 技能名称 key，KEYS[2] 技能热度 key；ARGV[1] 前缀，ARGV[2] 条数。
+     * 返回：{技能, 人数, 技能, 人数...}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SUGGEST_SCRIPT = new DefaultRedisScript<>(
+            "local names = redis.call('ZRANGEBYLEX', KEYS[1], '[' .. ARGV[1], '[' .. ARGV[1] .. '\\255', 'LIMIT', 0, tonumber(ARGV[2]))\n" +
+            "local result = {}\n" +
+            "for i = 1, #names do\n" +
+            "  result[#result + 1] = names[i]\n" +
+            "  result[#result + 1] = redis.call('ZSCORE', KEYS[2], names[i])\n" +
+            "end\n" +
+            "return result", List.class);
+
+    /**
+     * 全部技能搜索（交集）：KEYS[1] 本次搜索的快照 key，KEYS[2..n] 技能倒排 key；
+     * ARGV[1] 快照空闲过期时间（毫秒），ARGV[2] 游标（上一页最后一个 loginId，首页为空），ARGV[3] 每页条数。
+     * 快照不存在（首页或已过期）时才计算：遍历人数最少的技能，逐个用 SISMEMBER 校验其余技能，
+     * 代价只与最小集合成正比；命中的用户分批写入分数全为 0 的 ZSet，按 loginId 字典序用 ZRANGEBYLEX 翻页，
+     * 每次翻页顺延过期时间。返回：{总数, loginId...}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SEARCH_ALL_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then\n" +
+            "  local smallest, card = 0, -1\n" +
+            "  for i = 2, #KEYS do\n" +
+            "    local c = redis.call('SCARD', KEYS[i])\n" +
+            "    if c == 0 then return {0} end\n" +
+            "    if card < 0 or c < card then smallest, card = i, c end\n" +
+            "  end\n" +
+            "  local batch = {}\n" +
+            "  for _, member in ipairs(redis.call('SMEMBERS', KEYS[smallest])) do\n" +
+            "    local hit = true\n" +
+            "    for i = 2, #KEYS do\n" +
+            "      if i ~= smallest and redis.call('SISMEMBER', KEYS[i], member) == 0 then hit = false break end\n" +
+            "    end\n" +
+            "    if hit then\n" +
+            "      batch[#batch + 1] = 0\n" +
+            "      batch[#batch + 1] = member\n" +
+            "      if #batch >= 1000 then redis.call('ZADD', KEYS[1], unpack(batch)) batch = {} end\n" +
+            "    end\n" +
+            "  end\n" +
+            "  if #batch > 0 then redis.call('ZADD', KEYS[1], unpack(batch)) end\n" +
+            "end\n" +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[1])\n" +
+            "local min = '-'\n" +
+            "if ARGV[2] ~= '' then min = '(' .. ARGV[2] end\n" +
+            "local page = redis.call('ZRANGEBYLEX', KEYS[1], min, '+', 'LIMIT', 0, tonumber(ARGV[3]))\n" +
+            "table.insert(page, 1, redis.call('ZCARD', KEYS[1]))\n" +
+            "return page", List.class);
+
+    /**
+     * 任一技能搜索（并集）：KEYS[1..n] 技能倒排 key；ARGV[1] 技能顺序（KEYS 下标，逗号分隔，首页为空），
+     * ARGV[2] 当前技能在顺序中的位置，ARGV[3] SSCAN 游标，ARGV[4] 该 SSCAN 批次已消费的条数，ARGV[5] 每页条数。
+     * 不物化结果：首页按人数从多到少（热度）确定技能顺序，之后依次 SSCAN 各技能，
+     * 跳过已在前面技能中出现过的用户实现去重，每页只做 O(size * n) 次 SISMEMBER。
+     * 返回：{人数上界（各技能人数之和）, 下一页游标（没有更多时为空）, loginId...}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SEARCH_ANY_SCRIPT = new DefaultRedisScript<>(
+            "local cards, total = {}, 0\n" +
+            "for i = 1, #KEYS do\n" +
+            "  cards[i] = redis.call('SCARD', KEYS[i])\n" +
+            "  total = total + cards[i]\n" +
+            "end\n" +
+            "local order = {}\n" +
+            "if ARGV[1] == '' then\n" +
+            "  for i = 1, #KEYS do if cards[i] > 0 then order[#order + 1] = i end end\n" +
+            "  table.sort(order, function(a, b)\n" +
+            "    if cards[a] ~= cards[b] then return cards[a] > cards[b] end\n" +
+            "    return a < b\n" +
+            "  end)\n" +
+            "else\n" +
+            "  for idx in string.gmatch(ARGV[1], '%d+') do order[#order + 1] = tonumber(idx) end\n" +
+            "end\n" +
+            "local pos, scan, skip, size = tonumber(ARGV[2]), ARGV[3], tonumber(ARGV[4]), tonumber(ARGV[5])\n" +
+            "local page = {}\n" +
+            "while pos <= #order and #page < size do\n" +
+            "  local reply = redis.call('SSCAN', KEYS[order[pos]], scan, 'COUNT', size)\n" +
+            "  local members = reply[2]\n" +
+            "  local taken = skip\n" +
+            "  for m = skip + 1, #members do\n" +
+            "    if #page >= size then break end\n" +
+            "    taken = m\n" +
+            "    local seen = false\n" +
+            "    for j = 1, pos - 1 do\n" +
+            "      if redis.call('SISMEMBER', KEYS[order[j]], members[m]) == 1 then seen = true break end\n" +
+            "    end\n" +
+            "    if not seen then page[#page + 1] = members[m] end\n" +
+            "  end\n" +
+            "  if taken < #members then\n" +
+            "    skip = taken\n" +
+            "    break\n" +
+            "  end\n" +
+            "  skip = 0\n" +
+            "  if reply[1] == '0' then pos, scan = pos + 1, '0' else scan = reply[1] end\n" +
+            "end\n" +
+            "local cursor = ''\n" +
+            "if pos <= #order then cursor = table.concat(order, ',') .. ':' .. pos .. ':' .. scan .. ':' .. skip end\n" +
+            "table.insert(page, 1, cursor)\n" +
+            "table.insert(page, 1, total)\n" +
+            "return page", List.class);
 
     private final StringRedisTemplate redisTemplate;
 
@@ -42,22 +223,11 @@ public class RedisSkillStore {
         if (!StringUtils.hasText(loginId) || !StringUtils.hasText(skill)) {
             return;
         }
-        String key = buildKey(loginId);
-        String value = skill.trim();
-
-        try {
-            // 使用同步方法写入 Redis Set
-            Long result = redisTemplate.opsForSet().add(key, value);
-            if (result != null && result > 0) {
-                log.debug("成功向 Redis 写入技能, loginId={}, skill={}", loginId, value);
-            }
-        } catch (Exception e) {
-            log.error("向 Redis 写入技能异常, loginId={}, skill={}", loginId, value, e);
-        }
+        addSkills(loginId, Collections.singletonList(skill));
     }
 
     /**
-     * 为指定用户批量添加技能
+     * 为指定用户批量添加技能（用户技能与倒排索引在一次 Lua 脚本中写入）
      *
      * @param loginId 登录ID/用户名
      * @param skills  技能列表
@@ -66,11 +236,72 @@ public class RedisSkillStore {
         if (!StringUtils.hasText(loginId) || skills == null || skills.isEmpty()) {
             return;
         }
-        for (String skill : skills) {
-            if (StringUtils.hasText(skill)) {
-                addSkill(loginId, skill.trim());
+        final String[] values = normalize(skills);
+        if (values.length == 0) {
+            return;
+        }
+        final String id = loginId.trim();
+        try {
+            redisTemplate.execute(ADD_SCRIPT, scriptKeys(id, values), scriptArgs(id, values));
+            log.debug("成功向 Redis 写入技能, loginId={}, skills={}", id, values.length);
+        } catch (Exception e) {
+            log.error("向 Redis 写入技能异常, loginId={}, skills={}", id, skills, e);
+        }
+    }
+
+    /**
+     * 为多个用户批量添加技能
+     *
+     * <p>每个用户一次 Lua 脚本（用户技能 + 倒排索引），每 {@link #PIPELINE_BATCH_SIZE} 个用户合并为一次 pipeline 往返。</p>
+     *
+     * @param userSkills loginId -> 技能列表
+     * @return 实际写入的用户数
+     */
+    public int addSkillsBatch(Map<String, List<String>> userSkills) {
+        if (userSkills == null || userSkills.isEmpty()) {
+            return 0;
+        }
+        final List<byte[][]> commands = new ArrayList<>(Math.min(userSkills.size(), PIPELINE_BATCH_SIZE));
+        final List<Integer> numKeys = new ArrayList<>(commands.size());
+        int users = 0;
+        for (Map.Entry<String, List<String>> entry : userSkills.entrySet()) {
+            if (!StringUtils.hasText(entry.getKey()) || entry.getValue() == null) {
+                continue;
+            }
+            String[] skills = normalize(entry.getValue());
+            if (skills.length == 0) {
+                continue;
+            }
+            commands.add(keysAndArgs(entry.getKey().trim(), skills));
+            numKeys.add(skills.length + 3);
+            users++;
+            if (commands.size() == PIPELINE_BATCH_SIZE) {
+                pipelineAdd(commands, numKeys);
             }
         }
+        if (!commands.isEmpty()) {
+            pipelineAdd(commands, numKeys);
+        }
+        log.info("批量写入技能完成, users={}", users);
+        return users;
+    }
+
+    /**
+     * pipeline 中无法按 NOSCRIPT 回退，先在同一连接上 SCRIPT LOAD（与后续命令同批发送、按顺序执行），
+     * 之后每个用户只发送 EVALSHA 与参数，不再重复发送脚本正文
+     */
+    private void pipelineAdd(final List<byte[][]> commands, final List<Integer> numKeys) {
+        final byte[] script = bytes(ADD_SCRIPT.getScriptAsString());
+        final String sha = ADD_SCRIPT.getSha1();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.scriptingCommands().scriptLoad(script);
+            for (int i = 0; i < commands.size(); i++) {
+                connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, numKeys.get(i), commands.get(i));
+            }
+            return null;
+        });
+        commands.clear();
+        numKeys.clear();
     }
 
     /**
@@ -97,7 +328,7 @@ public class RedisSkillStore {
     }
 
     /**
-     * 移除指定用户的某个技能
+     * 移除指定用户的某个技能（同时更新倒排索引）
      *
      * @param loginId 登录ID/用户名
      * @param skill   技能名称
@@ -106,16 +337,16 @@ public class RedisSkillStore {
         if (!StringUtils.hasText(loginId) || !StringUtils.hasText(skill)) {
             return;
         }
-        String key = buildKey(loginId);
-        String value = skill.trim();
+        final String id = loginId.trim();
+        final String[] values = {skill.trim()};
 
         try {
-            Long result = redisTemplate.opsForSet().remove(key, value);
+            Long result = redisTemplate.execute(REMOVE_SCRIPT, scriptKeys(id, values), scriptArgs(id, values));
             if (result != null && result > 0) {
-                log.debug("成功从 Redis 移除技能, loginId={}, skill={}", loginId, value);
+                log.debug("成功从 Redis 移除技能, loginId={}, skill={}", id, values[0]);
             }
         } catch (Exception e) {
-            log.error("从 Redis 移除技能异常, loginId={}, skill={}", loginId, value, e);
+            log.error("从 Redis 移除技能异常, loginId={}, skill={}", id, values[0], e);
         }
     }
 
@@ -140,7 +371,306 @@ public class RedisSkillStore {
         }
     }
 
+    /**
+     * 按技能搜索用户（一次 Lua 脚本往返）
+     *
+     * @param skills   技能列表
+     * @param matchAll true 同时拥有全部技能（交集），false 拥有任一技能（并集）
+     * @param cursor   游标：上一页返回的 nextCursor，首页传 null
+     * @param size     每页条数
+     * @return 搜索结果
+     */
+    public SearchResult searchUsers(Collection<String> skills, boolean matchAll, String cursor, int size) {
+        Set<String> sorted = new TreeSet<>();
+        if (skills != null) {
+            for (String skill : skills) {
+                if (StringUtils.hasText(skill)) {
+                    sorted.add(skill.trim());
+                }
+            }
+        }
+        if (sorted.isEmpty()) {
+            return emptyResult();
+        }
+        List<String> indexKeys = new ArrayList<>(sorted.size());
+        for (String skill : sorted) {
+            indexKeys.add(INDEX_PREFIX + skill);
+        }
+        return matchAll ? searchAll(indexKeys, cursor, size) : searchAny(indexKeys, cursor, size);
+    }
+
+    /**
+     * 交集搜索。游标为 {快照 id}:{上一页最后一个 loginId}：首页生成新的快照 id，
+     * 每次搜索独占自己的快照，并发的首页请求不会重建别人正在翻页的结果
+     */
+    private SearchResult searchAll(List<String> indexKeys, String cursor, int size) {
+        String snapshotId;
+        String last;
+        if (cursor == null) {
+            snapshotId = UUID.randomUUID().toString().replace("-", "");
+            last = "";
+        } else {
+            int sep = cursor.indexOf(':');
+            if (sep <= 0 || !SNAPSHOT_ID.matcher(cursor.substring(0, sep)).matches()) {
+                return emptyResult();
+            }
+            snapshotId = cursor.substring(0, sep);
+            last = cursor.substring(sep + 1);
+        }
+        List<String> keys = new ArrayList<>(indexKeys.size() + 1);
+        keys.add(SEARCH_PREFIX + snapshotId);
+        keys.addAll(indexKeys);
+
+        List<?> reply = redisTemplate.execute(SEARCH_ALL_SCRIPT, keys, String.valueOf(SEARCH_SNAPSHOT_TTL), last,
+                String.valueOf(size));
+        if (reply == null || reply.isEmpty()) {
+            return emptyResult();
+        }
+        List<String> users = new ArrayList<>(reply.size() - 1);
+        for (int j = 1; j < reply.size(); j++) {
+            users.add(String.valueOf(reply.get(j)));
+        }
+        String nextCursor = users.size() == size ? snapshotId + ":" + users.get(users.size() - 1) : null;
+        return new SearchResult(((Number) reply.get(0)).longValue(), users, nextCursor);
+    }
+
+    /**
+     * 并集搜索。游标为 {技能顺序}:{位置}:{SSCAN 游标}:{批次内已消费条数}，由脚本生成；
+     * 与 SCAN 一样是弱一致的：翻页期间技能有增删时，个别用户可能重复或遗漏
+     */
+    private SearchResult searchAny(List<String> indexKeys, String cursor, int size) {
+        String[] args = {"", "1", "0", "0"};
+        if (cursor != null) {
+            String[] parts = cursor.split(":", -1);
+            if (parts.length != 4 || !validOrder(parts[0], indexKeys.size())
+                    || !parts[1].matches("\\d{1,9}") || !parts[2].matches("\\d{1,20}") || !parts[3].matches("\\d{1,9}")) {
+                return emptyResult();
+            }
+            args = parts;
+        }
+
+        List<?> reply = redisTemplate.execute(SEARCH_ANY_SCRIPT, indexKeys, args[0], args[1], args[2], args[3],
+                String.valueOf(size));
+        if (reply == null || reply.size() < 2) {
+            return emptyResult();
+        }
+        List<String> users = new ArrayList<>(reply.size() - 2);
+        for (int j = 2; j < reply.size(); j++) {
+            users.add(String.valueOf(reply.get(j)));
+        }
+        String nextCursor = String.valueOf(reply.get(1));
+        return new SearchResult(((Number) reply.get(0)).longValue(), users,
+                StringUtils.hasText(nextCursor) ? nextCursor : null);
+    }
+
+    /**
+     * 游标中的技能顺序只能引用本次请求的技能下标（从 1 开始）
+     */
+    private static boolean validOrder(String order, int skills) {
+        if (order.isEmpty()) {
+            return false;
+        }
+        for (String index : order.split(",", -1)) {
+            if (!index.matches("\\d{1,3}")) {
+                return false;
+            }
+            int value = Integer.parseInt(index);
+            if (value < 1 || value > skills) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static SearchResult emptyResult() {
+        return new SearchResult(0, Collections.<String>emptyList(), null);
+    }
+
+    /**
+     * 根据现有用户技能重建倒排索引（上线前已有的技能数据需要执行一次）
+     *
+     * @return 处理的用户数
+     */
+    public int rebuildIndex() {
+        int users = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(KEY_PREFIX + "*").count(PIPELINE_BATCH_SIZE).build();
+        final List<byte[][]> commands = new ArrayList<>(PIPELINE_BATCH_SIZE);
+        final List<Integer> numKeys = new ArrayList<>(PIPELINE_BATCH_SIZE);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                Set<String> skills = redisTemplate.opsForSet().members(key);
+                if (skills == null || skills.isEmpty()) {
+                    continue;
+                }
+                commands.add(keysAndArgs(key.substring(KEY_PREFIX.length()), skills.toArray(new String[0])));
+                numKeys.add(skills.size() + 3);
+                users++;
+                if (commands.size() == PIPELINE_BATCH_SIZE) {
+                    pipelineAdd(commands, numKeys);
+                }
+            }
+        }
+        if (!commands.isEmpty()) {
+            pipelineAdd(commands, numKeys);
+        }
+        int skills = rebuildPopularity();
+        log.info("重建技能倒排索引完成, users={}, skills={}", users, skills);
+        return users;
+    }
+
+    /**
+     * 按倒排索引的集合大小重算技能热度与名称索引（重建前写入的技能没有热度计数）
+     *
+     * @return 技能数量
+     */
+    private int rebuildPopularity() {
+        int skills = 0;
+        ScanOptions options = ScanOptions.scanOptions().match(INDEX_PREFIX + "*").count(PIPELINE_BATCH_SIZE).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                String skill = key.substring(INDEX_PREFIX.length());
+                Long count = redisTemplate.opsForSet().size(key);
+                if (count == null || count == 0) {
+                    redisTemplate.opsForZSet().remove(POPULARITY_KEY, skill);
+                    redisTemplate.opsForZSet().remove(NAMES_KEY, skill);
+                    continue;
+                }
+                redisTemplate.opsForZSet().add(POPULARITY_KEY, skill, count);
+                redisTemplate.opsForZSet().add(NAMES_KEY, skill, 0);
+                skills++;
+            }
+        }
+        return skills;
+    }
+
+    /**
+     * 热门技能（按拥有人数倒序）
+     *
+     * @param limit 条数
+     * @return 技能 -> 人数，按人数倒序
+     */
+    public Map<String, Long> topSkills(int limit) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        try {
+            Set<ZSetOperations.TypedTuple<String>> tuples =
+                    redisTemplate.opsForZSet().reverseRangeWithScores(POPULARITY_KEY, 0, limit - 1);
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                    result.put(tuple.getValue(), tuple.getScore() != null ? tuple.getScore().longValue() : 0L);
+                }
+            }
+        } catch (Exception e) {
+            log.error("查询热门技能异常, limit={}", limit, e);
+        }
+        return result;
+    }
+
+    /**
+     * 技能名称前缀补全（按字典序，一次 Lua 脚本往返同时返回人数）
+     *
+     * @param prefix 前缀
+     * @param limit  条数
+     * @return 技能 -> 人数，按技能名称字典序
+     */
+    public Map<String, Long> suggestSkills(String prefix, int limit) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (!StringUtils.hasText(prefix)) {
+            return result;
+        }
+        try {
+            List<?> reply = redisTemplate.execute(SUGGEST_SCRIPT, Arrays.asList(NAMES_KEY, POPULARITY_KEY),
+                    prefix.trim(), String.valueOf(limit));
+            if (reply != null) {
+                for (int i = 0; i + 1 < reply.size(); i += 2) {
+                    Object score = reply.get(i + 1);
+                    long count = score != null ? (long) Double.parseDouble(score.toString()) : 0L;
+                    result.put(String.valueOf(reply.get(i)), count);
+                }
+            }
+        } catch (Exception e) {
+            log.error("技能前缀补全异常, prefix={}", prefix, e);
+        }
+        return result;
+    }
+
     private String buildKey(String loginId) {
         return KEY_PREFIX + loginId.trim();
     }
+
+    /**
+     * 脚本 KEYS：[用户技能 key, 技能热度 key, 技能名称 key, 技能倒排 key...]
+     */
+    private List<String> scriptKeys(String loginId, String[] skills) {
+        List<String> keys = new ArrayList<>(skills.length + 3);
+        keys.add(buildKey(loginId));
+        keys.add(POPULARITY_KEY);
+        keys.add(NAMES_KEY);
+        for (String skill : skills) {
+            keys.add(INDEX_PREFIX + skill);
+        }
+        return keys;
+    }
+
+    /**
+     * 脚本 ARGV：[loginId, 技能...]
+     */
+    private static Object[] scriptArgs(String loginId, String[] skills) {
+        Object[] args = new Object[skills.length + 1];
+        args[0] = loginId;
+        System.arraycopy(skills, 0, args, 1, skills.length);
+        return args;
+    }
+
+    /**
+     * pipeline 中使用的原始参数：KEYS 与 ARGV 同 {@link #scriptKeys}、{@link #scriptArgs}
+     */
+    private byte[][] keysAndArgs(String loginId, String[] skills) {
+        byte[][] raw = new byte[skills.length * 2 + 4][];
+        raw[0] = bytes(buildKey(loginId));
+        raw[1] = bytes(POPULARITY_KEY);
+        raw[2] = bytes(NAMES_KEY);
+        for (int i = 0; i < skills.length; i++) {
+            raw[i + 3] = bytes(INDEX_PREFIX + skills[i]);
+        }
+        raw[skills.length + 3] = bytes(loginId);
+        for (int i = 0; i < skills.length; i++) {
+            raw[skills.length + 4 + i] = bytes(skills[i]);
+        }
+        return raw;
+    }
+
+    private static String[] normalize(List<String> skills) {
+        Set<String> values = new LinkedHashSet<>();
+        for (String skill : skills) {
+            if (StringUtils.hasText(skill)) {
+                values.add(skill.trim());
+            }
+        }
+        return values.toArray(new String[0]);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 技能搜索结果
+     */
+    @Data
+    public static class SearchResult {
+        /**
+         * 命中的用户总数；任一技能搜索时为各技能人数之和（去重前的上界）
+         */
+        private final long total;
+        /**
+         * 当前页 loginId（全部技能搜索按字典序，任一技能搜索按技能热度顺序）
+         */
+        private final List<String> users;
+        /**
+         * 下一页游标，为 null 表示没有更多
+         */
+        private final String nextCursor;
+    }
 }
@@ -2,16 +2,29 @@ package com.zxx.learning.auth.config;
 
 import cn.dev33.satoken.dao.SaTokenDao;
 import cn.dev33.satoken.session.SaSession;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxx.learning.common.redis.RedisShardProperties;
+import com.zxx.learning.common.redis.RedisShardRouter;
+import com.zxx.learning.common.redis.RedisWriteBatch;
+import com.zxx.learning.common.satoken.BinarySaSessionCodec;
+import com.zxx.learning.common.satoken.JsonSaSessionCodec;
+import com.zxx.learning.common.satoken.SaSessionCodec;
+import com.zxx.learning.common.satoken.SaTokenIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.util.StringUtils;
+import org.springframework.data.redis.core.types.Expiration;
 
-import java.util.concurrent.TimeUnit;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
 
 /**
  * Sa-Token Redis 存储配置
@@ -22,9 +35,14 @@ import java.util.concurrent.TimeUnit;
  * 
  * <p>说明：
  * <ul>
- *     <li>Redis key 前缀：satoken:token:（token 值）和 satoken:token-session:（会话对象）</li>
+ *     <li>Redis key 前缀：satoken:token:（token 值）和 satoken:token-session:（会话对象，默认紧凑二进制格式，兼容读取历史 JSON）</li>
  *     <li>与 gateway 使用相同的 key 前缀，确保两个服务共享数据</li>
  *     <li>所有 Redis 操作都包含异常处理</li>
+ *     <li>支持按 key 一致性哈希分片到多个 Redis 节点（auth.redis.shards，未配置时使用默认 Redis）</li>
+ *     <li>token 映射、会话写入时由 Lua 脚本原子维护二级索引（{@link SaTokenIndex}），searchData 基于索引分页</li>
+ *     <li>update / updateObject 使用 SET ... KEEPTTL，单次往返且保留原 TTL（需要 Redis 6.0+）</li>
+ *     <li>token 值的读取与过期时间查询可路由到分片从库（auth.redis.replica-read），写入始终走主库</li>
+ *     <li>auth-service 负责扩容后的后台迁移，Gateway 只在宽限期内回查旧分片</li>
  * </ul>
  * </p>
  * 
@@ -38,26 +56,81 @@ public class SaTokenRedisConfig {
     private final StringRedisTemplate stringRedisTemplate;
 
     @Bean
-    public SaTokenDao saTokenDao() {
-        return new SaTokenDaoRedisImpl(stringRedisTemplate);
+    @ConfigurationProperties(prefix = "auth.redis")
+    public RedisShardProperties redisShardProperties() {
+        return new RedisShardProperties();
+    }
+
+    @Bean(destroyMethod = "destroy")
+    public RedisShardRouter redisShardRouter(RedisShardProperties redisShardProperties) {
+        return new RedisShardRouter(stringRedisTemplate, redisShardProperties, true, "satoken:*", "sa:roles:*",
+                "sa:role-members:*");
+    }
+
+    /**
+     * 会话编解码器：binary（默认，紧凑二进制 + 超过阈值压缩）或 json（历史格式），两种格式读取时互相兼容
+     */
+    @Bean
+    public SaSessionCodec saSessionCodec(ObjectMapper objectMapper,
+                                         @Value("${auth.session.codec:binary}") String codec,
+                                         @Value("${auth.session.compress-threshold:512}") int compressThreshold) {
+        if ("json".equalsIgnoreCase(codec)) {
+            return new JsonSaSessionCodec(objectMapper);
+        }
+        return new BinarySaSessionCodec(objectMapper, compressThreshold);
+    }
+
+    @Bean
+    public SaTokenIndex saTokenIndex(RedisShardRouter redisShardRouter) {
+        return new SaTokenIndex(redisShardRouter);
+    }
+
+    @Bean
+    public SaTokenDao saTokenDao(RedisShardRouter redisShardRouter, SaSessionCodec saSessionCodec,
+                                 SaTokenIndex saTokenIndex) {
+        return new SaTokenDaoRedisImpl(redisShardRouter, saSessionCodec, saTokenIndex);
+    }
+
+    /**
+     * Nacos 配置刷新后（auth.redis 已重新绑定）重建分片哈希环
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        try {
+            redisShardRouter(redisShardProperties()).reload(redisShardProperties());
+        } catch (Exception e) {
+            log.error("刷新 Redis 分片配置异常", e);
+        }
     }
 
     /**
-     * 手动实现 SaTokenDao，使用 Redis 存储
+     * 手动实现 SaTokenDao，使用 Redis 存储（按 key 一致性哈希分片）
      */
     @RequiredArgsConstructor
     public static class SaTokenDaoRedisImpl implements SaTokenDao {
 
-        private static final String TOKEN_PREFIX = "satoken:token:";
-        private static final String TOKEN_SESSION_PREFIX = "satoken:token-session:";
+        public static final String TOKEN_PREFIX = "satoken:token:";
+        public static final String TOKEN_SESSION_PREFIX = "satoken:token-session:";
 
-        private final StringRedisTemplate redisTemplate;
-        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final RedisShardRouter shardRouter;
+        private final SaSessionCodec sessionCodec;
+        private final SaTokenIndex tokenIndex;
 
         @Override
         public String get(String key) {
             try {
-                return redisTemplate.opsForValue().get(TOKEN_PREFIX + key);
+                final String redisKey = TOKEN_PREFIX + key;
+                RedisWriteBatch.Pending pending = pending(redisKey);
+                if (pending != null && pending.hasValue()) {
+                    return pending.value();
+                }
+                // token 读远多于写，优先走从库
+                String value = shardRouter.readReplica(redisKey, template -> template.opsForValue().get(redisKey));
+                if (value == null) {
+                    // 从库未命中时已回到主库确认；批次内记下"不存在"，随后写入 token 映射时无需再读旧值
+                    putDeleted(redisKey);
+                }
+                return value;
             } catch (Exception e) {
                 log.error("从 Redis 读取 token 异常, key={}", key, e);
                 return null;
@@ -67,11 +140,10 @@ public class SaTokenRedisConfig {
         @Override
         public void set(String key, String value, long timeout) {
             try {
-                if (timeout > 0) {
-                    redisTemplate.opsForValue().set(TOKEN_PREFIX + key, value, timeout, TimeUnit.SECONDS);
-                } else {
-                    redisTemplate.opsForValue().set(TOKEN_PREFIX + key, value);
-                }
+                String redisKey = TOKEN_PREFIX + key;
+                writeString(key, redisKey, value, timeout > 0 ? SaTokenIndex.Mode.EX : SaTokenIndex.Mode.PERSIST,
+                        timeout);
+                putPending(redisKey, value, timeout);
                 log.debug("向 Redis 写入 token, key={}, timeout={}", key, timeout);
             } catch (Exception e) {
                 log.error("向 Redis 写入 token 异常, key={}", key, e);
@@ -81,12 +153,10 @@ public class SaTokenRedisConfig {
         @Override
         public void update(String key, String value) {
             try {
-                Long expire = redisTemplate.getExpire(TOKEN_PREFIX + key);
-                if (expire != null && expire > 0) {
-                    redisTemplate.opsForValue().set(TOKEN_PREFIX + key, value, expire, TimeUnit.SECONDS);
-                } else {
-                    redisTemplate.opsForValue().set(TOKEN_PREFIX + key, value);
-                }
+                // SET ... KEEPTTL：一次往返完成更新，且不会因并发读写丢失 TTL
+                String redisKey = TOKEN_PREFIX + key;
+                writeString(key, redisKey, value, SaTokenIndex.Mode.KEEPTTL, 0);
+                putPending(redisKey, value, null);
                 log.debug("更新 Redis token, key={}", key);
             } catch (Exception e) {
                 log.error("更新 Redis token 异常, key={}", key, e);
@@ -96,7 +166,13 @@ public class SaTokenRedisConfig {
         @Override
         public void delete(String key) {
             try {
-                redisTemplate.delete(TOKEN_PREFIX + key);
+                String redisKey = TOKEN_PREFIX + key;
+                if (SaTokenIndex.KeyType.of(key) == SaTokenIndex.KeyType.TOKEN) {
+                    tokenIndex.deleteToken(redisKey, SaTokenIndex.KeyType.TOKEN.idOf(key));
+                    putDeleted(redisKey);
+                } else {
+                    shardRouter.delete(redisKey);
+                }
                 log.debug("从 Redis 删除 token, key={}", key);
             } catch (Exception e) {
                 log.error("从 Redis 删除 token 异常, key={}", key, e);
@@ -106,8 +182,7 @@ public class SaTokenRedisConfig {
         @Override
         public long getTimeout(String key) {
             try {
-                Long expire = redisTemplate.getExpire(TOKEN_PREFIX + key);
-                return expire != null ? expire : -1;
+                return readExpire(TOKEN_PREFIX + key, true);
             } catch (Exception e) {
                 log.error("获取 Redis token 过期时间异常, key={}", key, e);
                 return -1;
@@ -118,7 +193,13 @@ public class SaTokenRedisConfig {
         public void updateTimeout(String key, long timeout) {
             try {
                 if (timeout > 0) {
-                    redisTemplate.expire(TOKEN_PREFIX + key, timeout, TimeUnit.SECONDS);
+                    String redisKey = TOKEN_PREFIX + key;
+                    if (SaTokenIndex.KeyType.of(key) == SaTokenIndex.KeyType.TOKEN) {
+                        tokenIndex.expireToken(redisKey, SaTokenIndex.KeyType.TOKEN.idOf(key), timeout);
+                        putTimeout(redisKey, timeout);
+                    } else {
+                        expire(redisKey, timeout);
+                    }
                     log.debug("更新 Redis token 过期时间, key={}, timeout={}", key, timeout);
                 }
             } catch (Exception e) {
@@ -129,15 +210,18 @@ public class SaTokenRedisConfig {
         @Override
         public Object getObject(String key) {
             try {
-                String value = redisTemplate.opsForValue().get(TOKEN_SESSION_PREFIX + key);
-                if (!StringUtils.hasText(value)) {
+                String redisKey = TOKEN_SESSION_PREFIX + key;
+                RedisWriteBatch.Pending pending = pending(redisKey);
+                if (pending != null && pending.hasValue()) {
+                    return pending.value();
+                }
+                final byte[] rawKey = rawKey(redisKey);
+                byte[] value = shardRouter.read(redisKey,
+                        template -> template.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey)));
+                if (value == null) {
                     return null;
                 }
-                // 反序列化为 SaSession 对象
-                return objectMapper.readValue(value, SaSession.class);
-            } catch (JsonProcessingException e) {
-                log.error("从 Redis 反序列化 token 会话异常, key={}", key, e);
-                return null;
+                return decodeSession(key, value);
             } catch (Exception e) {
                 log.error("从 Redis 读取 token 会话异常, key={}", key, e);
                 return null;
@@ -147,20 +231,16 @@ public class SaTokenRedisConfig {
         @Override
         public void setObject(String key, Object value, long timeout) {
             try {
+                String redisKey = TOKEN_SESSION_PREFIX + key;
                 if (value == null) {
-                    redisTemplate.delete(TOKEN_SESSION_PREFIX + key);
+                    shardRouter.delete(redisKey);
                     return;
                 }
-                // 序列化为 JSON 字符串
-                String valueStr = objectMapper.writeValueAsString(value);
-                if (timeout > 0) {
-                    redisTemplate.opsForValue().set(TOKEN_SESSION_PREFIX + key, valueStr, timeout, TimeUnit.SECONDS);
-                } else {
-                    redisTemplate.opsForValue().set(TOKEN_SESSION_PREFIX + key, valueStr);
-                }
-                log.debug("向 Redis 写入 token 会话, key={}, timeout={}", key, timeout);
-            } catch (JsonProcessingException e) {
-                log.error("序列化 token 会话异常, key={}", key, e);
+                byte[] bytes = sessionCodec.encode((SaSession) value);
+                writeSession(key, redisKey, bytes, timeout > 0 ? SaTokenIndex.Mode.EX : SaTokenIndex.Mode.PERSIST,
+                        timeout);
+                putPending(redisKey, value, timeout);
+                log.debug("向 Redis 写入 token 会话, key={}, timeout={}, size={}", key, timeout, bytes.length);
             } catch (Exception e) {
                 log.error("向 Redis 写入 token 会话异常, key={}", key, e);
             }
@@ -169,21 +249,16 @@ public class SaTokenRedisConfig {
         @Override
         public void updateObject(String key, Object value) {
             try {
+                String redisKey = TOKEN_SESSION_PREFIX + key;
                 if (value == null) {
-                    redisTemplate.delete(TOKEN_SESSION_PREFIX + key);
+                    shardRouter.delete(redisKey);
                     return;
                 }
-                // 序列化为 JSON 字符串
-                String valueStr = objectMapper.writeValueAsString(value);
-                Long expire = redisTemplate.getExpire(TOKEN_SESSION_PREFIX + key);
-                if (expire != null && expire > 0) {
-                    redisTemplate.opsForValue().set(TOKEN_SESSION_PREFIX + key, valueStr, expire, TimeUnit.SECONDS);
-                } else {
-                    redisTemplate.opsForValue().set(TOKEN_SESSION_PREFIX + key, valueStr);
-                }
-                log.debug("更新 Redis token 会话, key={}", key);
-            } catch (JsonProcessingException e) {
-                log.error("序列化 token 会话异常, key={}", key, e);
+                // SET ... KEEPTTL：一次往返完成更新，且不会因并发读写丢失 TTL
+                byte[] bytes = sessionCodec.encode((SaSession) value);
+                writeSession(key, redisKey, bytes, SaTokenIndex.Mode.KEEPTTL, 0);
+                putPending(redisKey, value, null);
+                log.debug("更新 Redis token 会话, key={}, size={}", key, bytes.length);
             } catch (Exception e) {
                 log.error("更新 Redis token 会话异常, key={}", key, e);
             }
@@ -192,7 +267,14 @@ public class SaTokenRedisConfig {
         @Override
         public void deleteObject(String key) {
             try {
-                redisTemplate.delete(TOKEN_SESSION_PREFIX + key);
+                String redisKey = TOKEN_SESSION_PREFIX + key;
+                if (SaTokenIndex.KeyType.of(key) == SaTokenIndex.KeyType.SESSION) {
+                    tokenIndex.deleteAndUnindex(redisKey, SaTokenIndex.SESSIONS_BY_ACTIVITY,
+                            SaTokenIndex.KeyType.SESSION.idOf(key));
+                    putDeleted(redisKey);
+                } else {
+                    shardRouter.delete(redisKey);
+                }
                 log.debug("从 Redis 删除 token 会话, key={}", key);
             } catch (Exception e) {
                 log.error("从 Redis 删除 token 会话异常, key={}", key, e);
@@ -202,8 +284,7 @@ public class SaTokenRedisConfig {
         @Override
         public long getObjectTimeout(String key) {
             try {
-                Long expire = redisTemplate.getExpire(TOKEN_SESSION_PREFIX + key);
-                return expire != null ? expire : -1;
+                return readExpire(TOKEN_SESSION_PREFIX + key, false);
             } catch (Exception e) {
                 log.error("获取 Redis token 会话过期时间异常, key={}", key, e);
                 return -1;
@@ -214,7 +295,7 @@ public class SaTokenRedisConfig {
         public void updateObjectTimeout(String key, long timeout) {
             try {
                 if (timeout > 0) {
-                    redisTemplate.expire(TOKEN_SESSION_PREFIX + key, timeout, TimeUnit.SECONDS);
+                    expire(TOKEN_SESSION_PREFIX + key, timeout);
                     log.debug("更新 Redis token 会话过期时间, key={}, timeout={}", key, timeout);
                 }
             } catch (Exception e) {
@@ -225,16 +306,135 @@ public class SaTokenRedisConfig {
         @Override
         public java.util.List<String> searchData(String prefix, String keyword, int start, int size, boolean sortType) {
             try {
-                // 搜索功能：根据前缀和关键词搜索 token
-                // 由于 Redis String 操作不支持复杂搜索，这里返回空列表
-                // 如果需要搜索功能，可以使用 Redis Scan 命令或维护索引
+                // 基于二级索引按活跃时间分页：token 与 token-session 使用 token 活跃索引，session 使用会话活跃索引
                 log.debug("搜索 token 数据, prefix={}, keyword={}, start={}, size={}, sortType={}", 
                     prefix, keyword, start, size, sortType);
-                return new java.util.ArrayList<>();
+                SaTokenIndex.KeyType type = SaTokenIndex.KeyType.of(prefix);
+                if (type == null || type == SaTokenIndex.KeyType.LAST_ACTIVITY) {
+                    return new java.util.ArrayList<>();
+                }
+                String indexKey = type == SaTokenIndex.KeyType.SESSION
+                        ? SaTokenIndex.SESSIONS_BY_ACTIVITY : SaTokenIndex.TOKENS_BY_ACTIVITY;
+                String dataPrefix = (type == SaTokenIndex.KeyType.TOKEN ? TOKEN_PREFIX : TOKEN_SESSION_PREFIX) + prefix;
+                java.util.List<String> members = tokenIndex.search(indexKey, keyword, start, size, sortType,
+                        member -> dataPrefix + member);
+                java.util.List<String> keys = new java.util.ArrayList<>(members.size());
+                for (String member : members) {
+                    keys.add(prefix + member);
+                }
+                return keys;
             } catch (Exception e) {
                 log.error("搜索 token 数据异常, prefix={}, keyword={}", prefix, keyword, e);
                 return new java.util.ArrayList<>();
             }
         }
+
+        private SaSession decodeSession(String key, byte[] value) {
+            try {
+                return sessionCodec.decode(value);
+            } catch (Exception e) {
+                log.error("从 Redis 反序列化 token 会话异常, key={}", key, e);
+                return null;
+            }
+        }
+
+        /**
+         * 写入字符串值：token 映射同时维护用户索引，last-activity 同时刷新 token 活跃时间
+         */
+        private void writeString(String key, String redisKey, String value, SaTokenIndex.Mode mode, long timeout) {
+            SaTokenIndex.KeyType type = SaTokenIndex.KeyType.of(key);
+            if (type == SaTokenIndex.KeyType.TOKEN) {
+                tokenIndex.writeToken(redisKey, type.idOf(key), value, mode, timeout);
+            } else if (type == SaTokenIndex.KeyType.LAST_ACTIVITY) {
+                tokenIndex.writeAndTouch(redisKey, value.getBytes(StandardCharsets.UTF_8), mode, timeout,
+                        SaTokenIndex.TOKENS_BY_ACTIVITY, type.idOf(key), true);
+            } else {
+                writeBytes(redisKey, value.getBytes(StandardCharsets.UTF_8), expiration(mode, timeout));
+            }
+        }
+
+        /**
+         * 写入会话：账号会话同时刷新会话活跃索引
+         */
+        private void writeSession(String key, String redisKey, byte[] bytes, SaTokenIndex.Mode mode, long timeout) {
+            SaTokenIndex.KeyType type = SaTokenIndex.KeyType.of(key);
+            if (type == SaTokenIndex.KeyType.SESSION) {
+                tokenIndex.writeAndTouch(redisKey, bytes, mode, timeout,
+                        SaTokenIndex.SESSIONS_BY_ACTIVITY, type.idOf(key), false);
+            } else {
+                writeBytes(redisKey, bytes, expiration(mode, timeout));
+            }
+        }
+
+        private void writeBytes(String redisKey, final byte[] bytes, final Expiration expiration) {
+            final byte[] rawKey = rawKey(redisKey);
+            shardRouter.write(redisKey, connection -> connection.stringCommands()
+                    .set(rawKey, bytes, expiration, RedisStringCommands.SetOption.upsert()));
+        }
+
+        private void expire(String redisKey, long timeout) {
+            final byte[] rawKey = rawKey(redisKey);
+            shardRouter.write(redisKey, connection -> connection.keyCommands().expire(rawKey, timeout));
+            putTimeout(redisKey, timeout);
+        }
+
+        private void putTimeout(String redisKey, long timeout) {
+            RedisWriteBatch batch = shardRouter.currentBatch();
+            if (batch != null) {
+                batch.putTimeout(redisKey, timeout);
+            }
+        }
+
+        private void putDeleted(String redisKey) {
+            RedisWriteBatch batch = shardRouter.currentBatch();
+            if (batch != null) {
+                batch.putDeleted(redisKey);
+            }
+        }
+
+        /**
+         * 登录等批量写场景下，记录本批次写入的值，后续读取直接使用，无需再访问 Redis
+         */
+        private void putPending(String redisKey, Object value, Long timeout) {
+            RedisWriteBatch batch = shardRouter.currentBatch();
+            if (batch != null) {
+                batch.putValue(redisKey, value, timeout);
+            }
+        }
+
+        private RedisWriteBatch.Pending pending(String redisKey) {
+            RedisWriteBatch batch = shardRouter.currentBatch();
+            return batch != null ? batch.pending(redisKey) : null;
+        }
+
+        private static Expiration expiration(SaTokenIndex.Mode mode, long timeout) {
+            if (mode == SaTokenIndex.Mode.KEEPTTL) {
+                return Expiration.keepTtl();
+            }
+            return mode == SaTokenIndex.Mode.EX ? Expiration.seconds(timeout) : Expiration.persistent();
+        }
+
+        private static byte[] rawKey(String redisKey) {
+            return redisKey.getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 读取过期时间（秒），key 不存在时返回 -2，迁移期内回查旧分片
+         *
+         * @param fromReplica 是否优先读从库（未命中时回到主库）
+         */
+        private long readExpire(final String redisKey, boolean fromReplica) {
+            RedisWriteBatch.Pending pending = pending(redisKey);
+            if (pending != null && pending.ttlKnown()) {
+                return pending.ttlSeconds();
+            }
+            Function<StringRedisTemplate, Long> reader = template -> {
+                Long ttl = template.getExpire(redisKey);
+                // -2 表示 key 不存在，返回 null 以便回查主库 / 旧分片
+                return ttl != null && ttl == -2 ? null : ttl;
+            };
+            Long expire = fromReplica ? shardRouter.readReplica(redisKey, reader) : shardRouter.read(redisKey, reader);
+            return expire != null ? expire : -2;
+        }
     }
 }
@@ -0,0 +1,180 @@
+package com.zxx.learning.auth.config;
+
+import cn.dev33.satoken.stp.StpLogic;
+import cn.dev33.satoken.stp.StpUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxx.learning.common.auth.TokenRevocationKeys;
+import com.zxx.learning.common.dto.RevokeResult;
+import com.zxx.learning.common.redis.RedisShardRouter;
+import com.zxx.learning.common.satoken.SaTokenIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.zxx.learning.auth.config.SaTokenRedisConfig.SaTokenDaoRedisImpl.TOKEN_PREFIX;
+import static com.zxx.learning.auth.config.SaTokenRedisConfig.SaTokenDaoRedisImpl.TOKEN_SESSION_PREFIX;
+
+/**
+ * 会话批量吊销服务
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>通过 {@link SaTokenIndex} 的用户 token 索引找到全部 token，不扫描 Redis 键空间</li>
+ *     <li>token 映射、token 会话、活跃时间、账号会话及索引成员的删除全部通过 pipeline 发送，
+ *     每批用户每个分片只需一次往返</li>
+ *     <li>启用无状态 token 模式时同时写入按用户吊销记录（由 Gateway 同步时按 token 有效期清理）</li>
+ *     <li>每批吊销完成后通过 {@link TokenRevocationKeys#REVOCATION_CHANNEL} 广播，Gateway 立即丢弃本地认证状态</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SessionRevocationService {
+
+    /**
+     * 每批处理的用户数量
+     */
+    private static final int BATCH_SIZE = 1000;
+
+    private final RedisShardRouter shardRouter;
+    private final SaTokenIndex saTokenIndex;
+    private final RedisRoleStore redisRoleStore;
+    private final StatelessTokenService statelessTokenService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * 按角色吊销
+     *
+     * @return 吊销结果统计
+     */
+    public RevokeResult revokeByRole(String role) {
+        return revoke(redisRoleStore.getRoleMembers(role));
+    }
+
+    /**
+     * 批量吊销用户的全部会话与 token
+     *
+     * @param loginIds 登录ID列表
+     * @return 吊销结果统计
+     */
+    public RevokeResult revoke(Collection<String> loginIds) {
+        long start = System.currentTimeMillis();
+        Set<String> distinct = new LinkedHashSet<>();
+        if (loginIds != null) {
+            for (String loginId : loginIds) {
+                if (StringUtils.hasText(loginId)) {
+                    distinct.add(loginId.trim());
+                }
+            }
+        }
+
+        int tokenCount = 0;
+        List<String> batch = new ArrayList<>(Math.min(distinct.size(), BATCH_SIZE));
+        for (String loginId : distinct) {
+            batch.add(loginId);
+            if (batch.size() == BATCH_SIZE) {
+                tokenCount += revokeBatch(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            tokenCount += revokeBatch(batch);
+        }
+
+        long cost = System.currentTimeMillis() - start;
+        log.info("批量吊销会话完成, users={}, tokens={}, cost={}ms", distinct.size(), tokenCount, cost);
+
+        RevokeResult result = new RevokeResult();
+        result.setUsers(distinct.size());
+        result.setTokens(tokenCount);
+        result.setCost(cost);
+        return result;
+    }
+
+    private int revokeBatch(List<String> loginIds) {
+        StpLogic stpLogic = StpUtil.stpLogic;
+        Map<String, List<String>> userTokens = saTokenIndex.userTokens(loginIds);
+
+        int tokenCount = 0;
+        shardRouter.beginBatch();
+        try {
+            for (Map.Entry<String, List<String>> entry : userTokens.entrySet()) {
+                final String loginId = entry.getKey();
+                for (final String token : entry.getValue()) {
+                    tokenCount++;
+                    // token 映射与其索引成员在同一分片
+                    final byte[] tokenKey = bytes(TOKEN_PREFIX + stpLogic.splicingKeyTokenValue(token));
+                    final byte[] userIndexKey = bytes(SaTokenIndex.USER_TOKENS_PREFIX + loginId);
+                    final byte[] activityIndexKey = bytes(SaTokenIndex.TOKENS_BY_ACTIVITY);
+                    final byte[] expireIndexKey = bytes(SaTokenIndex.TOKENS_BY_ACTIVITY + SaTokenIndex.EXPIRE_SUFFIX);
+                    final byte[] member = bytes(token);
+                    shardRouter.write(TOKEN_PREFIX + stpLogic.splicingKeyTokenValue(token), connection -> {
+                        connection.keyCommands().del(tokenKey);
+                        connection.zSetCommands().zRem(userIndexKey, member);
+                        connection.zSetCommands().zRem(activityIndexKey, member);
+                        connection.zSetCommands().zRem(expireIndexKey, member);
+                        return null;
+                    });
+                    deleteKey(TOKEN_SESSION_PREFIX + stpLogic.splicingKeyTokenSession(token));
+                    deleteKey(TOKEN_PREFIX + stpLogic.splicingKeyLastActivityTime(token));
+                }
+                final String sessionKey = TOKEN_SESSION_PREFIX + stpLogic.splicingKeySession(loginId);
+                final byte[] rawSessionKey = bytes(sessionKey);
+                final byte[] sessionsIndexKey = bytes(SaTokenIndex.SESSIONS_BY_ACTIVITY);
+                final byte[] sessionsExpireKey = bytes(SaTokenIndex.SESSIONS_BY_ACTIVITY + SaTokenIndex.EXPIRE_SUFFIX);
+                final byte[] rawLoginId = bytes(loginId);
+                shardRouter.write(sessionKey, connection -> {
+                    connection.keyCommands().del(rawSessionKey);
+                    connection.zSetCommands().zRem(sessionsIndexKey, rawLoginId);
+                    connection.zSetCommands().zRem(sessionsExpireKey, rawLoginId);
+                    return null;
+                });
+            }
+        } finally {
+            shardRouter.flushBatch();
+        }
+
+        // 无状态 token：写入按用户吊销时间（仅启用无状态模式时）
+        long revokedAt = System.currentTimeMillis();
+        statelessTokenService.revokeLoginIds(loginIds, revokedAt);
+
+        publish(loginIds, revokedAt);
+        return tokenCount;
+    }
+
+    private void deleteKey(String redisKey) {
+        final byte[] rawKey = bytes(redisKey);
+        shardRouter.write(redisKey, connection -> connection.keyCommands().del(rawKey));
+    }
+
+    private void publish(List<String> loginIds, long revokedAt) {
+        try {
+            Map<String, Object> event = new HashMap<>();
+            event.put("loginIds", loginIds);
+            event.put("revokedAt", revokedAt);
+            redisTemplate.convertAndSend(TokenRevocationKeys.REVOCATION_CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            // 广播失败时 Gateway 仍会在下一次定时同步时生效
+            log.error("广播吊销事件异常, users={}", loginIds.size(), e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
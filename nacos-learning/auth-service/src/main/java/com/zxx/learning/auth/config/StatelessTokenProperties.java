@@ -0,0 +1,33 @@
+package com.zxx.learning.auth.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 无状态签名 token 配置（与 Gateway 保持一致）
+ *
+ * <p>配置前缀：auth.stateless，配置源头见 nacos-config-examples/auth-service-dev.yaml</p>
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "auth.stateless")
+public class StatelessTokenProperties {
+
+    /**
+     * 是否启用无状态 token 模式（默认关闭，仍使用 Sa-Token uuid + Redis）
+     */
+    private boolean enabled = false;
+
+    /**
+     * HMAC 签名密钥，auth-service 与 Gateway 必须一致，长度不少于 16
+     */
+    private String secret;
+
+    /**
+     * token 有效期，单位秒，默认 30 天
+     */
+    private long timeout = 2592000;
+}
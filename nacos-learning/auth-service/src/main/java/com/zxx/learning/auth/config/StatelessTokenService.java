@@ -0,0 +1,172 @@
+package com.zxx.learning.auth.config;
+
+import cn.dev33.satoken.context.SaHolder;
+import cn.dev33.satoken.stp.StpUtil;
+import com.zxx.learning.common.auth.SignedTokenCodec;
+import com.zxx.learning.common.auth.TokenClaims;
+import com.zxx.learning.common.auth.TokenRevocationKeys;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 无状态签名 token 服务
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>登录时签发自包含 token（loginId、角色、过期时间），Gateway 本地验签，不再每次请求读 Redis</li>
+ *     <li>登出/踢人通过吊销集合实现：单个 token 写入 {@link TokenRevocationKeys#REVOKED_TOKENS}，
+ *     按用户吊销写入 {@link TokenRevocationKeys#REVOKED_USERS}</li>
+ *     <li>Gateway 定时从 Redis 同步吊销集合到本地布隆过滤器 + 精确集合</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatelessTokenService {
+
+    private final StatelessTokenProperties properties;
+    private final StringRedisTemplate redisTemplate;
+
+    private SignedTokenCodec codec;
+
+    @PostConstruct
+    public void init() {
+        if (properties.isEnabled()) {
+            codec = new SignedTokenCodec(properties.getSecret());
+            log.info("已启用无状态签名 token 模式, timeout={}s", properties.getTimeout());
+        }
+    }
+
+    public boolean isEnabled() {
+        return codec != null;
+    }
+
+    /**
+     * token 有效期，单位秒
+     */
+    public long getTimeout() {
+        return properties.getTimeout();
+    }
+
+    /**
+     * 为用户签发无状态 token
+     *
+     * @param loginId 登录ID/用户名
+     * @param roles   角色列表
+     * @return token 字符串
+     */
+    public String issue(String loginId, List<String> roles) {
+        long now = System.currentTimeMillis();
+        TokenClaims claims = new TokenClaims();
+        claims.setJti(UUID.randomUUID().toString().replace("-", ""));
+        claims.setLoginId(loginId);
+        claims.setRoles(roles != null ? new ArrayList<>(roles) : new ArrayList<>());
+        claims.setIssuedAt(now);
+        claims.setExpireAt(properties.getTimeout() > 0 ? now + properties.getTimeout() * 1000 : 0);
+        return codec.encode(claims);
+    }
+
+    /**
+     * 解析当前请求携带的无状态 token
+     *
+     * @return 声明信息；未启用、未携带、验签失败、已过期或已吊销时返回 null
+     */
+    public TokenClaims currentClaims() {
+        if (!isEnabled()) {
+            return null;
+        }
+        String tokenValue = SaHolder.getRequest().getHeader(StpUtil.getTokenName());
+        if (!SignedTokenCodec.isSignedToken(tokenValue)) {
+            return null;
+        }
+        TokenClaims claims = codec.decode(tokenValue);
+        if (claims == null || claims.isExpired(System.currentTimeMillis()) || isRevoked(claims)) {
+            return null;
+        }
+        return claims;
+    }
+
+    /**
+     * 获取当前登录用户ID，优先解析无状态 token，其次读取 Sa-Token 会话
+     *
+     * @return 登录ID，未登录时返回 null
+     */
+    public String currentLoginId() {
+        TokenClaims claims = currentClaims();
+        if (claims != null) {
+            return claims.getLoginId();
+        }
+        return StpUtil.isLogin() ? StpUtil.getLoginIdAsString() : null;
+    }
+
+    /**
+     * 吊销单个 token（登出）
+     */
+    public void revoke(TokenClaims claims) {
+        long expireAt = claims.getExpireAt() > 0 ? claims.getExpireAt() : Long.MAX_VALUE;
+        try {
+            redisTemplate.opsForZSet().add(TokenRevocationKeys.REVOKED_TOKENS, claims.getJti(), expireAt);
+            log.debug("吊销无状态 token, loginId={}, jti={}", claims.getLoginId(), claims.getJti());
+        } catch (Exception e) {
+            log.error("吊销无状态 token 异常, loginId={}", claims.getLoginId(), e);
+        }
+    }
+
+    /**
+     * 吊销用户在当前时间之前签发的所有 token（踢人下线），未启用无状态模式时不写入
+     */
+    public void revokeLoginId(String loginId) {
+        if (!StringUtils.hasText(loginId)) {
+            return;
+        }
+        revokeLoginIds(Collections.singletonList(loginId.trim()), System.currentTimeMillis());
+    }
+
+    /**
+     * 批量吊销用户在 revokedAt 之前签发的所有 token，一次 HSET 多个字段。
+     * 吊销记录由启用了无状态模式的 Gateway 同步时按 token 有效期清理，未启用时不写入，避免记录只增不减
+     */
+    public void revokeLoginIds(Collection<String> loginIds, long revokedAt) {
+        if (!isEnabled() || loginIds == null || loginIds.isEmpty()) {
+            return;
+        }
+        Map<String, String> revokedUsers = new HashMap<>(loginIds.size() * 2);
+        for (String loginId : loginIds) {
+            revokedUsers.put(loginId, String.valueOf(revokedAt));
+        }
+        try {
+            redisTemplate.opsForHash().putAll(TokenRevocationKeys.REVOKED_USERS, revokedUsers);
+            log.debug("按用户吊销无状态 token, users={}", revokedUsers.size());
+        } catch (Exception e) {
+            log.error("按用户吊销无状态 token 异常, users={}", revokedUsers.size(), e);
+        }
+    }
+
+    private boolean isRevoked(TokenClaims claims) {
+        try {
+            if (redisTemplate.opsForZSet().score(TokenRevocationKeys.REVOKED_TOKENS, claims.getJti()) != null) {
+                return true;
+            }
+            Object revokedBefore = redisTemplate.opsForHash().get(TokenRevocationKeys.REVOKED_USERS, claims.getLoginId());
+            return revokedBefore != null && claims.getIssuedAt() <= Long.parseLong(revokedBefore.toString());
+        } catch (Exception e) {
+            log.error("检查无状态 token 吊销状态异常, loginId={}", claims.getLoginId(), e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.zxx.learning.auth.controller;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.zxx.learning.auth.config.RedisRoleStore;
+import com.zxx.learning.auth.config.SessionRevocationService;
+import com.zxx.learning.auth.config.StatelessTokenService;
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.RevokeRequest;
+import com.zxx.learning.common.dto.RevokeResult;
+import com.zxx.learning.common.satoken.SaTokenIndex;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 会话管理控制器（管理员）
+ * 基于 Sa-Token 会话二级索引查询在线用户与 token，不扫描 Redis 键空间
+ *
+ * 访问路径示例：
+ *  - GET  /api/auth/admin/sessions?keyword=&start=0&size=20
+ *  - GET  /api/auth/admin/sessions/{loginId}/tokens
+ *  - POST /api/auth/admin/kickout
+ *  - POST /api/auth/admin/revoke
+ *
+ * @author zxx
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/auth/admin")
+public class AdminSessionController {
+
+    private static final int MAX_PAGE_SIZE = 200;
+
+    @Resource
+    private SaTokenIndex saTokenIndex;
+
+    @Resource
+    private RedisRoleStore redisRoleStore;
+
+    @Resource
+    private StatelessTokenService statelessTokenService;
+
+    @Resource
+    private SessionRevocationService sessionRevocationService;
+
+    /**
+     * 在线用户列表（按最近活跃时间倒序）
+     * GET /api/auth/admin/sessions
+     */
+    @GetMapping("/sessions")
+    public ResponseEntity<?> listSessions(@RequestParam(required = false) String keyword,
+                                          @RequestParam(defaultValue = "0") int start,
+                                          @RequestParam(defaultValue = "20") int size) {
+        ResponseEntity<?> denied = requireAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<String> sessionIds = StpUtil.searchSessionId(keyword, Math.max(0, start), pageSize, false);
+
+        String sessionPrefix = StpUtil.stpLogic.splicingKeySession("");
+        List<Map<String, Object>> sessions = new ArrayList<>(sessionIds.size());
+        for (String sessionId : sessionIds) {
+            String loginId = sessionId.substring(sessionPrefix.length());
+            Map<String, Object> item = new HashMap<>();
+            item.put("loginId", loginId);
+            item.put("tokens", saTokenIndex.userTokens(loginId));
+            sessions.add(item);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("start", start);
+        data.put("size", pageSize);
+        data.put("sessions", sessions);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "查询成功");
+        result.put("data", data);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 查询指定用户的有效 token（token -> 过期时间戳，-1 表示永久）
+     * GET /api/auth/admin/sessions/{loginId}/tokens
+     */
+    @GetMapping("/sessions/{loginId}/tokens")
+    public ResponseEntity<?> listTokens(@PathVariable String loginId) {
+        ResponseEntity<?> denied = requireAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("loginId", loginId);
+        data.put("tokens", saTokenIndex.userTokens(loginId.trim()));
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "查询成功");
+        result.put("data", data);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 踢人下线（Sa-Token 会话 + 无状态 token）
+     * POST /api/auth/admin/kickout
+     */
+    @PostMapping("/kickout")
+    public ResponseEntity<?> kickout(@RequestBody KickoutRequest request) {
+        ResponseEntity<?> denied = requireAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        String loginId = request != null ? request.getLoginId() : null;
+        if (!StringUtils.hasText(loginId)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("loginId 不能为空"));
+        }
+        loginId = loginId.trim();
+        int tokenCount = saTokenIndex.userTokens(loginId).size();
+        StpUtil.kickout(loginId);
+        statelessTokenService.revokeLoginId(loginId);
+        log.info("管理员踢人下线, loginId={}, tokens={}", loginId, tokenCount);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("loginId", loginId);
+        data.put("tokens", tokenCount);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "踢人下线成功");
+        result.put("data", data);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 批量吊销会话（按用户列表和/或角色），吊销后广播到所有 Gateway 实例
+     * POST /api/auth/admin/revoke
+     */
+    @PostMapping("/revoke")
+    public ResponseEntity<?> revoke(@RequestBody RevokeRequest request) {
+        ResponseEntity<?> denied = requireAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        List<String> loginIds = new ArrayList<>();
+        if (request != null && request.getLoginIds() != null) {
+            loginIds.addAll(request.getLoginIds());
+        }
+        if (request != null && StringUtils.hasText(request.getRole())) {
+            loginIds.addAll(redisRoleStore.getRoleMembers(request.getRole().trim()));
+        }
+        if (loginIds.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("loginIds 与 role 不能同时为空"));
+        }
+        RevokeResult data = sessionRevocationService.revoke(loginIds);
+        log.info("管理员批量吊销会话, role={}, data={}", request.getRole(), data);
+        return ResponseEntity.ok(ApiResult.ok("吊销成功", data));
+    }
+
+    /**
+     * 校验当前用户是否为管理员（Gateway 也会按路径校验，这里再做一次兜底）
+     *
+     * @return 校验失败时的响应，通过时返回 null
+     */
+    private ResponseEntity<?> requireAdmin() {
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(error("请先登录"));
+        }
+        if (!redisRoleStore.getRoles(loginId).contains("admin")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(error("无权限访问，需要角色: admin"));
+        }
+        return null;
+    }
+
+    private Map<String, Object> error(String msg) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", false);
+        result.put("msg", msg);
+        return result;
+    }
+
+    @Data
+    public static class KickoutRequest {
+        private String loginId;
+    }
+}
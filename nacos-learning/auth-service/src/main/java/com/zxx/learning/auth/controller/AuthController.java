@@ -1,9 +1,19 @@
 package com.zxx.learning.auth.controller;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.zxx.learning.auth.config.LoginAttemptGuard;
 import com.zxx.learning.auth.config.RedisRoleStore;
 import com.zxx.learning.auth.config.RedisSkillStore;
+import com.zxx.learning.auth.config.StatelessTokenService;
 import com.zxx.learning.auth.feign.UserServiceFeign;
+import com.zxx.learning.common.auth.TokenClaims;
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.AuthUserInfo;
+import com.zxx.learning.common.dto.LoginRequest;
+import com.zxx.learning.common.dto.RegisterRequest;
+import com.zxx.learning.common.redis.RedisShardRouter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -11,11 +21,16 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * 认证控制器
@@ -24,6 +39,13 @@ import java.util.Map;
  * 访问路径示例：
  *  - POST /api/auth/login
  *  - POST /api/auth/register
+ *  - POST /api/auth/logout
+ *  - POST /api/auth/admin/roles/batch
+ *  - POST /api/auth/admin/skills/batch
+ *  - POST /api/auth/admin/skills/reindex
+ *  - GET  /api/auth/skill/search
+ *  - GET  /api/auth/skill/top
+ *  - GET  /api/auth/skill/suggest
  *
  * 后续访问受保护接口时，在请求头中携带：
  *  Authorization: {token}
@@ -35,6 +57,27 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    /**
+     * user-service 返回的未注册提示
+     */
+    private static final String USER_NOT_FOUND_MSG = "用户未注册";
+
+    /**
+     * 批量分配接口单次允许的最大用户数
+     */
+    private static final int MAX_BATCH_USERS = 10000;
+
+    /**
+     * 技能搜索单次最多的技能数量与每页条数
+     */
+    private static final int MAX_SEARCH_SKILLS = 20;
+    private static final int MAX_SEARCH_PAGE_SIZE = 200;
+
+    /**
+     * 热门技能 / 前缀补全单次最多返回的条数
+     */
+    private static final int MAX_SKILL_BROWSE_SIZE = 100;
+
     @Resource
     private RedisRoleStore redisRoleStore;
 
@@ -44,89 +87,146 @@ public class AuthController {
     @Resource
     private UserServiceFeign userServiceFeign;
 
+    @Resource
+    private StatelessTokenService statelessTokenService;
+
+    @Resource
+    private RedisShardRouter redisShardRouter;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private LoginAttemptGuard loginAttemptGuard;
+
+    @Resource
+    private Executor authRpcExecutor;
+
+    @Resource
+    private Executor authRedisExecutor;
+
+    /**
+     * 每次登录（含注册后自动登录）访问 Redis 的往返次数
+     */
+    private DistributionSummary loginRoundTrips;
+
+    @PostConstruct
+    public void initMetrics() {
+        loginRoundTrips = DistributionSummary.builder("auth.login.redis.round.trips")
+                .description("每次登录访问 Redis 的往返次数")
+                .register(meterRegistry);
+    }
+
     /**
      * 登录接口
      * 调用 user-service 校验用户名和密码，成功后创建 Sa-Token 会话并将角色写入 Redis。
+     * 近期失败次数过多的用户名 / IP 及已知未注册的用户名在调用 user-service 之前直接拒绝。
+     * Feign 调用与 Redis 写入分别在 authRpcExecutor / authRedisExecutor 中执行，不占用 Servlet 线程。
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
         String username = request != null ? request.getUsername() : null;
-        String password = request != null ? request.getPassword() : null;
+        final String password = request != null ? request.getPassword() : null;
 
         if (!StringUtils.hasText(username) || !StringUtils.hasText(password)) {
-            return ResponseEntity
+            return completed(ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
-                    .body(error("用户名和密码不能为空"));
+                    .body(error("用户名和密码不能为空")));
         }
 
-        Map<String, Object> userInfoMap;
+        final String loginUsername = username.trim();
+        final String clientIp = loginAttemptGuard.resolveClientIp(httpRequest);
+        LoginAttemptGuard.Verdict verdict = loginAttemptGuard.check(loginUsername, clientIp);
+        if (verdict == LoginAttemptGuard.Verdict.BLOCKED) {
+            log.info("登录失败次数过多，直接拒绝, username={}, ip={}", loginUsername, clientIp);
+            return completed(ResponseEntity
+                    .status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(error("登录失败次数过多，请稍后再试")));
+        }
+        if (verdict == LoginAttemptGuard.Verdict.UNKNOWN_USER) {
+            loginAttemptGuard.onFailure(loginUsername, clientIp, true);
+            return completed(ResponseEntity
+                    .status(HttpStatus.UNAUTHORIZED)
+                    .body(error(USER_NOT_FOUND_MSG)));
+        }
+
+        return CompletableFuture
+                .supplyAsync(() -> validateLogin(loginUsername, password, clientIp), authRpcExecutor)
+                .thenApplyAsync(outcome -> outcome.getError() != null
+                        ? outcome.getError()
+                        : completeLogin(loginUsername, outcome.getUserInfo()), authRedisExecutor);
+    }
+
+    /**
+     * 调用 user-service 校验用户名和密码（在 authRpcExecutor 中执行）
+     */
+    private UserServiceOutcome validateLogin(String username, String password, String clientIp) {
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("username", username);
-            requestBody.put("password", password);
+            LoginRequest requestBody = new LoginRequest();
+            requestBody.setUsername(username);
+            requestBody.setPassword(password);
             
-            Map<String, Object> response = userServiceFeign.validateLogin(requestBody);
+            ApiResult<AuthUserInfo> response = userServiceFeign.validateLogin(requestBody);
             
             if (response == null) {
-                return ResponseEntity
+                return UserServiceOutcome.failed(ResponseEntity
                         .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(error("用户服务无响应"));
+                        .body(error("用户服务无响应")));
             }
 
-            Object successObj = response.get("success");
-            boolean success = successObj instanceof Boolean && (Boolean) successObj;
-            String msg = (String) response.getOrDefault("msg", "用户服务调用失败");
-
-            if (!success) {
-                return ResponseEntity
-                        .status(HttpStatus.UNAUTHORIZED)
-                        .body(error(msg));
+            String msg = response.getMsg() != null ? response.getMsg() : "用户服务调用失败";
+
+            if (!response.isSuccess()) {
+                // user-service 密码哈希线程池繁忙，提示客户端稍后重试
+                boolean busy = response.isBusy();
+                if (!busy) {
+                    loginAttemptGuard.onFailure(username, clientIp, USER_NOT_FOUND_MSG.equals(msg));
+                }
+                HttpStatus status = busy ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.UNAUTHORIZED;
+                return UserServiceOutcome.failed(ResponseEntity
+                        .status(status)
+                        .body(error(msg)));
             }
 
-            Object dataObj = response.get("data");
-            if (!(dataObj instanceof Map)) {
-                return ResponseEntity
+            if (response.getData() == null) {
+                return UserServiceOutcome.failed(ResponseEntity
                         .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(error("用户服务返回数据格式不正确"));
+                        .body(error("用户服务返回数据格式不正确")));
             }
-            userInfoMap = (Map<String, Object>) dataObj;
+            return UserServiceOutcome.ok(response.getData());
         } catch (Exception e) {
             log.error("调用 user-service 校验登录失败, username={}", username, e);
-            return ResponseEntity
+            return UserServiceOutcome.failed(ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(error("用户服务异常，请稍后重试"));
+                    .body(error("用户服务异常，请稍后重试")));
         }
+    }
 
-        String usernameFromResponse = (String) userInfoMap.get("username");
-        if (!StringUtils.hasText(usernameFromResponse)) {
+    /**
+     * 校验通过后创建登录凭证（在 authRedisExecutor 中执行）
+     */
+    private ResponseEntity<?> completeLogin(String username, AuthUserInfo userInfo) {
+        if (!StringUtils.hasText(userInfo.getUsername())) {
             return ResponseEntity
                     .status(HttpStatus.UNAUTHORIZED)
-                    .body(error("用户未注册"));
+                    .body(error(USER_NOT_FOUND_MSG));
         }
         
-        Object statusObj = userInfoMap.get("status");
-        if (statusObj instanceof Number && ((Number) statusObj).intValue() == 0) {
+        if (userInfo.getStatus() != null && userInfo.getStatus() == 0) {
             return ResponseEntity
                     .status(HttpStatus.FORBIDDEN)
                     .body(error("用户已被禁用"));
         }
 
-        // 创建登录会话（在同步请求线程里，Sa-Token 能拿到上下文）
-        StpUtil.login(username);
-
-        // 将角色写入 Redis，供 Sa-Token 鉴权使用
-        String role = userInfoMap.get("role") != null ? String.valueOf(userInfoMap.get("role")) : "user";
+        String role = userInfo.getRole();
         if (!StringUtils.hasText(role)) {
             role = "user";
         }
-        redisRoleStore.addRole(username, role);
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("loginId", StpUtil.getLoginIdAsString());
-        data.put("token", StpUtil.getTokenValue());
-        data.put("tokenName", StpUtil.getTokenName());
-        data.put("expire", StpUtil.getTokenTimeout());
-        data.put("role", role);
+        loginAttemptGuard.onSuccess(username);
+
+        // 将角色写入 Redis（供 Sa-Token 鉴权使用），并创建登录会话或签发无状态 token
+        Map<String, Object> data = createLoginToken(username, role);
 
         log.info("用户登录成功, username={}, role={}, token={}", username, role, data.get("token"));
 
@@ -143,24 +243,25 @@ public class AuthController {
      * 说明：
      *  - 自注册场景：忽略前端传入的角色，统一使用 user；
      *  - 调用 user-service 完成真正的用户创建与密码加密；
-     *  - 注册成功后自动登录，并将角色写入 Redis。
+     *  - 注册成功后自动登录，并将角色写入 Redis；
+     *  - 与登录相同，Feign 调用与 Redis 写入在独立线程池中异步执行。
      */
     @PostMapping("/register")
-    public ResponseEntity<?> register(@RequestBody RegisterRequest request) {
-        String username = request != null ? request.getUsername() : null;
-        String password = request != null ? request.getPassword() : null;
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody RegisterRequest request) {
+        final String username = request != null ? request.getUsername() : null;
+        final String password = request != null ? request.getPassword() : null;
         String role = request != null ? request.getRole() : null;
-        List<String> skills = request != null ? request.getSkills() : null;
+        final List<String> skills = request != null ? request.getSkills() : null;
 
         if (!StringUtils.hasText(username)) {
-            return ResponseEntity
+            return completed(ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
-                    .body(error("用户名不能为空"));
+                    .body(error("用户名不能为空")));
         }
         if (!StringUtils.hasText(password)) {
-            return ResponseEntity
+            return completed(ResponseEntity
                     .status(HttpStatus.BAD_REQUEST)
-                    .body(error("密码不能为空"));
+                    .body(error("密码不能为空")));
         }
 
         // 自注册场景：强制设置为 user 角色，避免普通用户创建 admin
@@ -169,54 +270,68 @@ public class AuthController {
             registerRole = "user";
         }
 
-        Map<String, Object> userInfoMap;
+        final String finalRole = registerRole;
+        return CompletableFuture
+                .supplyAsync(() -> registerUser(username, password, finalRole), authRpcExecutor)
+                .thenApplyAsync(outcome -> outcome.getError() != null
+                        ? outcome.getError()
+                        : completeRegister(username, skills, outcome.getUserInfo()), authRedisExecutor);
+    }
+
+    /**
+     * 调用 user-service 创建用户（在 authRpcExecutor 中执行）
+     */
+    private UserServiceOutcome registerUser(String username, String password, String registerRole) {
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("username", username);
-            requestBody.put("password", password);
-            requestBody.put("role", registerRole);
+            RegisterRequest requestBody = new RegisterRequest();
+            requestBody.setUsername(username);
+            requestBody.setPassword(password);
+            requestBody.setRole(registerRole);
             
-            Map<String, Object> response = userServiceFeign.register(requestBody);
+            ApiResult<AuthUserInfo> response = userServiceFeign.register(requestBody);
             
             if (response == null) {
-                return ResponseEntity
+                return UserServiceOutcome.failed(ResponseEntity
                         .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(error("用户服务无响应"));
+                        .body(error("用户服务无响应")));
             }
 
-            Object successObj = response.get("success");
-            boolean success = successObj instanceof Boolean && (Boolean) successObj;
-            String msg = (String) response.getOrDefault("msg", "用户服务调用失败");
+            String msg = response.getMsg() != null ? response.getMsg() : "用户服务调用失败";
 
-            if (!success) {
-                return ResponseEntity
-                        .status(HttpStatus.BAD_REQUEST)
-                        .body(error(msg));
+            if (!response.isSuccess()) {
+                // user-service 密码哈希线程池繁忙，提示客户端稍后重试
+                HttpStatus status = response.isBusy()
+                        ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_REQUEST;
+                return UserServiceOutcome.failed(ResponseEntity
+                        .status(status)
+                        .body(error(msg)));
             }
 
-            Object dataObj = response.get("data");
-            if (!(dataObj instanceof Map)) {
-                return ResponseEntity
+            if (response.getData() == null) {
+                return UserServiceOutcome.failed(ResponseEntity
                         .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(error("用户服务返回数据格式不正确"));
+                        .body(error("用户服务返回数据格式不正确")));
             }
-            userInfoMap = (Map<String, Object>) dataObj;
+            return UserServiceOutcome.ok(response.getData());
         } catch (Exception e) {
             log.error("调用 user-service 注册用户失败, username={}", username, e);
-            return ResponseEntity
+            return UserServiceOutcome.failed(ResponseEntity
                     .status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(error("用户服务异常，请稍后重试"));
+                    .body(error("用户服务异常，请稍后重试")));
         }
+    }
 
-        // 注册成功后直接自动登录（在同步请求线程里，Sa-Token 能拿到上下文）
-        StpUtil.login(username);
+    /**
+     * 注册成功后分配技能并自动登录（在 authRedisExecutor 中执行）
+     */
+    private ResponseEntity<?> completeRegister(String username, List<String> skills, AuthUserInfo userInfo) {
+        loginAttemptGuard.onRegistered(username.trim());
 
         // 分配角色：以 user-service 返回为准
-        String assignedRole = userInfoMap.get("role") != null ? String.valueOf(userInfoMap.get("role")) : "user";
+        String assignedRole = userInfo.getRole();
         if (!StringUtils.hasText(assignedRole)) {
             assignedRole = "user";
         }
-        redisRoleStore.addRole(username, assignedRole);
 
         // 分配技能：如果指定了技能则添加到 Redis
         if (skills != null && !skills.isEmpty()) {
@@ -224,16 +339,12 @@ public class AuthController {
             log.info("为用户分配技能, username={}, skills={}", username, skills);
         }
 
-        log.info("用户注册成功, username={}, role={}, skills={}", username, assignedRole, skills);
-
-        Map<String, Object> data = new HashMap<>();
-        data.put("loginId", StpUtil.getLoginIdAsString());
-        data.put("token", StpUtil.getTokenValue());
-        data.put("tokenName", StpUtil.getTokenName());
-        data.put("expire", StpUtil.getTokenTimeout());
-        data.put("role", assignedRole);
+        // 注册成功后直接自动登录（同时写入角色）
+        Map<String, Object> data = createLoginToken(username, assignedRole);
         data.put("skills", skills != null ? skills : Collections.emptyList());
 
+        log.info("用户注册成功, username={}, role={}, skills={}", username, assignedRole, skills);
+
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
         result.put("msg", "注册并登录成功，已分配角色: " + assignedRole);
@@ -242,19 +353,49 @@ public class AuthController {
         return ResponseEntity.status(HttpStatus.CREATED).body(result);
     }
 
+    /**
+     * 登出接口（需要登录）
+     * POST /api/auth/logout
+     *
+     * 说明：
+     *  - Sa-Token 会话模式：注销 Redis 中的会话；
+     *  - 无状态 token 模式：将当前 token 写入吊销集合，Gateway 同步后拒绝该 token。
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout() {
+        TokenClaims claims = statelessTokenService.currentClaims();
+        String loginId;
+        if (claims != null) {
+            loginId = claims.getLoginId();
+            statelessTokenService.revoke(claims);
+        } else if (StpUtil.isLogin()) {
+            loginId = StpUtil.getLoginIdAsString();
+            StpUtil.logout();
+        } else {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(error("请先登录"));
+        }
+        log.info("用户登出成功, loginId={}", loginId);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "登出成功");
+        result.put("data", Collections.singletonMap("loginId", loginId));
+        return ResponseEntity.ok(result);
+    }
+
     /**
      * 添加技能接口（需要登录）
      * POST /api/auth/skill/add
      */
     @PostMapping("/skill/add")
     public ResponseEntity<?> addSkill(@RequestBody SkillRequest request) {
-        // 获取当前登录用户
-        if (!StpUtil.isLogin()) {
+        // 获取当前登录用户（兼容 Sa-Token 会话与无状态 token）
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(error("请先登录"));
         }
-        
-        String loginId = StpUtil.getLoginIdAsString();
         String skill = request != null ? request.getSkill() : null;
         List<String> skills = request != null ? request.getSkills() : null;
 
@@ -290,13 +431,12 @@ public class AuthController {
      */
     @GetMapping("/skill/list")
     public ResponseEntity<?> getSkills() {
-        // 获取当前登录用户
-        if (!StpUtil.isLogin()) {
+        // 获取当前登录用户（兼容 Sa-Token 会话与无状态 token）
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(error("请先登录"));
         }
-        
-        String loginId = StpUtil.getLoginIdAsString();
         List<String> skills = redisSkillStore.getSkills(loginId);
         
         Map<String, Object> result = new HashMap<>();
@@ -312,13 +452,12 @@ public class AuthController {
      */
     @DeleteMapping("/skill/remove")
     public ResponseEntity<?> removeSkill(@RequestBody SkillRequest request) {
-        // 获取当前登录用户
-        if (!StpUtil.isLogin()) {
+        // 获取当前登录用户（兼容 Sa-Token 会话与无状态 token）
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(error("请先登录"));
         }
-        
-        String loginId = StpUtil.getLoginIdAsString();
         String skill = request != null ? request.getSkill() : null;
 
         if (!StringUtils.hasText(skill)) {
@@ -342,13 +481,12 @@ public class AuthController {
      */
     @GetMapping("/skill/check")
     public ResponseEntity<?> checkSkill(@RequestParam String skill) {
-        // 获取当前登录用户
-        if (!StpUtil.isLogin()) {
+        // 获取当前登录用户（兼容 Sa-Token 会话与无状态 token）
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                     .body(error("请先登录"));
         }
-        
-        String loginId = StpUtil.getLoginIdAsString();
         boolean hasSkill = redisSkillStore.hasSkill(loginId, skill);
         
         Map<String, Object> result = new HashMap<>();
@@ -361,6 +499,249 @@ public class AuthController {
         return ResponseEntity.ok(result);
     }
 
+    /**
+     * 热门技能排行（需要登录）
+     * GET /api/auth/skill/top?limit=10
+     */
+    @GetMapping("/skill/top")
+    public ResponseEntity<?> topSkills(@RequestParam(defaultValue = "10") int limit) {
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(error("请先登录"));
+        }
+        Map<String, Long> skills = redisSkillStore.topSkills(Math.max(1, Math.min(limit, MAX_SKILL_BROWSE_SIZE)));
+        return skillBrowseResult(skills);
+    }
+
+    /**
+     * 技能名称前缀补全（需要登录）
+     * GET /api/auth/skill/suggest?prefix=ja&limit=10
+     */
+    @GetMapping("/skill/suggest")
+    public ResponseEntity<?> suggestSkills(@RequestParam String prefix,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(error("请先登录"));
+        }
+        if (!StringUtils.hasText(prefix)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("请提供技能名称前缀"));
+        }
+        Map<String, Long> skills = redisSkillStore.suggestSkills(prefix, Math.max(1, Math.min(limit, MAX_SKILL_BROWSE_SIZE)));
+        return skillBrowseResult(skills);
+    }
+
+    /**
+     * 技能列表响应：[{"skill": "java", "users": 12}, ...]，保持存储层返回的顺序
+     */
+    private ResponseEntity<?> skillBrowseResult(Map<String, Long> skills) {
+        List<Map<String, Object>> items = new ArrayList<>(skills.size());
+        for (Map.Entry<String, Long> entry : skills.entrySet()) {
+            Map<String, Object> item = new HashMap<>();
+            item.put("skill", entry.getKey());
+            item.put("users", entry.getValue());
+            items.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "查询成功");
+        result.put("data", items);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 按技能搜索用户（需要登录）
+     * GET /api/auth/skill/search?skills=java,spring&mode=all&cursor=&size=20
+     *
+     * mode=all 同时拥有全部技能，mode=any 拥有任一技能；翻页时把上一页返回的 nextCursor 作为 cursor 传入
+     */
+    @GetMapping("/skill/search")
+    public ResponseEntity<?> searchBySkills(@RequestParam List<String> skills,
+                                            @RequestParam(defaultValue = "all") String mode,
+                                            @RequestParam(required = false) String cursor,
+                                            @RequestParam(defaultValue = "20") int size) {
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(error("请先登录"));
+        }
+        if (skills.isEmpty() || skills.size() > MAX_SEARCH_SKILLS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("请提供 1 ~ " + MAX_SEARCH_SKILLS + " 个技能"));
+        }
+        if (!"all".equalsIgnoreCase(mode) && !"any".equalsIgnoreCase(mode)) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("mode 只能为 all 或 any"));
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_SEARCH_PAGE_SIZE));
+        RedisSkillStore.SearchResult page = redisSkillStore.searchUsers(
+                skills, "all".equalsIgnoreCase(mode), StringUtils.hasText(cursor) ? cursor : null, pageSize);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("users", page.getUsers());
+        data.put("total", page.getTotal());
+        data.put("nextCursor", page.getNextCursor());
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "查询成功");
+        result.put("data", data);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 批量分配角色（管理员）
+     * POST /api/auth/admin/roles/batch
+     *
+     * 请求体：{"assignments": {"zhangsan": ["user"], "lisi": ["user", "admin"]}}
+     */
+    @PostMapping("/admin/roles/batch")
+    public ResponseEntity<?> batchAssignRoles(@RequestBody BatchAssignRequest request) {
+        ResponseEntity<?> invalid = checkBatchAssign(request);
+        if (invalid != null) {
+            return invalid;
+        }
+        int users = redisRoleStore.addRolesBatch(request.getAssignments());
+        log.info("管理员批量分配角色, users={}", users);
+        return batchAssignResult(users);
+    }
+
+    /**
+     * 批量分配技能（管理员）
+     * POST /api/auth/admin/skills/batch
+     *
+     * 请求体：{"assignments": {"zhangsan": ["java", "spring"], "lisi": ["python"]}}
+     */
+    @PostMapping("/admin/skills/batch")
+    public ResponseEntity<?> batchAssignSkills(@RequestBody BatchAssignRequest request) {
+        ResponseEntity<?> invalid = checkBatchAssign(request);
+        if (invalid != null) {
+            return invalid;
+        }
+        int users = redisSkillStore.addSkillsBatch(request.getAssignments());
+        log.info("管理员批量分配技能, users={}", users);
+        return batchAssignResult(users);
+    }
+
+    /**
+     * 根据现有用户技能重建技能倒排索引（管理员）
+     * POST /api/auth/admin/skills/reindex
+     */
+    @PostMapping("/admin/skills/reindex")
+    public ResponseEntity<?> reindexSkills() {
+        ResponseEntity<?> denied = requireAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        int users = redisSkillStore.rebuildIndex();
+        log.info("管理员重建技能倒排索引, users={}", users);
+        return batchAssignResult(users);
+    }
+
+    /**
+     * 批量分配的权限与参数校验（Gateway 也会按路径校验 admin 角色，这里再做一次兜底）
+     *
+     * @return 校验失败时的响应，通过时返回 null
+     */
+    private ResponseEntity<?> checkBatchAssign(BatchAssignRequest request) {
+        ResponseEntity<?> denied = requireAdmin();
+        if (denied != null) {
+            return denied;
+        }
+        if (request == null || request.getAssignments() == null || request.getAssignments().isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("assignments 不能为空"));
+        }
+        if (request.getAssignments().size() > MAX_BATCH_USERS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(error("单次最多分配 " + MAX_BATCH_USERS + " 个用户"));
+        }
+        return null;
+    }
+
+    /**
+     * 校验当前用户是否为管理员（Gateway 也会按路径校验 admin 角色，这里再做一次兜底）
+     *
+     * @return 校验失败时的响应，通过时返回 null
+     */
+    private ResponseEntity<?> requireAdmin() {
+        String loginId = statelessTokenService.currentLoginId();
+        if (loginId == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(error("请先登录"));
+        }
+        if (!redisRoleStore.getRoles(loginId).contains("admin")) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(error("无权限访问，需要角色: admin"));
+        }
+        return null;
+    }
+
+    private ResponseEntity<?> batchAssignResult(int users) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("users", users);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("msg", "分配成功");
+        result.put("data", data);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 写入角色并创建登录凭证
+     * 说明：
+     *  - 默认模式：调用 StpUtil.login 创建 Redis 会话（在 authRedisExecutor 中执行，请求上下文由 TaskDecorator 传递）；
+     *  - 无状态模式：签发包含 loginId、角色、过期时间的签名 token，不写 Redis 会话；
+     *  - 角色、token、会话的写入在同一个写批次中，结束时按分片各用一次 pipeline 提交。
+     */
+    private Map<String, Object> createLoginToken(String loginId, String role) {
+        Map<String, Object> data = new HashMap<>();
+        redisShardRouter.beginBatch();
+        try {
+            redisRoleStore.addRole(loginId, role);
+            if (statelessTokenService.isEnabled()) {
+                data.put("loginId", loginId);
+                data.put("token", statelessTokenService.issue(loginId, Collections.singletonList(role)));
+                data.put("tokenName", StpUtil.getTokenName());
+                data.put("expire", statelessTokenService.getTimeout());
+            } else {
+                StpUtil.login(loginId);
+                data.put("loginId", StpUtil.getLoginIdAsString());
+                data.put("token", StpUtil.getTokenValue());
+                data.put("tokenName", StpUtil.getTokenName());
+                data.put("expire", StpUtil.getTokenTimeout());
+            }
+        } catch (RuntimeException | Error e) {
+            discardBatch(e);
+            throw e;
+        }
+        int roundTrips = redisShardRouter.flushBatch();
+        loginRoundTrips.record(roundTrips);
+        log.debug("登录 Redis 往返次数, loginId={}, roundTrips={}", loginId, roundTrips);
+        data.put("role", role);
+        return data;
+    }
+
+    /**
+     * 登录失败时丢弃写批次，不提交已缓存的部分写入；丢弃过程中的异常附加到原异常上
+     */
+    private void discardBatch(Throwable cause) {
+        try {
+            redisShardRouter.discardBatch();
+        } catch (RuntimeException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private static CompletableFuture<ResponseEntity<?>> completed(ResponseEntity<?> response) {
+        return CompletableFuture.completedFuture(response);
+    }
+
     private Map<String, Object> error(String msg) {
         Map<String, Object> result = new HashMap<>();
         result.put("success", false);
@@ -369,44 +750,45 @@ public class AuthController {
     }
 
     /**
-     * 登录请求参数
+     * user-service 调用结果：失败时为直接返回的响应，成功时为用户信息
      */
     @Data
-    public static class LoginRequest {
-        private String username;
-        private String password;
+    private static class UserServiceOutcome {
+        private final ResponseEntity<?> error;
+        private final AuthUserInfo userInfo;
+
+        static UserServiceOutcome ok(AuthUserInfo userInfo) {
+            return new UserServiceOutcome(null, userInfo);
+        }
+
+        static UserServiceOutcome failed(ResponseEntity<?> error) {
+            return new UserServiceOutcome(error, null);
+        }
     }
 
     /**
-     * 注册请求参数
+     * 技能请求参数
      */
     @Data
-    public static class RegisterRequest {
-        private String username;
-        private String password;
+    public static class SkillRequest {
         /**
-         * 角色（可选），如果不指定则默认分配 "user" 角色
-         * 可选值：user, admin
+         * 单个技能名称（与 skills 二选一）
          */
-        private String role;
+        private String skill;
         /**
-         * 技能列表（可选），例如 ["java", "python", "spring"]
+         * 技能列表（与 skill 二选一）
          */
         private List<String> skills;
     }
 
     /**
-     * 技能请求参数
+     * 批量分配请求参数
      */
     @Data
-    public static class SkillRequest {
+    public static class BatchAssignRequest {
         /**
-         * 单个技能名称（与 skills 二选一）
-         */
-        private String skill;
-        /**
-         * 技能列表（与 skill 二选一）
+         * loginId -> 角色或技能列表
          */
-        private List<String> skills;
+        private Map<String, List<String>> assignments;
     }
 }
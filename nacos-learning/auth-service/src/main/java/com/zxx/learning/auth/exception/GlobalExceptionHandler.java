@@ -8,6 +8,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 全局异常处理器
@@ -30,6 +31,17 @@ public class GlobalExceptionHandler {
                 .body(error(ex.getMessage() != null ? ex.getMessage() : "参数错误"));
     }
 
+    /**
+     * 处理异步线程池已满（登录 / 注册高峰）
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, Object>> handleRejectedExecutionException(RejectedExecutionException ex) {
+        log.warn("异步线程池已满: {}", ex.getMessage());
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(error("服务繁忙，请稍后重试"));
+    }
+
     /**
      * 处理业务异常
      */
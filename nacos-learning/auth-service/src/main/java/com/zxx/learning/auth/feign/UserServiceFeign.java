@@ -1,15 +1,18 @@
 package com.zxx.learning.auth.feign;
 
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.AuthUserInfo;
+import com.zxx.learning.common.dto.LoginRequest;
+import com.zxx.learning.common.dto.RegisterRequest;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
-import java.util.Map;
-
 /**
  * User Service Feign 客户端
  * 
  * 调用 user-service 的内部接口进行用户认证相关操作。
+ * 请求与响应使用 nacos-common 中的类型化 DTO，由 Jackson 直接从响应流反序列化。
  * 
  * @author zxx
  */
@@ -20,17 +23,17 @@ public interface UserServiceFeign {
      * 用户登录校验
      * 
      * @param request 登录请求参数 {username, password}
-     * @return 响应结果 {success: boolean, msg: String, data: {id, username, role, status}}
+     * @return 响应结果 {success, msg, busy, data: {id, username, role, status}}
      */
     @PostMapping("/internal/validate-login")
-    Map<String, Object> validateLogin(@RequestBody Map<String, Object> request);
+    ApiResult<AuthUserInfo> validateLogin(@RequestBody LoginRequest request);
 
     /**
      * 用户注册
      * 
      * @param request 注册请求参数 {username, password, role}
-     * @return 响应结果 {success: boolean, msg: String, data: {id, username, role, status}}
+     * @return 响应结果 {success, msg, busy, data: {id, username, role, status}}
      */
     @PostMapping("/internal/register")
-    Map<String, Object> register(@RequestBody Map<String, Object> request);
+    ApiResult<AuthUserInfo> register(@RequestBody RegisterRequest request);
 }
@@ -8,6 +8,6 @@ CREATE TABLE `merchant` (
   `address` VARCHAR(200) COMMENT '商家地址',
   `status` INT DEFAULT 1 COMMENT '状态：1-正常，0-禁用',
   `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  `update_time` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间（毫秒精度，用作 ETag）',
   PRIMARY KEY (`id`)
 ) COMMENT='商家表';
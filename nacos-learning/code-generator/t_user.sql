@@ -7,7 +7,7 @@ CREATE TABLE `t_user` (
   `email` VARCHAR(100) COMMENT '邮箱',
   `status` INT NOT NULL DEFAULT 1 COMMENT '状态：1-正常，0-禁用',
   `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '创建时间',
-  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP COMMENT '更新时间',
+  `update_time` DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3) COMMENT '更新时间（毫秒精度，用作 ETag）',
   PRIMARY KEY (`id`),
   UNIQUE KEY `uk_username` (`username`)
 ) COMMENT='用户表（认证与权限）';
@@ -0,0 +1,9 @@
+-- 用户变更发件箱（变更流）：与 t_user 的修改在同一事务中写入，seq 单调递增，供其他服务增量同步
+CREATE TABLE `t_user_change` (
+  `seq` BIGINT NOT NULL AUTO_INCREMENT COMMENT '变更序号',
+  `user_id` BIGINT NOT NULL COMMENT '用户ID',
+  `op` VARCHAR(16) NOT NULL COMMENT '操作：CREATE/UPDATE/DISABLE/DELETE',
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '变更时间',
+  PRIMARY KEY (`seq`),
+  KEY `idx_create_time` (`create_time`)
+) COMMENT='用户变更发件箱';
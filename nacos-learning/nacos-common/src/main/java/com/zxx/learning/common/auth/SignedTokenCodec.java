@@ -0,0 +1,164 @@
+package com.zxx.learning.common.auth;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 无状态签名 token 编解码器（HMAC-SHA256）
+ *
+ * <p>token 格式：{@code st.<payload>.<signature>}，两段均为 Base64URL（无填充）。
+ * payload 为紧凑二进制：版本号、jti、loginId、角色列表、签发时间、过期时间。</p>
+ *
+ * <p>auth-service 负责签发，Gateway 使用相同密钥本地验签，因此两端必须共用本类。</p>
+ *
+ * @author zxx
+ */
+public class SignedTokenCodec {
+
+    /**
+     * 无状态 token 前缀，用于与 Sa-Token 的 uuid token 区分
+     */
+    public static final String PREFIX = "st.";
+
+    private static final byte VERSION = 1;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    /**
+     * 角色数量以单字节写入 payload，超过时拒绝签发
+     */
+    public static final int MAX_ROLES = 255;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final SecretKeySpec keySpec;
+
+    /**
+     * Mac 非线程安全，按线程缓存
+     */
+    private final ThreadLocal<Mac> macHolder;
+
+    public SignedTokenCodec(String secret) {
+        if (secret == null || secret.length() < 16) {
+            throw new IllegalArgumentException("无状态 token 签名密钥长度不能少于 16 个字符");
+        }
+        this.keySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.macHolder = ThreadLocal.withInitial(this::newMac);
+    }
+
+    /**
+     * 判断 token 值是否为无状态签名 token
+     */
+    public static boolean isSignedToken(String tokenValue) {
+        return tokenValue != null && tokenValue.startsWith(PREFIX);
+    }
+
+    /**
+     * 将声明编码并签名为 token 字符串
+     *
+     * @throws IllegalArgumentException 角色数量超过 {@link #MAX_ROLES}
+     */
+    public String encode(TokenClaims claims) {
+        String payload = ENCODER.encodeToString(writePayload(claims));
+        String signature = ENCODER.encodeToString(sign(payload));
+        return PREFIX + payload + "." + signature;
+    }
+
+    /**
+     * 验签并解码 token
+     *
+     * @param tokenValue token 字符串
+     * @return 声明信息；格式错误或签名不匹配时返回 null（不校验过期，由调用方判断）
+     */
+    public TokenClaims decode(String tokenValue) {
+        if (!isSignedToken(tokenValue)) {
+            return null;
+        }
+        int dot = tokenValue.lastIndexOf('.');
+        if (dot <= PREFIX.length()) {
+            return null;
+        }
+        String payload = tokenValue.substring(PREFIX.length(), dot);
+        try {
+            byte[] expected = sign(payload);
+            byte[] actual = DECODER.decode(tokenValue.substring(dot + 1));
+            // 常量时间比较，避免时序攻击
+            if (!MessageDigest.isEqual(expected, actual)) {
+                return null;
+            }
+            return readPayload(DECODER.decode(payload));
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] sign(String payload) {
+        return macHolder.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(keySpec);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("初始化 HMAC 失败", e);
+        }
+    }
+
+    private byte[] writePayload(TokenClaims claims) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(96);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeUTF(claims.getJti() != null ? claims.getJti() : "");
+            out.writeUTF(claims.getLoginId() != null ? claims.getLoginId() : "");
+            List<String> roles = claims.getRoles();
+            int roleCount = roles != null ? roles.size() : 0;
+            if (roleCount > MAX_ROLES) {
+                // 单字节计数会按 256 取模，之后的字段全部错位而签名仍然有效
+                throw new IllegalArgumentException("token 角色数量不能超过 " + MAX_ROLES + ", actual=" + roleCount);
+            }
+            out.writeByte(roleCount);
+            for (int i = 0; i < roleCount; i++) {
+                out.writeUTF(roles.get(i));
+            }
+            out.writeLong(claims.getIssuedAt());
+            out.writeLong(claims.getExpireAt());
+        } catch (IOException e) {
+            throw new IllegalStateException("编码 token 声明失败", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private TokenClaims readPayload(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                return null;
+            }
+            TokenClaims claims = new TokenClaims();
+            claims.setJti(in.readUTF());
+            claims.setLoginId(in.readUTF());
+            int roleCount = in.readUnsignedByte();
+            List<String> roles = new ArrayList<>(roleCount);
+            for (int i = 0; i < roleCount; i++) {
+                roles.add(in.readUTF());
+            }
+            claims.setRoles(roles);
+            claims.setIssuedAt(in.readLong());
+            claims.setExpireAt(in.readLong());
+            return claims;
+        }
+    }
+}
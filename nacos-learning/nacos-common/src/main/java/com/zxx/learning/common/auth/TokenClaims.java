@@ -0,0 +1,49 @@
+package com.zxx.learning.common.auth;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 无状态签名 token 中携带的声明信息
+ *
+ * <p>由 auth-service 签发，Gateway 本地验签后直接使用，不再访问 Redis。</p>
+ *
+ * @author zxx
+ */
+@Data
+public class TokenClaims {
+
+    /**
+     * token 唯一标识，用于吊销
+     */
+    private String jti;
+
+    /**
+     * 登录ID/用户名
+     */
+    private String loginId;
+
+    /**
+     * 角色列表，例如 user、admin
+     */
+    private List<String> roles = new ArrayList<>();
+
+    /**
+     * 签发时间（毫秒时间戳）
+     */
+    private long issuedAt;
+
+    /**
+     * 过期时间（毫秒时间戳）
+     */
+    private long expireAt;
+
+    /**
+     * 判断 token 在指定时间点是否已过期
+     */
+    public boolean isExpired(long now) {
+        return expireAt > 0 && now >= expireAt;
+    }
+}
@@ -0,0 +1,31 @@
+package com.zxx.learning.common.auth;
+
+/**
+ * 无状态 token 吊销相关的 Redis key 定义
+ *
+ * <p>auth-service 负责写入，Gateway 定时同步到本地吊销过滤器，两端共用同一组 key。
+ * 吊销时同时通过 {@link #REVOCATION_CHANNEL} 广播，Gateway 实时生效。</p>
+ *
+ * @author zxx
+ */
+public final class TokenRevocationKeys {
+
+    /**
+     * 已吊销 token：ZSet，member 为 jti，score 为 token 过期时间（毫秒），过期后可清理
+     */
+    public static final String REVOKED_TOKENS = "sa:revoked:tokens";
+
+    /**
+     * 按用户吊销：Hash，field 为 loginId，value 为吊销时间（毫秒），早于该时间签发的 token 全部失效
+     */
+    public static final String REVOKED_USERS = "sa:revoked:users";
+
+    /**
+     * 吊销事件广播频道（Redis Pub/Sub），消息为 {@code {"loginIds": [...], "revokedAt": 毫秒}}，
+     * Gateway 收到后立即丢弃这些用户的本地认证状态，无需等待下一次定时同步
+     */
+    public static final String REVOCATION_CHANNEL = "sa:revocation";
+
+    private TokenRevocationKeys() {
+    }
+}
@@ -0,0 +1,49 @@
+package com.zxx.learning.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 服务间调用的统一响应：{success, msg, data}
+ *
+ * <p>与各服务对外返回的 Map 结构一致，内部 Feign 接口用它直接由 Jackson 反序列化为具体类型，
+ * 调用方不再对嵌套 Map 做 instanceof 判断和强制转换。</p>
+ *
+ * @param <T> data 类型
+ * @author zxx
+ */
+@Data
+public class ApiResult<T> {
+
+    private boolean success;
+
+    private String msg;
+
+    private T data;
+
+    /**
+     * 服务繁忙（如密码哈希线程池已满），调用方应提示稍后重试；仅在为 true 时输出
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    private boolean busy;
+
+    public static <T> ApiResult<T> ok(String msg, T data) {
+        ApiResult<T> result = new ApiResult<>();
+        result.setSuccess(true);
+        result.setMsg(msg);
+        result.setData(data);
+        return result;
+    }
+
+    public static <T> ApiResult<T> fail(String msg) {
+        ApiResult<T> result = new ApiResult<>();
+        result.setMsg(msg);
+        return result;
+    }
+
+    public static <T> ApiResult<T> busy(String msg) {
+        ApiResult<T> result = fail(msg);
+        result.setBusy(true);
+        return result;
+    }
+}
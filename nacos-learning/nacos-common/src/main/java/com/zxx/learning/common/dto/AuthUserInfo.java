@@ -0,0 +1,26 @@
+package com.zxx.learning.common.dto;
+
+import lombok.Data;
+
+/**
+ * 认证结果中返回的用户关键信息
+ *
+ * @author zxx
+ */
+@Data
+public class AuthUserInfo {
+
+    private Long id;
+
+    private String username;
+
+    /**
+     * 角色：user / admin
+     */
+    private String role;
+
+    /**
+     * 状态：1-正常，0-禁用
+     */
+    private Integer status;
+}
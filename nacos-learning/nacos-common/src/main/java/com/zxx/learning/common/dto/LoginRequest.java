@@ -0,0 +1,19 @@
+package com.zxx.learning.common.dto;
+
+import lombok.Data;
+
+/**
+ * 内部登录校验请求（auth-service -> user-service）
+ *
+ * @author zxx
+ */
+@Data
+public class LoginRequest {
+
+    private String username;
+
+    /**
+     * 明文密码，由 user-service 做 BCrypt 校验
+     */
+    private String password;
+}
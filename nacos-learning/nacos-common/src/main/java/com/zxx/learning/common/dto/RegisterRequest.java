@@ -0,0 +1,34 @@
+package com.zxx.learning.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 注册请求：auth-service 对外注册接口与 auth-service -> user-service 内部注册共用
+ *
+ * @author zxx
+ */
+@Data
+public class RegisterRequest {
+
+    private String username;
+
+    /**
+     * 明文密码，由服务端使用 BCrypt 进行加密存储
+     */
+    private String password;
+
+    /**
+     * 角色，可选：user / admin
+     * 自注册场景由 auth-service 强制为 user
+     */
+    private String role;
+
+    /**
+     * 技能列表（可选），例如 ["java", "python", "spring"]；只在 auth-service 中使用，不传给 user-service
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<String> skills;
+}
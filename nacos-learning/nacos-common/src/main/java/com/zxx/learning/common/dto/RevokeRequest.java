@@ -0,0 +1,28 @@
+package com.zxx.learning.common.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量吊销会话请求：POST /api/auth/admin/revoke，loginIds 与 role 至少填一个
+ *
+ * @author zxx
+ */
+@Data
+public class RevokeRequest {
+
+    private List<String> loginIds = new ArrayList<>();
+
+    /**
+     * 按角色吊销该角色下全部用户
+     */
+    private String role;
+
+    public static RevokeRequest of(List<String> loginIds) {
+        RevokeRequest request = new RevokeRequest();
+        request.setLoginIds(loginIds);
+        return request;
+    }
+}
@@ -0,0 +1,27 @@
+package com.zxx.learning.common.dto;
+
+import lombok.Data;
+
+/**
+ * 批量吊销会话结果
+ *
+ * @author zxx
+ */
+@Data
+public class RevokeResult {
+
+    /**
+     * 去重后的用户数
+     */
+    private int users;
+
+    /**
+     * 吊销的 token 数
+     */
+    private int tokens;
+
+    /**
+     * 耗时（毫秒）
+     */
+    private long cost;
+}
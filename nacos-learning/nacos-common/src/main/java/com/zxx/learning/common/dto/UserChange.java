@@ -0,0 +1,54 @@
+package com.zxx.learning.common.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+
+/**
+ * 用户变更记录（变更流中的一条），携带用户在读取时刻的最新状态（不含密码）
+ *
+ * <p>同一用户的多条变更携带的都是最新状态，消费方按任意顺序重复应用结果都一致。</p>
+ *
+ * @author zxx
+ */
+@Data
+public class UserChange {
+
+    public static final String CREATE = "CREATE";
+    public static final String UPDATE = "UPDATE";
+    public static final String DISABLE = "DISABLE";
+    public static final String DELETE = "DELETE";
+
+    /**
+     * 变更序号（快照中为快照开始时的最新序号）
+     */
+    private long seq;
+
+    /**
+     * 用户ID
+     */
+    private Long id;
+
+    /**
+     * 操作：CREATE/UPDATE/DISABLE/DELETE，快照中为 null
+     */
+    private String op;
+
+    /**
+     * 以下为用户最新状态，用户已删除时均为 null
+     */
+    private String username;
+
+    private String role;
+
+    private String email;
+
+    private Integer status;
+
+    /**
+     * 用户当前是否已不存在（已删除）
+     */
+    @JsonIgnore
+    public boolean isRemoved() {
+        return username == null;
+    }
+}
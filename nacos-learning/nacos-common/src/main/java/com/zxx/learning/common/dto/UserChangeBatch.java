@@ -0,0 +1,35 @@
+package com.zxx.learning.common.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户变更流的一页：GET /user/changes?since=&limit=
+ *
+ * @author zxx
+ */
+@Data
+public class UserChangeBatch {
+
+    /**
+     * 按 seq 升序的变更
+     */
+    private List<UserChange> changes = new ArrayList<>();
+
+    /**
+     * 本页最后一条变更的 seq，没有变更时等于请求的 since
+     */
+    private long nextSince;
+
+    /**
+     * 是否还有更多变更（本页已满）
+     */
+    private boolean hasMore;
+
+    /**
+     * since 之后的部分变更已被清理，消费方需要重新拉取全量快照
+     */
+    private boolean reset;
+}
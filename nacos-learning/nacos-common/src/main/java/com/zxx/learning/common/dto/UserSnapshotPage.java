@@ -0,0 +1,30 @@
+package com.zxx.learning.common.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户全量快照的一页（按ID keyset 分页）：GET /user/changes/snapshot?cursor=&size=
+ *
+ * @author zxx
+ */
+@Data
+public class UserSnapshotPage {
+
+    /**
+     * 读取本页前变更流的最新 seq；消费方取第一页的值，快照完成后从该 seq 开始增量同步
+     */
+    private long headSeq;
+
+    /**
+     * 用户当前状态（op 为 null）
+     */
+    private List<UserChange> users = new ArrayList<>();
+
+    /**
+     * 下一页游标，null 表示没有更多
+     */
+    private Long nextCursor;
+}
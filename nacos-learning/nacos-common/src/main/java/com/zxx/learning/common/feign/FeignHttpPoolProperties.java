@@ -0,0 +1,66 @@
+package com.zxx.learning.common.feign;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Feign 连接池配置
+ *
+ * <p>配置前缀：common.feign.http，由各服务的 Nacos 配置下发。</p>
+ *
+ * @author zxx
+ */
+@Data
+@ConfigurationProperties(prefix = "common.feign.http")
+public class FeignHttpPoolProperties {
+
+    /**
+     * 是否启用连接池 HTTP 客户端（关闭后回退到 OpenFeign 默认配置）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 连接池最大连接数
+     */
+    private int maxTotal = 200;
+
+    /**
+     * 每个目标地址（host:port）的最大连接数
+     */
+    private int maxPerRoute = 50;
+
+    /**
+     * 建立连接超时，单位毫秒
+     */
+    private int connectTimeout = 2000;
+
+    /**
+     * 读取超时，单位毫秒
+     */
+    private int readTimeout = 5000;
+
+    /**
+     * 从连接池获取连接的超时，单位毫秒
+     */
+    private int connectionRequestTimeout = 1000;
+
+    /**
+     * 服务端未返回 Keep-Alive 头时连接的保活时间，单位毫秒
+     */
+    private long keepAlive = 30000;
+
+    /**
+     * 空闲连接超过该时间后由后台线程关闭，单位毫秒
+     */
+    private long maxIdleTime = 60000;
+
+    /**
+     * 连接空闲超过该时间后复用前先校验是否可用，单位毫秒
+     */
+    private int validateAfterInactivity = 2000;
+
+    /**
+     * 是否为 Feign 调用耗时输出直方图（用于 P95 / P99 统计）
+     */
+    private boolean histogram = true;
+}
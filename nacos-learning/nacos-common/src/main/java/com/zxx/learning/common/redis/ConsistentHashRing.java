@@ -0,0 +1,65 @@
+package com.zxx.learning.common.redis;
+
+import com.zxx.learning.common.util.HashUtil;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * 一致性哈希环（带虚拟节点）
+ *
+ * <p>新增节点时只有约 1/N 的 key 会改变归属，便于 Redis 分片扩容时只迁移少量数据。</p>
+ *
+ * <p>说明：构建完成后只读，节点变化时重新构建新的实例。</p>
+ *
+ * @param <T> 节点类型
+ * @author zxx
+ */
+public class ConsistentHashRing<T> {
+
+    private final TreeMap<Long, String> ring = new TreeMap<>();
+    private final Map<String, T> nodes;
+
+    /**
+     * @param nodes        节点名称 -> 节点，名称参与哈希计算，各服务必须使用相同的名称
+     * @param virtualNodes 每个节点的虚拟节点数量
+     */
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes == null || nodes.isEmpty()) {
+            throw new IllegalArgumentException("一致性哈希环至少需要一个节点");
+        }
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+        int replicas = Math.max(1, virtualNodes);
+        for (String name : nodes.keySet()) {
+            for (int i = 0; i < replicas; i++) {
+                ring.put(HashUtil.hash64(name + "#" + i), name);
+            }
+        }
+    }
+
+    /**
+     * 定位 key 所属的节点名称
+     */
+    public String locateName(String key) {
+        if (nodes.size() == 1) {
+            return nodes.keySet().iterator().next();
+        }
+        long hash = HashUtil.hash64(key);
+        SortedMap<Long, String> tail = ring.tailMap(hash);
+        return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+    }
+
+    /**
+     * 定位 key 所属的节点
+     */
+    public T locate(String key) {
+        return nodes.get(locateName(key));
+    }
+
+    public Map<String, T> nodes() {
+        return nodes;
+    }
+}
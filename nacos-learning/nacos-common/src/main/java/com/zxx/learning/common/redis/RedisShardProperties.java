@@ -0,0 +1,84 @@
+package com.zxx.learning.common.redis;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Redis 分片配置
+ *
+ * <p>由各服务通过 {@code @ConfigurationProperties} 绑定（例如 auth.redis），配置源头在 Nacos。
+ * 未配置任何分片时，路由器退化为只使用服务默认的 Redis 连接。</p>
+ *
+ * @author zxx
+ */
+@Data
+public class RedisShardProperties {
+
+    /**
+     * 分片列表，分片名称参与一致性哈希计算，auth-service 与 Gateway 必须完全一致
+     */
+    private List<Shard> shards = new ArrayList<>();
+
+    /**
+     * 每个分片的虚拟节点数量
+     */
+    private int virtualNodes = 160;
+
+    /**
+     * 扩容迁移时每批 SCAN 的 key 数量
+     */
+    private int migrationBatchSize = 500;
+
+    /**
+     * 扩容后旧分片兜底读取的保留时间，单位秒（未负责迁移的服务在此时间后停止回查旧分片）
+     */
+    private long migrationGracePeriod = 600;
+
+    /**
+     * 是否把 token / 角色的高频读路由到从库（需要在分片上配置 replicas）
+     */
+    private boolean replicaRead = false;
+
+    /**
+     * 从库读的过期容忍窗口，单位毫秒：从库只在确认追上主库后的该时间内可读（对所有服务的写入生效），
+     * 另外本服务在该时间内写过的 key 直接读主库
+     */
+    private long stalenessTolerance = 1000;
+
+    @Data
+    public static class Shard {
+
+        /**
+         * 分片名称（唯一）
+         */
+        private String name;
+
+        private String host = "localhost";
+
+        private int port = 6379;
+
+        private String password;
+
+        private int database = 0;
+
+        /**
+         * 命令超时，单位毫秒
+         */
+        private long timeout = 3000;
+
+        /**
+         * 从库列表（密码、database 与主库一致），为空时该分片的读也走主库
+         */
+        private List<Replica> replicas = new ArrayList<>();
+    }
+
+    @Data
+    public static class Replica {
+
+        private String host = "localhost";
+
+        private int port = 6379;
+    }
+}
@@ -0,0 +1,667 @@
+package com.zxx.learning.common.redis;
+
+import io.lettuce.core.ReadFrom;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStaticMasterReplicaConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Redis 分片路由器（基于一致性哈希）
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>按完整 Redis key 计算归属分片，所有服务使用相同的分片名称即可得到相同的路由结果</li>
+ *     <li>未配置分片时只有一个 default 分片，即服务默认的 StringRedisTemplate，行为与单实例一致</li>
+ *     <li>新增分片后保留旧哈希环：读未命中时回查旧分片，写之前先把该 key 从旧分片迁移过来</li>
+ *     <li>负责迁移的服务（migrationOwner）在后台 SCAN 旧分片，把归属变化的 key 用 DUMP/RESTORE 迁移到新分片</li>
+ *     <li>暂不支持移除分片（default 分片除外）</li>
+ *     <li>{@link #beginBatch()} / {@link #flushBatch()} 之间经 {@link #write} 发出的写命令按分片合并为一次 pipeline</li>
+ *     <li>开启 replicaRead 后，{@link #readReplica} 优先读从库，未命中或本服务刚写过的 key 回到主库读取</li>
+ *     <li>从库过期时间有界：后台定期先读主库 master_repl_offset，再读每个从库的 slave_repl_offset，
+ *     全部从库都已追上时，该分片的从库在此后 stalenessTolerance 内可读；检查失败或未追上时窗口到期后自动回到主库。
+ *     该判断基于从库自身的复制进度，其他服务（如 auth-service 登录、踢人、改角色）的写入同样受约束</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+public class RedisShardRouter {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    /**
+     * 最近写入记录的清理阈值
+     */
+    private static final int MAX_RECENT_WRITES = 10000;
+
+    /**
+     * 迁移有 key 失败时的最大轮数与每轮间隔
+     */
+    private static final int MIGRATION_MAX_ATTEMPTS = 5;
+
+    /**
+     * 从库复制进度检查的最小间隔（实际为 stalenessTolerance / 4）
+     */
+    private static final long MIN_LAG_CHECK_INTERVAL_MILLIS = 50;
+
+    private static final long MIGRATION_RETRY_DELAY_MILLIS = 10000;
+
+    private final StringRedisTemplate defaultTemplate;
+    private final boolean migrationOwner;
+    private final List<String> migrationPatterns;
+    private final Map<String, ShardConnection> connections = new ConcurrentHashMap<>();
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private final ThreadLocal<RedisWriteBatch> batchHolder = new ThreadLocal<>();
+    private final ExecutorService migrationExecutor;
+    private final ScheduledExecutorService lagMonitor;
+
+    private volatile RedisShardProperties properties;
+    private volatile ConsistentHashRing<StringRedisTemplate> currentRing;
+    private volatile ConsistentHashRing<StringRedisTemplate> previousRing;
+    private volatile long previousRingExpireAt;
+
+    /**
+     * @param defaultTemplate   服务默认的 Redis 连接（未配置分片时使用）
+     * @param properties        分片配置
+     * @param migrationOwner    是否由当前服务负责扩容后的后台迁移
+     * @param migrationPatterns 需要迁移的 key 匹配模式，例如 satoken:*
+     */
+    public RedisShardRouter(StringRedisTemplate defaultTemplate, RedisShardProperties properties,
+                            boolean migrationOwner, String... migrationPatterns) {
+        this.defaultTemplate = defaultTemplate;
+        this.migrationOwner = migrationOwner;
+        this.migrationPatterns = Arrays.asList(migrationPatterns);
+        this.migrationExecutor = migrationOwner ? Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "redis-shard-migration");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+        this.properties = properties;
+        this.currentRing = new ConsistentHashRing<>(resolveNodes(properties), properties.getVirtualNodes());
+        this.lagMonitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "redis-replica-lag");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagMonitor.execute(this::checkReplicaLag);
+        log.info("Redis 分片路由初始化完成, shards={}", currentRing.nodes().keySet());
+    }
+
+    /**
+     * 配置刷新后重新构建哈希环，新增分片时启动迁移
+     */
+    public synchronized void reload(RedisShardProperties newProperties) {
+        Map<String, StringRedisTemplate> nodes = resolveNodes(newProperties);
+        Set<String> oldNames = currentRing.nodes().keySet();
+        if (nodes.keySet().equals(oldNames)) {
+            return;
+        }
+        Set<String> removed = new HashSet<>(oldNames);
+        removed.removeAll(nodes.keySet());
+        removed.remove(DEFAULT_SHARD);
+        if (!removed.isEmpty()) {
+            log.warn("暂不支持移除 Redis 分片，忽略本次分片配置变更, removed={}", removed);
+            return;
+        }
+
+        ConsistentHashRing<StringRedisTemplate> ring = new ConsistentHashRing<>(nodes, newProperties.getVirtualNodes());
+        this.properties = newProperties;
+        this.previousRing = currentRing;
+        this.previousRingExpireAt = System.currentTimeMillis() + newProperties.getMigrationGracePeriod() * 1000;
+        this.currentRing = ring;
+        log.info("Redis 分片变更, {} -> {}", oldNames, nodes.keySet());
+
+        if (migrationOwner) {
+            final ConsistentHashRing<StringRedisTemplate> from = previousRing;
+            migrationExecutor.submit(() -> migrate(from, ring));
+        }
+    }
+
+    /**
+     * 获取 key 当前归属的分片（读）
+     */
+    public StringRedisTemplate forRead(String key) {
+        return currentRing.locate(key);
+    }
+
+    /**
+     * 读取 key，当前分片未命中（返回 null）且处于迁移期时回查旧分片
+     */
+    public <T> T read(String key, Function<StringRedisTemplate, T> reader) {
+        StringRedisTemplate current = currentRing.locate(key);
+        T value = reader.apply(current);
+        countRoundTrip();
+        if (value == null) {
+            StringRedisTemplate previous = previousOwner(key, current);
+            if (previous != null) {
+                value = reader.apply(previous);
+                countRoundTrip();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 从库优先读取：从库未确认追上主库（超出过期容忍窗口）、从库未命中（返回 null）
+     * 或本服务在容忍窗口内写过该 key 时，回到主库读取
+     */
+    public <T> T readReplica(String key, Function<StringRedisTemplate, T> reader) {
+        RedisShardProperties props = properties;
+        if (!props.isReplicaRead() || isRecentlyWritten(key, props.getStalenessTolerance())) {
+            return read(key, reader);
+        }
+        ShardConnection connection = connections.get(currentRing.locateName(key));
+        if (connection == null || connection.replicaTemplate == null
+                || System.currentTimeMillis() > connection.freshUntil) {
+            return read(key, reader);
+        }
+        T value = null;
+        try {
+            value = reader.apply(connection.replicaTemplate);
+            countRoundTrip();
+        } catch (Exception e) {
+            log.warn("从库读取异常，回退主库, key={}, error={}", key, e.getMessage());
+        }
+        return value != null ? value : read(key, reader);
+    }
+
+    /**
+     * 获取 key 当前归属的分片（写），迁移期内先把该 key 从旧分片迁移过来，避免覆盖丢失 TTL 等信息；
+     * 迁移失败时抛出异常，本次写入不执行，旧分片上的数据保留
+     */
+    public StringRedisTemplate forWrite(String key) {
+        markWritten(key);
+        StringRedisTemplate current = currentRing.locate(key);
+        StringRedisTemplate previous = previousOwner(key, current);
+        if (previous != null) {
+            moveKey(key, previous, current);
+        }
+        return current;
+    }
+
+    /**
+     * 执行单 key 写命令：批次内先缓存，批次外直接发送到 key 所属分片
+     */
+    public void write(String key, RedisCallback<?> callback) {
+        RedisWriteBatch batch = batchHolder.get();
+        if (batch != null) {
+            markWritten(key);
+            batch.add(key, callback);
+            return;
+        }
+        forWrite(key).execute(callback);
+        countRoundTrip();
+    }
+
+    /**
+     * 删除 key（迁移期内新旧分片都删除）
+     */
+    public void delete(String key) {
+        markWritten(key);
+        StringRedisTemplate current = currentRing.locate(key);
+        StringRedisTemplate previous = previousOwner(key, current);
+        if (previous != null) {
+            previous.delete(key);
+        }
+        RedisWriteBatch batch = batchHolder.get();
+        if (batch != null) {
+            final byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+            batch.add(key, (RedisCallback<Object>) connection -> connection.del(rawKey));
+            batch.putDeleted(key);
+            return;
+        }
+        current.delete(key);
+        countRoundTrip();
+    }
+
+    /**
+     * 在当前线程开启写批次（可嵌套，最外层 {@link #flushBatch()} 时真正发送）
+     */
+    public RedisWriteBatch beginBatch() {
+        RedisWriteBatch batch = batchHolder.get();
+        if (batch != null) {
+            batch.enter();
+            return batch;
+        }
+        batch = new RedisWriteBatch();
+        batchHolder.set(batch);
+        return batch;
+    }
+
+    /**
+     * 当前线程的写批次，未开启时返回 null
+     */
+    public RedisWriteBatch currentBatch() {
+        return batchHolder.get();
+    }
+
+    /**
+     * 结束写批次：按分片分组，每个分片一次 pipeline 发送缓存的写命令
+     *
+     * @return 批次期间的 Redis 往返次数（嵌套批次的内层返回 0）
+     */
+    public int flushBatch() {
+        RedisWriteBatch batch = batchHolder.get();
+        if (batch == null || batch.exit() > 0) {
+            return 0;
+        }
+        batchHolder.remove();
+        if (batch.isDiscarded()) {
+            return batch.getRoundTrips();
+        }
+        Map<StringRedisTemplate, List<RedisCallback<?>>> grouped = new LinkedHashMap<>();
+        for (RedisWriteBatch.Command command : batch.commands()) {
+            grouped.computeIfAbsent(forWrite(command.key), template -> new ArrayList<>()).add(command.callback);
+        }
+        for (Map.Entry<StringRedisTemplate, List<RedisCallback<?>>> entry : grouped.entrySet()) {
+            final List<RedisCallback<?>> callbacks = entry.getValue();
+            entry.getKey().executePipelined((RedisCallback<Object>) connection -> {
+                for (RedisCallback<?> callback : callbacks) {
+                    callback.doInRedis(connection);
+                }
+                return null;
+            });
+            batch.recordRoundTrip();
+        }
+        return batch.getRoundTrips();
+    }
+
+    /**
+     * 放弃写批次：业务失败时调用，缓存的写命令不再发送
+     *
+     * <p>嵌套批次的内层丢弃时整个批次都被标记，外层结束时（flush 或 discard）同样不发送。</p>
+     */
+    public void discardBatch() {
+        RedisWriteBatch batch = batchHolder.get();
+        if (batch == null) {
+            return;
+        }
+        batch.discard();
+        if (batch.exit() <= 0) {
+            batchHolder.remove();
+        }
+    }
+
+    /**
+     * 当前所有分片
+     */
+    public Collection<StringRedisTemplate> shards() {
+        return currentRing.nodes().values();
+    }
+
+    /**
+     * 是否处于扩容迁移期
+     */
+    public boolean isMigrating() {
+        return activePreviousRing() != null;
+    }
+
+    public void destroy() {
+        if (migrationExecutor != null) {
+            migrationExecutor.shutdownNow();
+        }
+        lagMonitor.shutdownNow();
+        for (ShardConnection connection : connections.values()) {
+            connection.factory.destroy();
+            if (connection.replicaFactory != null) {
+                connection.replicaFactory.destroy();
+            }
+            for (LettuceConnectionFactory probe : connection.probeFactories) {
+                probe.destroy();
+            }
+        }
+        connections.clear();
+    }
+
+    /**
+     * 检查各分片从库的复制进度：先记录时间并读取主库 offset，再读取每个从库已应用的 offset，
+     * 全部从库都不小于该 offset 时，从库至少包含检查时刻之前的全部写入，在此后 stalenessTolerance 内可读
+     */
+    private void checkReplicaLag() {
+        RedisShardProperties props = properties;
+        try {
+            if (props.isReplicaRead()) {
+                for (Map.Entry<String, ShardConnection> entry : connections.entrySet()) {
+                    ShardConnection connection = entry.getValue();
+                    if (connection.replicaProbes.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        long checkedAt = System.currentTimeMillis();
+                        long masterOffset = replicationOffset(connection.template, "master_repl_offset");
+                        boolean caughtUp = masterOffset >= 0;
+                        for (StringRedisTemplate probe : connection.replicaProbes) {
+                            if (!caughtUp) {
+                                break;
+                            }
+                            caughtUp = replicationOffset(probe, "slave_repl_offset") >= masterOffset;
+                        }
+                        if (caughtUp) {
+                            connection.freshUntil = checkedAt + props.getStalenessTolerance();
+                        }
+                    } catch (Exception e) {
+                        log.debug("检查 Redis 从库复制进度失败, shard={}, error={}", entry.getKey(), e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            if (!lagMonitor.isShutdown()) {
+                lagMonitor.schedule(this::checkReplicaLag,
+                        Math.max(MIN_LAG_CHECK_INTERVAL_MILLIS, props.getStalenessTolerance() / 4), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private static long replicationOffset(StringRedisTemplate template, String field) {
+        Properties info = template.execute((RedisCallback<Properties>) c -> c.serverCommands().info("replication"));
+        String value = info != null ? info.getProperty(field) : null;
+        return value != null ? Long.parseLong(value.trim()) : -1;
+    }
+
+    private void countRoundTrip() {
+        RedisWriteBatch batch = batchHolder.get();
+        if (batch != null) {
+            batch.recordRoundTrip();
+        }
+    }
+
+    private void markWritten(String key) {
+        RedisShardProperties props = properties;
+        if (!props.isReplicaRead()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        recentWrites.put(key, now);
+        if (recentWrites.size() > MAX_RECENT_WRITES) {
+            long expireBefore = now - props.getStalenessTolerance();
+            recentWrites.values().removeIf(writtenAt -> writtenAt < expireBefore);
+        }
+    }
+
+    private boolean isRecentlyWritten(String key, long stalenessTolerance) {
+        Long writtenAt = recentWrites.get(key);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt > stalenessTolerance) {
+            recentWrites.remove(key, writtenAt);
+            return false;
+        }
+        return true;
+    }
+
+    private StringRedisTemplate previousOwner(String key, StringRedisTemplate current) {
+        ConsistentHashRing<StringRedisTemplate> previous = activePreviousRing();
+        if (previous == null) {
+            return null;
+        }
+        StringRedisTemplate owner = previous.locate(key);
+        return owner != current ? owner : null;
+    }
+
+    private ConsistentHashRing<StringRedisTemplate> activePreviousRing() {
+        ConsistentHashRing<StringRedisTemplate> previous = previousRing;
+        if (previous == null) {
+            return null;
+        }
+        // 迁移负责方在迁移完成后清理旧环；其他服务按宽限期兜底
+        if (!migrationOwner && System.currentTimeMillis() > previousRingExpireAt) {
+            previousRing = null;
+            return null;
+        }
+        return previous;
+    }
+
+    private Map<String, StringRedisTemplate> resolveNodes(RedisShardProperties props) {
+        Map<String, StringRedisTemplate> nodes = new LinkedHashMap<>();
+        List<RedisShardProperties.Shard> shards = props.getShards() != null
+                ? new ArrayList<>(props.getShards()) : new ArrayList<RedisShardProperties.Shard>();
+        if (shards.isEmpty()) {
+            nodes.put(DEFAULT_SHARD, defaultTemplate);
+            return nodes;
+        }
+        for (RedisShardProperties.Shard shard : shards) {
+            if (!StringUtils.hasText(shard.getName())) {
+                throw new IllegalArgumentException("Redis 分片名称不能为空: " + shard.getHost() + ":" + shard.getPort());
+            }
+            ShardConnection connection = connections.computeIfAbsent(shard.getName(), name -> createConnection(shard));
+            nodes.put(shard.getName(), connection.template);
+        }
+        return nodes;
+    }
+
+    private ShardConnection createConnection(RedisShardProperties.Shard shard) {
+        RedisStandaloneConfiguration configuration = new RedisStandaloneConfiguration(shard.getHost(), shard.getPort());
+        configuration.setDatabase(shard.getDatabase());
+        if (StringUtils.hasText(shard.getPassword())) {
+            configuration.setPassword(RedisPassword.of(shard.getPassword()));
+        }
+        // Lettuce 单连接多路复用，线程安全，无需连接池
+        LettuceClientConfiguration clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(shard.getTimeout()))
+                .build();
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        factory.afterPropertiesSet();
+
+        StringRedisTemplate template = new StringRedisTemplate(factory);
+        template.afterPropertiesSet();
+        log.info("创建 Redis 分片连接, name={}, address={}:{}/{}", shard.getName(), shard.getHost(),
+                shard.getPort(), shard.getDatabase());
+
+        if (shard.getReplicas() == null || shard.getReplicas().isEmpty()) {
+            return new ShardConnection(factory, template, null, null,
+                    new ArrayList<LettuceConnectionFactory>(), new ArrayList<StringRedisTemplate>());
+        }
+        // 静态主从拓扑：读命令优先发往从库，从库全部不可用时回到主库
+        RedisStaticMasterReplicaConfiguration replicaConfiguration =
+                new RedisStaticMasterReplicaConfiguration(shard.getHost(), shard.getPort());
+        for (RedisShardProperties.Replica replica : shard.getReplicas()) {
+            replicaConfiguration.addNode(replica.getHost(), replica.getPort());
+        }
+        replicaConfiguration.setDatabase(shard.getDatabase());
+        if (StringUtils.hasText(shard.getPassword())) {
+            replicaConfiguration.setPassword(RedisPassword.of(shard.getPassword()));
+        }
+        LettuceClientConfiguration replicaClientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(shard.getTimeout()))
+                .readFrom(ReadFrom.REPLICA_PREFERRED)
+                .build();
+        LettuceConnectionFactory replicaFactory =
+                new LettuceConnectionFactory(replicaConfiguration, replicaClientConfiguration);
+        replicaFactory.afterPropertiesSet();
+
+        StringRedisTemplate replicaTemplate = new StringRedisTemplate(replicaFactory);
+        replicaTemplate.afterPropertiesSet();
+
+        // 每个从库单独一条连接，用于检查复制进度
+        List<LettuceConnectionFactory> probeFactories = new ArrayList<>();
+        List<StringRedisTemplate> probes = new ArrayList<>();
+        for (RedisShardProperties.Replica replica : shard.getReplicas()) {
+            RedisStandaloneConfiguration probeConfiguration =
+                    new RedisStandaloneConfiguration(replica.getHost(), replica.getPort());
+            probeConfiguration.setDatabase(shard.getDatabase());
+            if (StringUtils.hasText(shard.getPassword())) {
+                probeConfiguration.setPassword(RedisPassword.of(shard.getPassword()));
+            }
+            LettuceConnectionFactory probeFactory = new LettuceConnectionFactory(probeConfiguration, clientConfiguration);
+            probeFactory.afterPropertiesSet();
+            StringRedisTemplate probe = new StringRedisTemplate(probeFactory);
+            probe.afterPropertiesSet();
+            probeFactories.add(probeFactory);
+            probes.add(probe);
+        }
+        log.info("创建 Redis 分片从库连接, name={}, replicas={}", shard.getName(), shard.getReplicas().size());
+        return new ShardConnection(factory, template, replicaFactory, replicaTemplate, probeFactories, probes);
+    }
+
+    /**
+     * 后台迁移：SCAN 旧环的每个分片，把归属发生变化的 key 迁移到新分片
+     *
+     * <p>单个 key 迁移失败（目标分片超时、连接中断等）时保留源 key 并继续，本轮结束后整体重试；
+     * 重试次数用尽仍有失败时保留旧环，读写继续回查旧分片，数据不会丢失。</p>
+     */
+    private void migrate(ConsistentHashRing<StringRedisTemplate> from, ConsistentHashRing<StringRedisTemplate> to) {
+        long start = System.currentTimeMillis();
+        long moved = 0;
+        try {
+            for (int attempt = 1; attempt <= MIGRATION_MAX_ATTEMPTS; attempt++) {
+                long[] result = migratePass(from, to);
+                moved += result[0];
+                if (result[1] == 0) {
+                    synchronized (this) {
+                        if (previousRing == from) {
+                            previousRing = null;
+                        }
+                    }
+                    log.info("Redis 分片迁移完成, moved={}, cost={}ms", moved, System.currentTimeMillis() - start);
+                    return;
+                }
+                if (currentRing != to) {
+                    log.warn("Redis 分片迁移期间分片配置再次变更，停止本次迁移, failed={}", result[1]);
+                    return;
+                }
+                log.warn("Redis 分片迁移有 key 失败，稍后重试, attempt={}, failed={}", attempt, result[1]);
+                Thread.sleep(MIGRATION_RETRY_DELAY_MILLIS);
+            }
+            log.error("Redis 分片迁移重试次数用尽，保留旧环继续回查旧分片, moved={}", moved);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 迁移中断时保留旧环，读写仍可回查旧分片
+            log.error("Redis 分片迁移异常, moved={}", moved, e);
+        }
+    }
+
+    /**
+     * @return [迁移成功数, 失败数]
+     */
+    private long[] migratePass(ConsistentHashRing<StringRedisTemplate> from, ConsistentHashRing<StringRedisTemplate> to) {
+        long moved = 0;
+        long failed = 0;
+        for (Map.Entry<String, StringRedisTemplate> entry : from.nodes().entrySet()) {
+            StringRedisTemplate source = entry.getValue();
+            for (String pattern : migrationPatterns) {
+                ScanOptions options = ScanOptions.scanOptions()
+                        .match(pattern)
+                        .count(properties.getMigrationBatchSize())
+                        .build();
+                try (Cursor<String> cursor = source.scan(options)) {
+                    while (cursor.hasNext()) {
+                        String key = cursor.next();
+                        StringRedisTemplate target = to.locate(key);
+                        if (target == source) {
+                            continue;
+                        }
+                        try {
+                            if (moveKey(key, source, target)) {
+                                moved++;
+                            }
+                        } catch (Exception e) {
+                            failed++;
+                            log.warn("迁移 key 失败，保留源分片数据, key={}, error={}", key, e.getMessage());
+                        }
+                    }
+                }
+            }
+            log.info("Redis 分片迁移进度, source={}, moved={}, failed={}", entry.getKey(), moved, failed);
+        }
+        return new long[]{moved, failed};
+    }
+
+    /**
+     * 使用 DUMP/RESTORE 迁移单个 key（保留 TTL），目标分片已存在时（BUSYKEY）以目标分片的新值为准
+     *
+     * @return 是否发生迁移
+     * @throws RuntimeException RESTORE 因 BUSYKEY 以外的原因失败时抛出，源 key 保留不删除
+     */
+    private boolean moveKey(String key, StringRedisTemplate source, StringRedisTemplate target) {
+        final byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        final byte[] dump = source.execute((RedisCallback<byte[]>) connection -> connection.dump(rawKey));
+        if (dump == null) {
+            return false;
+        }
+        Long pttl = source.execute((RedisCallback<Long>) connection -> connection.pTtl(rawKey));
+        if (pttl == null || pttl == -2) {
+            return false;
+        }
+        final long ttl = pttl > 0 ? pttl : 0;
+        try {
+            target.execute((RedisCallback<Object>) connection -> {
+                connection.restore(rawKey, ttl, dump, false);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            if (!isBusyKey(e)) {
+                throw e;
+            }
+            // BUSYKEY：迁移期间目标分片已写入新值，直接丢弃旧值
+            log.debug("目标分片已存在 key，跳过迁移, key={}", key);
+        }
+        source.delete(key);
+        return true;
+    }
+
+    private static boolean isBusyKey(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().startsWith("BUSYKEY")) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static final class ShardConnection {
+        private final LettuceConnectionFactory factory;
+        private final StringRedisTemplate template;
+        private final LettuceConnectionFactory replicaFactory;
+        private final StringRedisTemplate replicaTemplate;
+        private final List<LettuceConnectionFactory> probeFactories;
+        private final List<StringRedisTemplate> replicaProbes;
+
+        /**
+         * 从库可读的截止时间，由复制进度检查推进，初始为 0（未确认前读主库）
+         */
+        private volatile long freshUntil;
+
+        private ShardConnection(LettuceConnectionFactory factory, StringRedisTemplate template,
+                                LettuceConnectionFactory replicaFactory, StringRedisTemplate replicaTemplate,
+                                List<LettuceConnectionFactory> probeFactories, List<StringRedisTemplate> replicaProbes) {
+            this.factory = factory;
+            this.template = template;
+            this.replicaFactory = replicaFactory;
+            this.replicaTemplate = replicaTemplate;
+            this.probeFactories = probeFactories;
+            this.replicaProbes = replicaProbes;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.zxx.learning.common.redis;
+
+import org.springframework.data.redis.core.RedisCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 当前线程的 Redis 写批次
+ *
+ * <p>由 {@link RedisShardRouter#beginBatch()} 开启，批次内的写命令先缓存，{@link RedisShardRouter#flushBatch()}
+ * 时按分片各用一次 pipeline 发送。批次内同时记录待写入的值，供调用方"读自己的写"，避免为刚写的 key 再查一次 Redis。</p>
+ *
+ * <p>说明：只在单个线程内使用，非线程安全。</p>
+ *
+ * @author zxx
+ */
+public class RedisWriteBatch {
+
+    private final List<Command> commands = new ArrayList<>();
+    private final Map<String, Pending> pending = new HashMap<>();
+    private int depth = 1;
+    private int roundTrips;
+    private boolean discarded;
+
+    /**
+     * 获取批次内 key 的待写入状态，批次内未写过时返回 null
+     */
+    public Pending pending(String key) {
+        return pending.get(key);
+    }
+
+    /**
+     * 记录写入的值
+     *
+     * @param timeout 过期时间（秒），小于等于 0 表示永久；保留原 TTL 时传入 null
+     */
+    public void putValue(String key, Object value, Long timeout) {
+        Pending previous = pending.get(key);
+        Pending current = new Pending();
+        current.hasValue = true;
+        current.value = value;
+        if (timeout != null) {
+            current.ttlKnown = true;
+            current.expireAt = timeout > 0 ? System.currentTimeMillis() + timeout * 1000 : -1;
+        } else if (previous != null && previous.ttlKnown && !previous.deleted) {
+            current.ttlKnown = true;
+            current.expireAt = previous.expireAt;
+        }
+        pending.put(key, current);
+    }
+
+    /**
+     * 记录过期时间变更
+     */
+    public void putTimeout(String key, long timeout) {
+        Pending current = pending.get(key);
+        if (current == null) {
+            current = new Pending();
+            pending.put(key, current);
+        }
+        if (!current.deleted) {
+            current.ttlKnown = true;
+            current.expireAt = timeout > 0 ? System.currentTimeMillis() + timeout * 1000 : -1;
+        }
+    }
+
+    /**
+     * 记录删除
+     */
+    public void putDeleted(String key) {
+        Pending current = new Pending();
+        current.deleted = true;
+        pending.put(key, current);
+    }
+
+    /**
+     * 批次期间发生的 Redis 往返次数（读 + 每个分片一次 pipeline）
+     */
+    public int getRoundTrips() {
+        return roundTrips;
+    }
+
+    void add(String key, RedisCallback<?> callback) {
+        commands.add(new Command(key, callback));
+    }
+
+    List<Command> commands() {
+        return commands;
+    }
+
+    void recordRoundTrip() {
+        roundTrips++;
+    }
+
+    int enter() {
+        return ++depth;
+    }
+
+    int exit() {
+        return --depth;
+    }
+
+    /**
+     * 标记为丢弃：之后最外层结束批次时不再发送缓存的写命令
+     */
+    void discard() {
+        discarded = true;
+    }
+
+    boolean isDiscarded() {
+        return discarded;
+    }
+
+    /**
+     * 批次内某个 key 的待写入状态
+     */
+    public static final class Pending {
+
+        private boolean hasValue;
+        private Object value;
+        private boolean ttlKnown;
+        private long expireAt;
+        private boolean deleted;
+
+        /**
+         * 批次内是否写入过值（或已删除），为 false 时调用方需要读取 Redis
+         */
+        public boolean hasValue() {
+            return hasValue || deleted;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T value() {
+            return deleted ? null : (T) value;
+        }
+
+        /**
+         * 批次内是否已知过期时间
+         */
+        public boolean ttlKnown() {
+            return ttlKnown || deleted;
+        }
+
+        /**
+         * 剩余过期时间（秒）：-1 永久，-2 不存在
+         */
+        public long ttlSeconds() {
+            if (deleted) {
+                return -2;
+            }
+            if (expireAt < 0) {
+                return -1;
+            }
+            long remain = (expireAt - System.currentTimeMillis() + 999) / 1000;
+            return remain > 0 ? remain : -2;
+        }
+    }
+
+    static final class Command {
+        final String key;
+        final RedisCallback<?> callback;
+
+        Command(String key, RedisCallback<?> callback) {
+            this.key = key;
+            this.callback = callback;
+        }
+    }
+}
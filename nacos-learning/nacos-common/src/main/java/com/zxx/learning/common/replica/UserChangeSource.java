@@ -0,0 +1,23 @@
+package com.zxx.learning.common.replica;
+
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+
+/**
+ * 用户变更流数据源，由使用方通过 Feign 调用 user-service 实现：
+ * GET /user/changes?since=&limit= 与 GET /user/changes/snapshot?cursor=&size=
+ *
+ * @author zxx
+ */
+public interface UserChangeSource {
+
+    /**
+     * 读取 since 之后的变更
+     */
+    UserChangeBatch changes(long since, int limit);
+
+    /**
+     * 读取全量快照的一页
+     */
+    UserSnapshotPage snapshot(Long cursor, int size);
+}
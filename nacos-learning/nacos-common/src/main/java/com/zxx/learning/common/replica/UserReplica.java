@@ -0,0 +1,252 @@
+package com.zxx.learning.common.replica;
+
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 用户数据本地副本：首次全量快照，之后按 seq 增量拉取 user-service 的变更流
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>只保存使用方需要的字段：每条用户经 projection 转换为使用方定义的精简对象（返回 null 表示不需要保存）</li>
+ *     <li>变更携带用户最新状态，重复应用幂等，因此遇到 seq 空洞（较小的 seq 对应的事务尚未提交）时先应用已读到的变更，
+ *     游标停在空洞前，下次拉取重读；空洞超过 gapTimeout 仍未出现则视为事务已回滚并跳过</li>
+ *     <li>重新快照时在新的 Map 中构建，完成后整体替换，查询不会看到构建到一半的副本</li>
+ *     <li>距上次同步成功超过 maxStaleness，或存在仍在等待的 seq 空洞（空洞之后的变更可能依赖尚未读到的变更）时
+ *     {@link #isFresh()} 为 false，{@link #lookup} 回退到远程调用，过期时间有界</li>
+ * </ul>
+ * </p>
+ *
+ * <p>作为 Spring Bean 注册后随容器启动 / 停止（SmartLifecycle），拉取在单独的守护线程中执行。</p>
+ *
+ * @param <T> 本地保存的用户对象类型
+ * @author zxx
+ */
+@Slf4j
+public class UserReplica<T> implements SmartLifecycle {
+
+    /**
+     * 单批变更中最多跟踪的空洞序号数量，超出部分（如批量导入时 MySQL 预留了整段自增值）直接视为不存在
+     */
+    private static final int MAX_TRACKED_GAPS = 1000;
+
+    private final UserChangeSource source;
+    private final Function<UserChange, T> projection;
+    private final UserReplicaProperties properties;
+
+    private volatile Map<Long, T> users = new ConcurrentHashMap<>();
+    private volatile long lastSyncTime;
+    private volatile boolean gapPending;
+    private volatile boolean running;
+
+    /**
+     * 以下字段只在拉取线程中访问
+     */
+    private long cursor;
+    private long replayUntil;
+    private boolean needSnapshot = true;
+    private final TreeMap<Long, Long> gaps = new TreeMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    public UserReplica(UserChangeSource source, Function<UserChange, T> projection,
+                       UserReplicaProperties properties) {
+        this.source = source;
+        this.projection = projection;
+        this.properties = properties;
+    }
+
+    /**
+     * 副本是否在允许的过期时间内，且没有仍在等待的 seq 空洞
+     */
+    public boolean isFresh() {
+        long last = lastSyncTime;
+        return last > 0 && !gapPending && System.currentTimeMillis() - last <= properties.getMaxStaleness();
+    }
+
+    /**
+     * 直接读取本地副本（不检查是否过期）
+     */
+    public T get(Long id) {
+        return id != null ? users.get(id) : null;
+    }
+
+    /**
+     * 查询用户：副本在允许的过期时间内时直接读本地（不存在返回 null），否则调用 fallback
+     */
+    public T lookup(Long id, Function<Long, T> fallback) {
+        if (id == null) {
+            return null;
+        }
+        return isFresh() ? users.get(id) : fallback.apply(id);
+    }
+
+    /**
+     * 批量查询：副本在允许的过期时间内时直接读本地，否则调用 fallback；结果不包含不存在的用户
+     */
+    public Map<Long, T> lookupAll(Collection<Long> ids, Function<Collection<Long>, Map<Long, T>> fallback) {
+        if (!isFresh()) {
+            return fallback.apply(ids);
+        }
+        Map<Long, T> snapshot = users;
+        Map<Long, T> result = new HashMap<>(ids.size() * 2);
+        for (Long id : ids) {
+            T user = id != null ? snapshot.get(id) : null;
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return users.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-replica-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sync, 0, properties.getPollInterval(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 拉取一次：必要时先全量快照，再拉取变更直到追上最新
+     */
+    void sync() {
+        try {
+            if (needSnapshot) {
+                loadSnapshot();
+            }
+            while (true) {
+                UserChangeBatch batch = source.changes(cursor, properties.getPageSize());
+                if (batch == null) {
+                    return;
+                }
+                if (batch.isReset()) {
+                    if (cursor < replayUntil) {
+                        // 重放区间内的变更已被清理（超过保留时间），不存在未提交的事务，直接从快照序号开始
+                        cursor = replayUntil;
+                        gaps.headMap(cursor, true).clear();
+                        gapPending = !gaps.isEmpty();
+                        continue;
+                    }
+                    log.info("用户变更流已清理到当前游标之后，重新拉取快照, cursor={}", cursor);
+                    loadSnapshot();
+                    continue;
+                }
+                long before = cursor;
+                apply(batch.getChanges());
+                if (!batch.isHasMore() || cursor <= before) {
+                    break;
+                }
+            }
+            lastSyncTime = System.currentTimeMillis();
+        } catch (Exception e) {
+            log.warn("同步用户变更失败, cursor={}, error={}", cursor, e.getMessage());
+        }
+    }
+
+    private void loadSnapshot() {
+        long start = System.currentTimeMillis();
+        Map<Long, T> rebuilt = new ConcurrentHashMap<>(Math.max(16, users.size() * 2));
+        Long pageCursor = null;
+        long head = -1;
+        do {
+            UserSnapshotPage page = source.snapshot(pageCursor, properties.getSnapshotPageSize());
+            if (page == null) {
+                throw new IllegalStateException("用户快照无响应");
+            }
+            if (head < 0) {
+                head = page.getHeadSeq();
+            }
+            for (UserChange user : page.getUsers()) {
+                T value = projection.apply(user);
+                if (value != null) {
+                    rebuilt.put(user.getId(), value);
+                }
+            }
+            pageCursor = page.getNextCursor();
+        } while (pageCursor != null);
+
+        users = rebuilt;
+        replayUntil = head;
+        cursor = Math.max(0, head - properties.getSnapshotReplay());
+        gaps.clear();
+        gapPending = false;
+        needSnapshot = false;
+        log.info("用户快照加载完成, users={}, headSeq={}, cost={}ms",
+                rebuilt.size(), head, System.currentTimeMillis() - start);
+    }
+
+    private void apply(List<UserChange> changes) {
+        if (changes == null || changes.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long previous = cursor;
+        for (UserChange change : changes) {
+            T value = change.isRemoved() ? null : projection.apply(change);
+            if (value != null) {
+                users.put(change.getId(), value);
+            } else {
+                users.remove(change.getId());
+            }
+            gaps.remove(change.getSeq());
+            for (long seq = previous + 1; seq < change.getSeq() && gaps.size() < MAX_TRACKED_GAPS; seq++) {
+                gaps.putIfAbsent(seq, now);
+            }
+            previous = Math.max(previous, change.getSeq());
+        }
+
+        // 游标推进到第一个仍在等待的空洞之前
+        long next = previous;
+        for (Iterator<Map.Entry<Long, Long>> it = gaps.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Long> gap = it.next();
+            if (gap.getKey() <= cursor || now - gap.getValue() >= properties.getGapTimeout()) {
+                it.remove();
+            } else {
+                next = Math.min(next, gap.getKey() - 1);
+                break;
+            }
+        }
+        cursor = next;
+        gapPending = !gaps.isEmpty();
+    }
+}
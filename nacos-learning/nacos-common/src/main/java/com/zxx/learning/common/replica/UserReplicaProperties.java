@@ -0,0 +1,49 @@
+package com.zxx.learning.common.replica;
+
+import lombok.Data;
+
+/**
+ * 用户本地副本配置
+ *
+ * <p>由各服务通过 {@code @ConfigurationProperties} 绑定（例如 order.user-replica），配置源头在 Nacos。</p>
+ *
+ * @author zxx
+ */
+@Data
+public class UserReplicaProperties {
+
+    /**
+     * 是否启用本地副本，关闭时使用方直接调用 user-service
+     */
+    private boolean enabled = false;
+
+    /**
+     * 拉取变更的间隔，单位毫秒
+     */
+    private long pollInterval = 1000;
+
+    /**
+     * 每次拉取变更的条数
+     */
+    private int pageSize = 500;
+
+    /**
+     * 拉取全量快照时每页条数
+     */
+    private int snapshotPageSize = 1000;
+
+    /**
+     * 最大允许的过期时间，单位毫秒：距上次同步成功超过该时间时副本视为不可用，查询回退到远程调用
+     */
+    private long maxStaleness = 5000;
+
+    /**
+     * 变更序号空洞的等待时间，单位毫秒：超过该时间仍未出现的序号视为已回滚的事务，不再等待
+     */
+    private long gapTimeout = 10000;
+
+    /**
+     * 快照完成后从最新序号往前重放的条数，覆盖快照期间尚未提交的事务
+     */
+    private int snapshotReplay = 1000;
+}
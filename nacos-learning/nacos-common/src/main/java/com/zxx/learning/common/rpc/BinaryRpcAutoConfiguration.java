@@ -0,0 +1,191 @@
+package com.zxx.learning.common.rpc;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import feign.RequestInterceptor;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import feign.form.spring.SpringFormEncoder;
+import feign.optionals.OptionalDecoder;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.openfeign.support.FeignEncoderProperties;
+import org.springframework.cloud.openfeign.support.HttpMessageConverterCustomizer;
+import org.springframework.cloud.openfeign.support.ResponseEntityDecoder;
+import org.springframework.cloud.openfeign.support.SpringDecoder;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 服务间二进制编码（Smile）自动配置
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>Smile 是 Jackson 的二进制 JSON 格式，沿用现有 DTO 与 Jackson 注解，无需额外 schema；
+ *     体积更小，解析时不需要做字符转义与数字文本解析</li>
+ *     <li>服务端：Smile 转换器追加在 Spring MVC 转换器列表末尾，只有 Accept 明确要求
+ *     application/x-jackson-smile 时才会使用，外部客户端仍返回 JSON</li>
+ *     <li>同一 URL 按 Accept 返回不同编码，响应（包括 304）都带 Vary: Accept，
+ *     避免缓存把 Smile 与 JSON 当成同一份内容（两者的弱 ETag 相同）</li>
+ *     <li>Feign：请求携带 Accept: Smile 优先、JSON 次之，未启用的服务仍按 JSON 返回；
+ *     解码器按响应 Content-Type 选择 Smile 或 JSON</li>
+ *     <li>请求体默认仍为 JSON，开启 encode-requests 后才以 Smile 发送</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass({SmileFactory.class, MappingJackson2SmileHttpMessageConverter.class})
+@ConditionalOnProperty(prefix = "common.rpc.binary", name = "enabled", havingValue = "true")
+@AutoConfigureAfter(name = "org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration")
+@EnableConfigurationProperties(BinaryRpcProperties.class)
+public class BinaryRpcAutoConfiguration {
+
+    /**
+     * Smile 媒体类型
+     */
+    public static final String SMILE_MEDIA_TYPE = "application/x-jackson-smile";
+
+    /**
+     * Feign 请求的 Accept：优先 Smile，被调用方不支持时回退 JSON
+     */
+    static final String FEIGN_ACCEPT = SMILE_MEDIA_TYPE + ", application/json;q=0.9, */*;q=0.8";
+
+    /**
+     * 使用 Spring Boot 配置过的 Jackson 构建器（日期格式、命名策略等与 JSON 保持一致）
+     */
+    static MappingJackson2SmileHttpMessageConverter smileConverter(ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider) {
+        Jackson2ObjectMapperBuilder builder = builderProvider.getIfAvailable(Jackson2ObjectMapperBuilder::new);
+        return new MappingJackson2SmileHttpMessageConverter(builder.createXmlMapper(false)
+                .factory(new SmileFactory())
+                .build());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    @ConditionalOnClass(WebMvcConfigurer.class)
+    static class BinaryRpcWebMvcConfiguration {
+
+        @Bean
+        public WebMvcConfigurer binaryRpcWebMvcConfigurer(ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider) {
+            final MappingJackson2SmileHttpMessageConverter converter = smileConverter(builderProvider);
+            return new WebMvcConfigurer() {
+                @Override
+                public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                    // 追加在末尾：Accept 为 */* 或 application/json 时仍由 JSON 转换器处理
+                    converters.add(converter);
+                }
+
+                @Override
+                public void addInterceptors(InterceptorRegistry registry) {
+                    registry.addInterceptor(new VaryAcceptInterceptor());
+                }
+            };
+        }
+    }
+
+    /**
+     * 在处理请求前加上 Vary: Accept：此时响应尚未提交，checkNotModified 返回的 304 也会带上
+     */
+    static class VaryAcceptInterceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            for (String vary : response.getHeaders(HttpHeaders.VARY)) {
+                for (String field : StringUtils.tokenizeToStringArray(vary, ",")) {
+                    if (HttpHeaders.ACCEPT.equalsIgnoreCase(field) || "*".equals(field)) {
+                        return true;
+                    }
+                }
+            }
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            return true;
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass({RequestInterceptor.class, SpringDecoder.class})
+    static class BinaryRpcFeignConfiguration {
+
+        @Bean
+        public RequestInterceptor binaryRpcAcceptInterceptor() {
+            return template -> {
+                if (!template.headers().containsKey(HttpHeaders.ACCEPT)) {
+                    template.header(HttpHeaders.ACCEPT, FEIGN_ACCEPT);
+                }
+            };
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        public Decoder feignDecoder(ObjectFactory<HttpMessageConverters> messageConverters,
+                                    ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider,
+                                    ObjectProvider<HttpMessageConverterCustomizer> customizers) {
+            ObjectFactory<HttpMessageConverters> converters =
+                    withSmile(messageConverters, smileConverter(builderProvider), false);
+            return new OptionalDecoder(new ResponseEntityDecoder(new SpringDecoder(converters, customizers)));
+        }
+
+        @Bean
+        @ConditionalOnMissingBean
+        @ConditionalOnProperty(prefix = "common.rpc.binary", name = "encode-requests", havingValue = "true")
+        public Encoder feignEncoder(ObjectFactory<HttpMessageConverters> messageConverters,
+                                    ObjectProvider<Jackson2ObjectMapperBuilder> builderProvider,
+                                    ObjectProvider<FeignEncoderProperties> encoderProperties,
+                                    ObjectProvider<HttpMessageConverterCustomizer> customizers) {
+            // Smile 放在首位：SpringEncoder 选择第一个可写的转换器
+            ObjectFactory<HttpMessageConverters> converters =
+                    withSmile(messageConverters, smileConverter(builderProvider), true);
+            return new SpringEncoder(new SpringFormEncoder(), converters,
+                    encoderProperties.getIfAvailable(FeignEncoderProperties::new), customizers);
+        }
+
+        /**
+         * 在已有转换器基础上加入 Smile 转换器（首次使用时构建一次）
+         */
+        private static ObjectFactory<HttpMessageConverters> withSmile(final ObjectFactory<HttpMessageConverters> delegate,
+                                                                      final HttpMessageConverter<?> smile,
+                                                                      final boolean first) {
+            return new ObjectFactory<HttpMessageConverters>() {
+                private volatile HttpMessageConverters converters;
+
+                @Override
+                public HttpMessageConverters getObject() {
+                    HttpMessageConverters result = converters;
+                    if (result == null) {
+                        List<HttpMessageConverter<?>> list = new ArrayList<>(delegate.getObject().getConverters());
+                        if (first) {
+                            list.add(0, smile);
+                        } else {
+                            list.add(smile);
+                        }
+                        result = new HttpMessageConverters(false, list);
+                        converters = result;
+                    }
+                    return result;
+                }
+            };
+        }
+    }
+}
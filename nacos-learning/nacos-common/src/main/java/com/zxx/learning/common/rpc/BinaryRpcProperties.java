@@ -0,0 +1,26 @@
+package com.zxx.learning.common.rpc;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 服务间二进制编码配置
+ *
+ * <p>配置前缀：common.rpc.binary，由各服务的 Nacos 配置下发。</p>
+ *
+ * @author zxx
+ */
+@Data
+@ConfigurationProperties(prefix = "common.rpc.binary")
+public class BinaryRpcProperties {
+
+    /**
+     * 是否启用：服务端可按 Accept 返回 Smile，Feign 调用时优先请求 Smile 响应
+     */
+    private boolean enabled = false;
+
+    /**
+     * Feign 请求体是否也使用 Smile 编码（需确认所有被调用方都已启用，否则会返回 415）
+     */
+    private boolean encodeRequests = false;
+}
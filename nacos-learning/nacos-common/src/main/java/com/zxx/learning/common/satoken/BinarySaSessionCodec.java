@@ -0,0 +1,298 @@
+package com.zxx.learning.common.satoken;
+
+import cn.dev33.satoken.session.SaSession;
+import cn.dev33.satoken.session.TokenSign;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑二进制格式的 SaSession 编解码器
+ *
+ * <p>格式：{@code magic(1) | version(1) | flags(1) | body}，flags 的最低位表示 body 经过 Deflate 压缩。
+ * body 依次为 id、createTime、tokenSignList、dataMap；dataMap 中的常见类型（字符串、数字、布尔）直接按类型写入，
+ * 其他类型以 JSON 写入，读取时与历史 JSON 格式的反序列化结果一致（Map / List）。</p>
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>magic 不是 '{'，读取时据此区分历史 JSON 数据，无需一次性迁移</li>
+ *     <li>编码后的 body 超过 compressThreshold 字节时才压缩，小会话不付出压缩开销</li>
+ *     <li>线程安全，可作为单例共享</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+public class BinarySaSessionCodec implements SaSessionCodec {
+
+    static final byte MAGIC = (byte) 0xA5;
+    static final byte VERSION = 1;
+
+    private static final int FLAG_DEFLATE = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_INT = 2;
+    private static final byte TYPE_LONG = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+    private static final byte TYPE_DOUBLE = 5;
+    private static final byte TYPE_JSON = 9;
+
+    private final ObjectMapper objectMapper;
+    private final int compressThreshold;
+
+    /**
+     * @param objectMapper      共享的 ObjectMapper（用于非基础类型的值及历史 JSON 数据）
+     * @param compressThreshold body 超过该字节数时压缩
+     */
+    public BinarySaSessionCodec(ObjectMapper objectMapper, int compressThreshold) {
+        this.objectMapper = objectMapper;
+        this.compressThreshold = compressThreshold;
+    }
+
+    /**
+     * 是否为二进制格式的数据
+     */
+    public static boolean isBinary(byte[] bytes) {
+        return bytes != null && bytes.length >= 3 && bytes[0] == MAGIC;
+    }
+
+    @Override
+    public byte[] encode(SaSession session) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(body);
+        writeString(out, session.getId());
+        out.writeLong(session.getCreateTime());
+
+        List<TokenSign> tokenSigns = session.getTokenSignList();
+        int signCount = tokenSigns == null ? 0 : tokenSigns.size();
+        writeVarInt(out, signCount);
+        for (int i = 0; i < signCount; i++) {
+            TokenSign sign = tokenSigns.get(i);
+            writeString(out, sign.getValue());
+            writeString(out, sign.getDevice());
+        }
+
+        Map<String, Object> dataMap = session.getDataMap();
+        writeVarInt(out, dataMap.size());
+        for (Map.Entry<String, Object> entry : dataMap.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+        out.flush();
+
+        byte[] raw = body.toByteArray();
+        boolean compress = raw.length > compressThreshold;
+        byte[] payload = compress ? deflate(raw) : raw;
+
+        byte[] result = new byte[payload.length + 3];
+        result[0] = MAGIC;
+        result[1] = VERSION;
+        result[2] = (byte) (compress ? FLAG_DEFLATE : 0);
+        System.arraycopy(payload, 0, result, 3, payload.length);
+        return result;
+    }
+
+    @Override
+    public SaSession decode(byte[] bytes) throws Exception {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (!isBinary(bytes)) {
+            // 历史 JSON 数据
+            return readJson(objectMapper, bytes);
+        }
+        if (bytes[1] != VERSION) {
+            throw new IOException("不支持的 SaSession 编码版本: " + bytes[1]);
+        }
+        byte[] raw = (bytes[2] & FLAG_DEFLATE) != 0
+                ? inflate(bytes, 3, bytes.length - 3)
+                : Arrays.copyOfRange(bytes, 3, bytes.length);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+        // 不能用 new SaSession(id)：该构造器会触发 SaTokenEventCenter.doCreateSession，每次读取都会被当成新建会话
+        SaSession session = new SaSession();
+        session.setId(readString(in));
+        session.setCreateTime(in.readLong());
+
+        // 直接写入会话自带的 Vector，保持并发登录时 addTokenSign 的线程安全
+        int signCount = readVarInt(in);
+        List<TokenSign> tokenSigns = session.getTokenSignList();
+        for (int i = 0; i < signCount; i++) {
+            tokenSigns.add(new TokenSign(readString(in), readString(in)));
+        }
+
+        int dataCount = readVarInt(in);
+        Map<String, Object> dataMap = session.getDataMap();
+        for (int i = 0; i < dataCount; i++) {
+            String key = readString(in);
+            Object value = readValue(in);
+            if (key != null && value != null) {
+                dataMap.put(key, value);
+            }
+        }
+        return session;
+    }
+
+    /**
+     * 读取 JSON 格式的会话。Jackson 通过 setTokenSignList 写入 ArrayList，这里换回 Vector 保持线程安全
+     */
+    static SaSession readJson(ObjectMapper objectMapper, byte[] bytes) throws IOException {
+        SaSession session = objectMapper.readValue(bytes, SaSession.class);
+        List<TokenSign> tokenSigns = session.getTokenSignList();
+        if (!(tokenSigns instanceof Vector)) {
+            session.setTokenSignList(tokenSigns != null ? new Vector<>(tokenSigns) : new Vector<TokenSign>());
+        }
+        return session;
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Double) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble((Double) value);
+        } else {
+            out.writeByte(TYPE_JSON);
+            writeBytes(out, objectMapper.writeValueAsBytes(value));
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_STRING:
+                return readString(in);
+            case TYPE_INT:
+                return in.readInt();
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_JSON:
+                return objectMapper.readValue(readBytes(in), Object.class);
+            default:
+                throw new IOException("未知的 SaSession 数据类型: " + type);
+        }
+    }
+
+    /**
+     * 字符串：varint(长度 + 1)，0 表示 null
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint 格式错误");
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("SaSession 压缩数据不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("SaSession 压缩数据格式错误", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
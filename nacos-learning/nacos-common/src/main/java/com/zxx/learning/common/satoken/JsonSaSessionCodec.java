@@ -0,0 +1,38 @@
+package com.zxx.learning.common.satoken;
+
+import cn.dev33.satoken.session.SaSession;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * JSON 格式的 SaSession 编解码器（历史格式）
+ *
+ * <p>读取时兼容 {@link BinarySaSessionCodec} 写入的二进制数据，便于从二进制格式回退。</p>
+ *
+ * @author zxx
+ */
+public class JsonSaSessionCodec implements SaSessionCodec {
+
+    private final ObjectMapper objectMapper;
+    private final BinarySaSessionCodec binaryCodec;
+
+    public JsonSaSessionCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.binaryCodec = new BinarySaSessionCodec(objectMapper, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public byte[] encode(SaSession session) throws Exception {
+        return objectMapper.writeValueAsBytes(session);
+    }
+
+    @Override
+    public SaSession decode(byte[] bytes) throws Exception {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (BinarySaSessionCodec.isBinary(bytes)) {
+            return binaryCodec.decode(bytes);
+        }
+        return BinarySaSessionCodec.readJson(objectMapper, bytes);
+    }
+}
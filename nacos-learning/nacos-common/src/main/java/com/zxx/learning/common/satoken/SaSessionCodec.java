@@ -0,0 +1,26 @@
+package com.zxx.learning.common.satoken;
+
+import cn.dev33.satoken.session.SaSession;
+
+/**
+ * SaSession 编解码器
+ *
+ * <p>SaTokenDao 通过它把会话对象转换为 Redis 中存储的字节数组。
+ * 所有实现的 {@link #decode(byte[])} 都必须能识别另一种格式，保证切换编码方式后旧数据仍可读取。</p>
+ *
+ * @author zxx
+ */
+public interface SaSessionCodec {
+
+    /**
+     * 编码会话
+     */
+    byte[] encode(SaSession session) throws Exception;
+
+    /**
+     * 解码会话（兼容历史 JSON 格式与二进制格式）
+     *
+     * @return 会话对象，数据为空时返回 null
+     */
+    SaSession decode(byte[] bytes) throws Exception;
+}
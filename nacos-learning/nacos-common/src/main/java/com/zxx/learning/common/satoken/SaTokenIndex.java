@@ -0,0 +1,591 @@
+package com.zxx.learning.common.satoken;
+
+import com.zxx.learning.common.redis.RedisShardRouter;
+import com.zxx.learning.common.redis.RedisWriteBatch;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Sa-Token 会话二级索引
+ *
+ * <p>索引与 token / 会话数据写在同一个分片上，由 Lua 脚本与数据写入一起原子执行：
+ * <ul>
+ *     <li>sa:idx:user-tokens:{loginId}：ZSet，member=token，score=过期时间戳（毫秒，永久为 +inf）</li>
+ *     <li>sa:idx:tokens：ZSet，member=token，score=最近活跃时间戳（毫秒）</li>
+ *     <li>sa:idx:sessions：ZSet，member=loginId，score=最近活跃时间戳（毫秒）</li>
+ *     <li>{活跃索引}:expire：ZSet，member 同活跃索引，score=过期时间戳（毫秒，永久为 +inf），用于清理自然过期的成员</li>
+ * </ul>
+ * </p>
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>查询某个用户的 token 只需对每个分片做一次 ZRANGEBYSCORE，O(分片数 × log n)，不再 KEYS/SCAN 整个键空间</li>
+ *     <li>索引按分片各自维护，分页查询时合并各分片结果</li>
+ *     <li>自然过期的 key 不会触发删除：批次外的写入按间隔从过期索引取出少量已到期成员，确认数据不存在后从索引移除，
+ *     用户 token 索引本身按最晚过期时间 PEXPIREAT，索引不会随过期 token 无限增长；查询时同样校验并顺带清理</li>
+ *     <li>脚本访问的 key 全部通过 KEYS 传入：token 映射的旧值（决定旧用户索引）由调用方先读出，到期成员的数据 key
+ *     也先读出再交给脚本</li>
+ *     <li>索引 key 不参与分片扩容迁移，被迁移的 token 在下次写入时重新进入新分片的索引</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+public class SaTokenIndex {
+
+    public static final String USER_TOKENS_PREFIX = "sa:idx:user-tokens:";
+    public static final String TOKENS_BY_ACTIVITY = "sa:idx:tokens";
+    public static final String SESSIONS_BY_ACTIVITY = "sa:idx:sessions";
+    public static final String EXPIRE_SUFFIX = ":expire";
+
+    /**
+     * 每次写入时最多清理的已到期成员数
+     */
+    private static final int TRIM_BATCH = 100;
+
+    /**
+     * 同一索引两次清理到期成员的最小间隔
+     */
+    private static final long TRIM_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 分页查询时因清理过期成员而重新加载的最大次数
+     */
+    private static final int SEARCH_ATTEMPTS = 3;
+
+    /**
+     * 用户 token 索引按其中最晚的过期时间设置 PEXPIREAT，存在永久 token 时不过期
+     */
+    private static final String EXPIRE_USER_INDEX_FUNCTION =
+            "local function expireUserIndex(userKey) "
+                    + "local last = redis.call('ZRANGE', userKey, -1, -1, 'WITHSCORES') "
+                    + "if #last == 0 then return end "
+                    + "if last[2] == 'inf' then redis.call('PERSIST', userKey) "
+                    + "else redis.call('PEXPIREAT', userKey, math.ceil(tonumber(last[2]))) end "
+                    + "end ";
+
+    /**
+     * 清理已到期的索引成员：到期但数据仍存在（被续期）的成员按实际剩余时间重新计分。
+     * KEYS[1]=活跃索引，KEYS[2]=过期索引，KEYS[3..n]=成员对应的数据 key；ARGV：now, 成员（与 KEYS[3..n] 一一对应）
+     */
+    private static final byte[] TRIM_SCRIPT = bytes(
+            "for i = 3, #KEYS do "
+                    + "local member = ARGV[i - 1] "
+                    + "local pttl = redis.call('PTTL', KEYS[i]) "
+                    + "if pttl == -2 then redis.call('ZREM', KEYS[1], member) redis.call('ZREM', KEYS[2], member) "
+                    + "elseif pttl == -1 then redis.call('ZADD', KEYS[2], '+inf', member) "
+                    + "else redis.call('ZADD', KEYS[2], tonumber(ARGV[1]) + pttl, member) end "
+                    + "end "
+                    + "return #KEYS - 2");
+
+    /**
+     * Sa-Token token -> loginId 映射写入，同时维护用户 token 索引与活跃索引。
+     * 值以 "-" 开头表示被踢下线 / 顶下线等标记，此时从索引中移除。
+     * KEYS[1]=数据 key，KEYS[2]=新值的用户索引，KEYS[3]=旧值的用户索引，KEYS[4]=活跃索引，KEYS[5]=过期索引；
+     * ARGV：value, mode(EX/KEEPTTL/PERSIST), ttl, token, now, 调用方读到的旧值（不存在时为空串）。
+     * 实际旧值与调用方读到的不一致时（两次读写之间被并发修改）不改动未声明的索引，返回实际旧值由调用方补删
+     */
+    private static final byte[] TOKEN_SET_SCRIPT = bytes(EXPIRE_USER_INDEX_FUNCTION
+                    + "local old = redis.call('GET', KEYS[1]) "
+                    + "if ARGV[2] == 'EX' then redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[3]) "
+                    + "elseif ARGV[2] == 'KEEPTTL' then redis.call('SET', KEYS[1], ARGV[1], 'KEEPTTL') "
+                    + "else redis.call('SET', KEYS[1], ARGV[1]) end "
+                    + "local moved = false "
+                    + "if old and old ~= ARGV[1] then "
+                    + "if old == ARGV[6] then redis.call('ZREM', KEYS[3], ARGV[4]) else moved = old end "
+                    + "end "
+                    + "if string.sub(ARGV[1], 1, 1) == '-' then "
+                    + "redis.call('ZREM', KEYS[4], ARGV[4]) redis.call('ZREM', KEYS[5], ARGV[4]) return moved end "
+                    + "local pttl = redis.call('PTTL', KEYS[1]) "
+                    + "local expireAt = '+inf' "
+                    + "if pttl > 0 then expireAt = tonumber(ARGV[5]) + pttl end "
+                    + "redis.call('ZADD', KEYS[2], expireAt, ARGV[4]) "
+                    + "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', '(' .. ARGV[5]) "
+                    + "expireUserIndex(KEYS[2]) "
+                    + "redis.call('ZADD', KEYS[4], ARGV[5], ARGV[4]) "
+                    + "redis.call('ZADD', KEYS[5], expireAt, ARGV[4]) "
+                    + "return moved");
+
+    /**
+     * 删除 token 映射并移除索引。KEYS[1]=数据 key，KEYS[2]=旧值的用户索引，KEYS[3]=活跃索引，KEYS[4]=过期索引；
+     * ARGV：token, 调用方读到的旧值。返回值同 {@link #TOKEN_SET_SCRIPT}
+     */
+    private static final byte[] TOKEN_DELETE_SCRIPT = bytes(
+            "local old = redis.call('GET', KEYS[1]) "
+                    + "redis.call('DEL', KEYS[1]) "
+                    + "local moved = false "
+                    + "if old then "
+                    + "if old == ARGV[2] then redis.call('ZREM', KEYS[2], ARGV[1]) else moved = old end "
+                    + "end "
+                    + "redis.call('ZREM', KEYS[3], ARGV[1]) "
+                    + "redis.call('ZREM', KEYS[4], ARGV[1]) "
+                    + "return moved");
+
+    /**
+     * 续期 token 并更新用户索引与过期索引中的过期时间。KEYS[1]=数据 key，KEYS[2]=用户索引，KEYS[3]=过期索引；
+     * ARGV：ttl, token, now, 调用方读到的值。值已被并发修改时只续期数据 key，不改动索引
+     */
+    private static final byte[] TOKEN_EXPIRE_SCRIPT = bytes(EXPIRE_USER_INDEX_FUNCTION
+                    + "if redis.call('EXPIRE', KEYS[1], ARGV[1]) == 0 then return 0 end "
+                    + "local id = redis.call('GET', KEYS[1]) "
+                    + "if id and id == ARGV[4] and string.sub(id, 1, 1) ~= '-' then "
+                    + "local expireAt = tonumber(ARGV[3]) + tonumber(ARGV[1]) * 1000 "
+                    + "redis.call('ZADD', KEYS[2], 'XX', expireAt, ARGV[2]) "
+                    + "expireUserIndex(KEYS[2]) "
+                    + "redis.call('ZADD', KEYS[3], 'XX', expireAt, ARGV[2]) end "
+                    + "return 1");
+
+    /**
+     * 写入数据并刷新活跃索引。KEYS[1]=数据 key，KEYS[2]=索引 key，KEYS[3]=过期索引 key；
+     * ARGV：value, mode, ttl, member, now, onlyExisting。
+     * onlyExisting 时数据 key 与索引成员的过期时间无关，只刷新活跃时间，不维护过期索引
+     */
+    private static final byte[] SET_TOUCH_SCRIPT = bytes(
+            "if ARGV[2] == 'EX' then redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[3]) "
+                    + "elseif ARGV[2] == 'KEEPTTL' then redis.call('SET', KEYS[1], ARGV[1], 'KEEPTTL') "
+                    + "else redis.call('SET', KEYS[1], ARGV[1]) end "
+                    + "if ARGV[6] == '1' then redis.call('ZADD', KEYS[2], 'XX', ARGV[5], ARGV[4]) return 1 end "
+                    + "local pttl = redis.call('PTTL', KEYS[1]) "
+                    + "local expireAt = '+inf' "
+                    + "if pttl > 0 then expireAt = tonumber(ARGV[5]) + pttl end "
+                    + "redis.call('ZADD', KEYS[2], ARGV[5], ARGV[4]) "
+                    + "redis.call('ZADD', KEYS[3], expireAt, ARGV[4]) "
+                    + "return 1");
+
+    /**
+     * 删除数据并移除索引。KEYS[1]=数据 key，KEYS[2]=索引 key，KEYS[3]=过期索引 key；ARGV：member
+     */
+    private static final byte[] DELETE_SCRIPT = bytes(
+            "redis.call('DEL', KEYS[1]) "
+                    + "redis.call('ZREM', KEYS[2], ARGV[1]) "
+                    + "redis.call('ZREM', KEYS[3], ARGV[1]) "
+                    + "return 1");
+
+    /**
+     * 写入模式：EX 指定过期时间，KEEPTTL 保留原过期时间，PERSIST 永久
+     */
+    public enum Mode {
+        EX, KEEPTTL, PERSIST
+    }
+
+    /**
+     * Sa-Token key 类型
+     */
+    public enum KeyType {
+        /**
+         * {tokenName}:{loginType}:token:{token}，值为 loginId
+         */
+        TOKEN(":token:"),
+        /**
+         * {tokenName}:{loginType}:session:{loginId}
+         */
+        SESSION(":session:"),
+        /**
+         * {tokenName}:{loginType}:token-session:{token}
+         */
+        TOKEN_SESSION(":token-session:"),
+        /**
+         * {tokenName}:{loginType}:last-activity:{token}
+         */
+        LAST_ACTIVITY(":last-activity:");
+
+        private final String marker;
+
+        KeyType(String marker) {
+            this.marker = marker;
+        }
+
+        /**
+         * 解析 Sa-Token key 的类型
+         *
+         * @return 不属于索引范围的 key 返回 null
+         */
+        public static KeyType of(String saKey) {
+            if (saKey == null) {
+                return null;
+            }
+            for (KeyType type : values()) {
+                if (saKey.contains(type.marker)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 取出 key 中的 token 或 loginId
+         */
+        public String idOf(String saKey) {
+            int index = saKey.indexOf(marker);
+            return index < 0 ? null : saKey.substring(index + marker.length());
+        }
+    }
+
+    private final RedisShardRouter shardRouter;
+    private final ConcurrentMap<String, AtomicLong> lastTrimAt = new ConcurrentHashMap<>();
+
+    public SaTokenIndex(RedisShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * 写入 token -> loginId 映射（set / update）
+     */
+    public void writeToken(String redisKey, String token, String loginId, Mode mode, long timeout) {
+        String old = currentValue(redisKey);
+        String oldUserKey = USER_TOKENS_PREFIX + (old != null ? old : loginId);
+        String userKey = loginId.startsWith("-") ? oldUserKey : USER_TOKENS_PREFIX + loginId;
+        final byte[][] keysAndArgs = {bytes(redisKey), bytes(userKey), bytes(oldUserKey), bytes(TOKENS_BY_ACTIVITY),
+                bytes(TOKENS_BY_ACTIVITY + EXPIRE_SUFFIX), bytes(loginId), bytes(mode.name()),
+                bytes(String.valueOf(timeout)), bytes(token), bytes(String.valueOf(System.currentTimeMillis())),
+                bytes(old != null ? old : "")};
+        unindexMoved(redisKey, token, eval(redisKey, TOKEN_SET_SCRIPT, ReturnType.VALUE, keysAndArgs, 5));
+        trimIfDue(TOKENS_BY_ACTIVITY, dataPrefix(redisKey, token));
+    }
+
+    /**
+     * 删除 token -> loginId 映射
+     */
+    public void deleteToken(String redisKey, String token) {
+        String old = currentValue(redisKey);
+        final byte[][] keysAndArgs = {bytes(redisKey), bytes(USER_TOKENS_PREFIX + (old != null ? old : "")),
+                bytes(TOKENS_BY_ACTIVITY), bytes(TOKENS_BY_ACTIVITY + EXPIRE_SUFFIX), bytes(token),
+                bytes(old != null ? old : "")};
+        unindexMoved(redisKey, token, eval(redisKey, TOKEN_DELETE_SCRIPT, ReturnType.VALUE, keysAndArgs, 4));
+    }
+
+    /**
+     * token 续期
+     */
+    public void expireToken(String redisKey, String token, long timeout) {
+        String loginId = currentValue(redisKey);
+        final byte[][] keysAndArgs = {bytes(redisKey), bytes(USER_TOKENS_PREFIX + (loginId != null ? loginId : "")),
+                bytes(TOKENS_BY_ACTIVITY + EXPIRE_SUFFIX), bytes(String.valueOf(timeout)), bytes(token),
+                bytes(String.valueOf(System.currentTimeMillis())), bytes(loginId != null ? loginId : "")};
+        eval(redisKey, TOKEN_EXPIRE_SCRIPT, ReturnType.INTEGER, keysAndArgs, 3);
+    }
+
+    /**
+     * 写入数据并刷新活跃索引
+     *
+     * @param onlyExisting 为 true 时只更新索引中已有的成员（例如 last-activity 只刷新已登录 token 的活跃时间）
+     */
+    public void writeAndTouch(String redisKey, byte[] value, Mode mode, long timeout,
+                              String indexKey, String member, boolean onlyExisting) {
+        final byte[][] keysAndArgs = {bytes(redisKey), bytes(indexKey), bytes(indexKey + EXPIRE_SUFFIX), value,
+                bytes(mode.name()), bytes(String.valueOf(timeout)), bytes(member),
+                bytes(String.valueOf(System.currentTimeMillis())), bytes(onlyExisting ? "1" : "0")};
+        eval(redisKey, SET_TOUCH_SCRIPT, ReturnType.INTEGER, keysAndArgs, 3);
+        if (!onlyExisting) {
+            trimIfDue(indexKey, dataPrefix(redisKey, member));
+        }
+    }
+
+    /**
+     * 清理各分片上已到期的索引成员（每个分片最多 {@value #TRIM_BATCH} 个）：
+     * 先读出到期成员，再把它们的数据 key 作为 KEYS 交给脚本逐个确认，脚本不访问未声明的 key
+     *
+     * @param dataPrefix 成员 -> 数据 key 的前缀
+     * @return 处理的成员数量
+     */
+    public int trimExpired(String indexKey, String dataPrefix) {
+        String expireKey = indexKey + EXPIRE_SUFFIX;
+        int trimmed = 0;
+        for (StringRedisTemplate template : shardRouter.shards()) {
+            long now = System.currentTimeMillis();
+            Set<String> stale = template.opsForZSet().rangeByScore(expireKey, Double.NEGATIVE_INFINITY, now - 1,
+                    0, TRIM_BATCH);
+            if (stale == null || stale.isEmpty()) {
+                continue;
+            }
+            final byte[][] keysAndArgs = new byte[stale.size() * 2 + 3][];
+            int numKeys = stale.size() + 2;
+            keysAndArgs[0] = bytes(indexKey);
+            keysAndArgs[1] = bytes(expireKey);
+            keysAndArgs[numKeys] = bytes(String.valueOf(now));
+            int i = 0;
+            for (String member : stale) {
+                keysAndArgs[2 + i] = bytes(dataPrefix + member);
+                keysAndArgs[numKeys + 1 + i] = bytes(member);
+                i++;
+            }
+            Long count = template.execute((RedisCallback<Long>) connection ->
+                    connection.scriptingCommands().eval(TRIM_SCRIPT, ReturnType.INTEGER, numKeys, keysAndArgs));
+            trimmed += count != null ? count.intValue() : 0;
+        }
+        return trimmed;
+    }
+
+    /**
+     * 删除数据并移除索引成员
+     */
+    public void deleteAndUnindex(String redisKey, String indexKey, String member) {
+        final byte[][] keysAndArgs = {bytes(redisKey), bytes(indexKey), bytes(indexKey + EXPIRE_SUFFIX),
+                bytes(member)};
+        eval(redisKey, DELETE_SCRIPT, ReturnType.INTEGER, keysAndArgs, 3);
+    }
+
+    /**
+     * 查询用户当前有效的 token
+     *
+     * @return token -> 过期时间戳（毫秒，永久为 -1），按过期时间升序
+     */
+    public Map<String, Long> userTokens(String loginId) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        if (!StringUtils.hasText(loginId)) {
+            return result;
+        }
+        String key = USER_TOKENS_PREFIX + loginId;
+        long now = System.currentTimeMillis();
+        List<ZSetOperations.TypedTuple<String>> tuples = new ArrayList<>();
+        for (StringRedisTemplate template : shardRouter.shards()) {
+            Set<ZSetOperations.TypedTuple<String>> shardTuples =
+                    template.opsForZSet().rangeByScoreWithScores(key, now, Double.POSITIVE_INFINITY);
+            if (shardTuples != null) {
+                tuples.addAll(shardTuples);
+            }
+        }
+        tuples.sort(Comparator.comparingDouble(tuple -> tuple.getScore() != null ? tuple.getScore() : 0));
+        for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+            Double score = tuple.getScore();
+            result.put(tuple.getValue(), score == null || score.isInfinite() ? -1L : score.longValue());
+        }
+        return result;
+    }
+
+    /**
+     * 批量查询多个用户的全部 token（每个分片一次 pipeline，不区分是否过期）
+     *
+     * @return loginId -> token 列表
+     */
+    public Map<String, List<String>> userTokens(Collection<String> loginIds) {
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        if (loginIds == null || loginIds.isEmpty()) {
+            return result;
+        }
+        final List<String> ids = new ArrayList<>(loginIds);
+        for (String loginId : ids) {
+            result.put(loginId, new ArrayList<String>());
+        }
+        for (StringRedisTemplate template : shardRouter.shards()) {
+            List<Object> replies = template.executePipelined((RedisCallback<Object>) connection -> {
+                for (String loginId : ids) {
+                    connection.zSetCommands().zRange(bytes(USER_TOKENS_PREFIX + loginId), 0, -1);
+                }
+                return null;
+            });
+            for (int i = 0; i < replies.size() && i < ids.size(); i++) {
+                Object reply = replies.get(i);
+                if (reply instanceof Collection) {
+                    for (Object token : (Collection<?>) reply) {
+                        result.get(ids.get(i)).add(String.valueOf(token));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按活跃时间分页查询索引成员
+     *
+     * @param indexKey    活跃索引 key
+     * @param keyword     成员关键词（包含匹配），为空时不过滤
+     * @param start       起始位置
+     * @param size        数量，-1 表示不限
+     * @param asc         true 按活跃时间升序，false 降序
+     * @param memberToKey 成员 -> 数据 key，用于校验数据是否仍存在，不存在的成员会从索引中清理
+     * @return 成员列表；多次校验后仍有成员被清理时，返回最后一次清理后剩余的成员（可能不足一页）
+     */
+    public List<String> search(String indexKey, String keyword, int start, int size, boolean asc,
+                               Function<String, String> memberToKey) {
+        int from = Math.max(0, start);
+        long limit = size < 0 ? -1 : (long) from + size;
+        // 校验时可能清理掉过期成员，最多重试几次以尽量填满一页
+        List<Entry> page = new ArrayList<>();
+        for (int attempt = 0; attempt < SEARCH_ATTEMPTS; attempt++) {
+            List<Entry> entries = new ArrayList<>();
+            for (StringRedisTemplate template : shardRouter.shards()) {
+                entries.addAll(loadShard(template, indexKey, keyword, limit, asc));
+            }
+            Comparator<Entry> comparator = Comparator.comparingDouble(entry -> entry.score);
+            entries.sort(asc ? comparator : comparator.reversed());
+            page = new ArrayList<>(entries.subList(Math.min(from, entries.size()),
+                    size < 0 ? entries.size() : Math.min(from + size, entries.size())));
+            if (pruneMissing(indexKey, page, memberToKey) == 0) {
+                break;
+            }
+        }
+        List<String> result = new ArrayList<>(page.size());
+        for (Entry entry : page) {
+            result.add(entry.member);
+        }
+        return result;
+    }
+
+    private List<Entry> loadShard(StringRedisTemplate template, String indexKey, String keyword, long limit,
+                                  boolean asc) {
+        List<Entry> entries = new ArrayList<>();
+        if (!StringUtils.hasText(keyword)) {
+            long end = limit < 0 ? -1 : limit - 1;
+            Set<ZSetOperations.TypedTuple<String>> tuples = asc
+                    ? template.opsForZSet().rangeWithScores(indexKey, 0, end)
+                    : template.opsForZSet().reverseRangeWithScores(indexKey, 0, end);
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<String> tuple : tuples) {
+                    entries.add(new Entry(template, tuple.getValue(), tuple.getScore()));
+                }
+            }
+            return entries;
+        }
+        // 关键词过滤只扫描索引本身，不扫描整个键空间
+        ScanOptions options = ScanOptions.scanOptions().match("*" + escapeGlob(keyword) + "*").count(500).build();
+        try (Cursor<ZSetOperations.TypedTuple<String>> cursor = template.opsForZSet().scan(indexKey, options)) {
+            while (cursor.hasNext()) {
+                ZSetOperations.TypedTuple<String> tuple = cursor.next();
+                entries.add(new Entry(template, tuple.getValue(), tuple.getScore()));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * 校验数据是否仍存在，清理已过期成员（同时从 page 中移除）
+     *
+     * @return 清理的成员数量
+     */
+    private int pruneMissing(String indexKey, List<Entry> page, Function<String, String> memberToKey) {
+        if (page.isEmpty() || memberToKey == null) {
+            return 0;
+        }
+        int pruned = 0;
+        for (Iterator<Entry> iterator = page.iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            String redisKey = memberToKey.apply(entry.member);
+            Boolean exists = shardRouter.read(redisKey,
+                    template -> Boolean.TRUE.equals(template.hasKey(redisKey)) ? Boolean.TRUE : null);
+            if (exists == null) {
+                entry.template.opsForZSet().remove(indexKey, entry.member);
+                entry.template.opsForZSet().remove(indexKey + EXPIRE_SUFFIX, entry.member);
+                iterator.remove();
+                pruned++;
+            }
+        }
+        if (pruned > 0) {
+            log.debug("清理过期的会话索引成员, indexKey={}, pruned={}", indexKey, pruned);
+        }
+        return pruned;
+    }
+
+    /**
+     * 读取 token 映射的当前值：批次内写过的 key 直接使用批次内的值，否则读主库
+     */
+    private String currentValue(final String redisKey) {
+        RedisWriteBatch batch = shardRouter.currentBatch();
+        RedisWriteBatch.Pending pending = batch != null ? batch.pending(redisKey) : null;
+        if (pending != null && pending.hasValue()) {
+            Object value = pending.value();
+            return value != null ? String.valueOf(value) : null;
+        }
+        return shardRouter.read(redisKey, template -> template.opsForValue().get(redisKey));
+    }
+
+    /**
+     * 脚本执行前 token 已被并发改为其他 loginId 时，脚本不会改动未声明的用户索引，这里补删
+     */
+    private void unindexMoved(String redisKey, String token, Object moved) {
+        if (moved instanceof byte[]) {
+            String userKey = USER_TOKENS_PREFIX + new String((byte[]) moved, StandardCharsets.UTF_8);
+            final byte[] rawUserKey = bytes(userKey);
+            final byte[] rawToken = bytes(token);
+            shardRouter.write(redisKey, connection -> connection.zSetCommands().zRem(rawUserKey, rawToken));
+            log.debug("token 所属用户已变化，补删旧用户索引, userKey={}", userKey);
+        }
+    }
+
+    /**
+     * 按间隔清理到期成员：批次内不额外访问 Redis，留给批次外的写入
+     */
+    private void trimIfDue(String indexKey, String dataPrefix) {
+        if (shardRouter.currentBatch() != null) {
+            return;
+        }
+        AtomicLong last = lastTrimAt.computeIfAbsent(indexKey + '|' + dataPrefix, key -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long previous = last.get();
+        if (now - previous < TRIM_INTERVAL_MILLIS || !last.compareAndSet(previous, now)) {
+            return;
+        }
+        try {
+            trimExpired(indexKey, dataPrefix);
+        } catch (Exception e) {
+            log.warn("清理到期的会话索引成员异常, indexKey={}, error={}", indexKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 批次内只缓存命令，返回 null；批次外直接执行并返回脚本结果
+     */
+    private Object eval(String redisKey, final byte[] script, final ReturnType returnType, final byte[][] keysAndArgs,
+                        final int numKeys) {
+        RedisCallback<Object> callback = connection ->
+                connection.scriptingCommands().eval(script, returnType, numKeys, keysAndArgs);
+        if (shardRouter.currentBatch() != null) {
+            shardRouter.write(redisKey, callback);
+            return null;
+        }
+        return shardRouter.forWrite(redisKey).execute(callback);
+    }
+
+    private static String dataPrefix(String redisKey, String member) {
+        return redisKey.substring(0, redisKey.length() - member.length());
+    }
+
+    private static String escapeGlob(String keyword) {
+        StringBuilder builder = new StringBuilder(keyword.length());
+        for (char c : keyword.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Entry {
+        private final StringRedisTemplate template;
+        private final String member;
+        private final double score;
+
+        private Entry(StringRedisTemplate template, String member, Double score) {
+            this.template = template;
+            this.member = member;
+            this.score = score != null ? score : 0;
+        }
+    }
+}
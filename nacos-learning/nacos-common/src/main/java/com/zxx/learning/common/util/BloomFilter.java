@@ -0,0 +1,74 @@
+package com.zxx.learning.common.util;
+
+/**
+ * 简单的布隆过滤器（本地内存版）
+ *
+ * <p>用于快速判断"一定不存在"：{@link #mightContain(String)} 返回 false 时元素一定未加入过，
+ * 返回 true 时需要再做精确判断。</p>
+ *
+ * <p>说明：写入（{@link #put(String)}）非线程安全，建议构建完成后只读使用，更新时整体替换实例。</p>
+ *
+ * @author zxx
+ */
+public class BloomFilter {
+
+    private final long[] bits;
+    private final long bitSize;
+    private final int hashFunctions;
+
+    private BloomFilter(long bitSize, int hashFunctions) {
+        this.bitSize = bitSize;
+        this.hashFunctions = hashFunctions;
+        this.bits = new long[(int) ((bitSize + 63) >>> 6)];
+    }
+
+    /**
+     * 根据预期元素数量和误判率创建过滤器
+     *
+     * @param expectedInsertions 预期元素数量
+     * @param fpp                期望误判率，例如 0.01
+     */
+    public static BloomFilter create(long expectedInsertions, double fpp) {
+        long n = Math.max(1, expectedInsertions);
+        double p = fpp > 0 && fpp < 1 ? fpp : 0.01;
+        long m = Math.max(64, (long) (-n * Math.log(p) / (Math.log(2) * Math.log(2))));
+        int k = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        return new BloomFilter(m, k);
+    }
+
+    public void put(String value) {
+        long hash = HashUtil.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = indexOf(h1 + i * h2);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = HashUtil.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashFunctions; i++) {
+            long index = indexOf(h1 + i * h2);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitSize() {
+        return bitSize;
+    }
+
+    public int hashFunctions() {
+        return hashFunctions;
+    }
+
+    private long indexOf(int combinedHash) {
+        int positive = combinedHash < 0 ? ~combinedHash : combinedHash;
+        return positive % bitSize;
+    }
+}
@@ -0,0 +1,32 @@
+package com.zxx.learning.common.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 哈希工具类
+ *
+ * @author zxx
+ */
+public final class HashUtil {
+
+    private HashUtil() {
+    }
+
+    /**
+     * 64 位 FNV-1a 哈希后再做一次 murmur3 finalizer 混淆，保证高低 32 位都足够离散
+     */
+    public static long hash64(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,114 @@
+package com.zxx.learning.common.web;
+
+import org.springframework.web.context.request.WebRequest;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 条件 GET（ETag / Last-Modified）工具类
+ *
+ * <p>用法：在 GET 接口中加入 {@link WebRequest} 参数，查出资源版本后调用 {@code checkNotModified}，
+ * 返回 true 时直接 {@code return null}，Spring 会返回 304 且不序列化响应体；否则正常返回，响应中带上 ETag 与 Last-Modified。</p>
+ *
+ * <ul>
+ *     <li>单个资源：ETag 为 W/"{id}-{updateTime 毫秒}"，Last-Modified 为 updateTime（秒级，HTTP 日期精度所限）。
+ *     update_time 必须是毫秒精度（DATETIME(3)）并且只由数据库 ON UPDATE 维护（实体字段 updateStrategy = NEVER），
+ *     否则同一秒内的两次修改或客户端回传的旧 updateTime 会让 ETag 不变，返回过期的 304</li>
+ *     <li>集合：ETag 为 W/"{总数}-{修订号}-{最大 updateTime 毫秒}"，用一条聚合查询代替加载整个集合。
+ *     修订号取能反映每次增删改的单调值（如变更流序号），没有时取 MAX(id)：同一时刻删除一行再新增一行总数不变，
+ *     但新行的自增 id 会改变 MAX(id)</li>
+ *     <li>客户端仍以 If-None-Match 为准；If-Modified-Since 只有秒级精度，仅在没有 ETag 时作为兜底</li>
+ * </ul>
+ *
+ * @author zxx
+ */
+public final class ConditionalGet {
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * 单个资源的条件检查，updateTime 为空时不做检查
+     *
+     * @return true 表示客户端缓存仍然有效，调用方应直接返回 null
+     */
+    public static boolean checkNotModified(WebRequest request, Object id, LocalDateTime updateTime) {
+        if (updateTime == null) {
+            return false;
+        }
+        long lastModified = toMillis(updateTime);
+        return request.checkNotModified("W/\"" + id + "-" + lastModified + "\"", lastModified);
+    }
+
+    /**
+     * 集合的条件检查（ETag 按 URL 缓存，分页参数不同的请求互不影响）
+     *
+     * @return true 表示客户端缓存仍然有效，调用方应直接返回 null
+     */
+    public static boolean checkNotModified(WebRequest request, Version version) {
+        String etag = "W/\"" + version.getCount() + "-" + version.getRevision() + "-" + version.getLastModified() + "\"";
+        return version.getLastModified() > 0
+                ? request.checkNotModified(etag, version.getLastModified())
+                : request.checkNotModified(etag);
+    }
+
+    private static long toMillis(Object value) {
+        if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).getTime();
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return -1;
+    }
+
+    /**
+     * 集合版本：总数 + 修订号 + 最大更新时间
+     */
+    public static class Version {
+
+        private final long count;
+        private final long revision;
+        private final long lastModified;
+
+        public Version(long count, long revision, long lastModified) {
+            this.count = count;
+            this.revision = revision;
+            this.lastModified = lastModified;
+        }
+
+        /**
+         * 由聚合查询结果构造，查询需返回 cnt（COUNT(*)）、rev（修订号，如 MAX(id) 或变更流最大序号）与
+         * updated（MAX(update_time)）三列；别名使用小写，部分数据库会把别名转为小写
+         */
+        public static Version of(Map<String, Object> row) {
+            if (row == null) {
+                return new Version(0, 0, -1);
+            }
+            return new Version(toLong(row.get("cnt")), toLong(row.get("rev")), toMillis(row.get("updated")));
+        }
+
+        private static long toLong(Object value) {
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getRevision() {
+            return revision;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.zxx.learning.common.dto;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 内部 Feign 响应解码测试：{@link ApiResult} 与原 Map 结构的 JSON 兼容性，
+ * 以及直接解码为 DTO 与"解码为 Map 再逐层转换"的耗时 / 分配对比（只打印，受机器影响不做断言）
+ *
+ * @author zxx
+ */
+@Slf4j
+class ApiResultDecodeTest {
+
+    private static final int WARMUP = 20000;
+    private static final int ROUNDS = 200000;
+
+    /**
+     * user-service /user/internal/validate-login 的典型响应
+     */
+    private static final String LOGIN_RESPONSE = "{\"success\":true,\"msg\":\"校验成功\","
+            + "\"data\":{\"id\":10001,\"username\":\"zhangsan\",\"role\":\"admin\",\"status\":1}}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final JavaType resultType = objectMapper.getTypeFactory()
+            .constructParametricType(ApiResult.class, AuthUserInfo.class);
+
+    @Test
+    void decodesLoginResponse() throws Exception {
+        ApiResult<AuthUserInfo> result = objectMapper.readValue(LOGIN_RESPONSE, resultType);
+
+        assertTrue(result.isSuccess());
+        assertFalse(result.isBusy());
+        assertEquals(Long.valueOf(10001), result.getData().getId());
+        assertEquals("zhangsan", result.getData().getUsername());
+        assertEquals("admin", result.getData().getRole());
+        assertEquals(Integer.valueOf(1), result.getData().getStatus());
+    }
+
+    @Test
+    void keepsMapShapeOnTheWire() throws Exception {
+        Map<String, Object> ok = objectMapper.readValue(
+                objectMapper.writeValueAsBytes(ApiResult.ok("校验成功", new AuthUserInfo())),
+                new TypeReference<Map<String, Object>>() {
+                });
+        Map<String, Object> busy = objectMapper.readValue(
+                objectMapper.writeValueAsBytes(ApiResult.busy("登录繁忙，请稍后重试")),
+                new TypeReference<Map<String, Object>>() {
+                });
+
+        assertEquals(Boolean.TRUE, ok.get("success"));
+        assertTrue(ok.get("data") instanceof Map);
+        assertFalse(ok.containsKey("busy"), "busy 只在为 true 时输出");
+        assertEquals(Boolean.TRUE, busy.get("busy"));
+    }
+
+    @Test
+    void registerRequestOmitsSkillsForUserService() throws Exception {
+        RegisterRequest request = new RegisterRequest();
+        request.setUsername("zhangsan");
+        request.setPassword("secret");
+        request.setRole("user");
+
+        assertFalse(objectMapper.writeValueAsString(request).contains("skills"));
+    }
+
+    /**
+     * 直接解码为 DTO 与解码为 Map 后 instanceof / 强转取值（改造前 AuthController 的写法）对比
+     */
+    @Test
+    void comparedWithMapDecoding() throws Exception {
+        byte[] payload = LOGIN_RESPONSE.getBytes("UTF-8");
+        for (int i = 0; i < WARMUP; i++) {
+            decodeTyped(payload);
+            decodeMap(payload);
+        }
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            decodeTyped(payload);
+        }
+        long typedNanos = System.nanoTime() - start;
+        long typedBytes = allocatedBytes() - allocated;
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            decodeMap(payload);
+        }
+        long mapNanos = System.nanoTime() - start;
+        long mapBytes = allocatedBytes() - allocated;
+
+        assertEquals(decodeTyped(payload).getUsername(), decodeMap(payload).getUsername());
+        log.info("登录响应解码（{}B，{} 次）: dto={}ns/{}B, map={}ns/{}B", payload.length, ROUNDS,
+                typedNanos / ROUNDS, typedBytes / ROUNDS, mapNanos / ROUNDS, mapBytes / ROUNDS);
+    }
+
+    private AuthUserInfo decodeTyped(byte[] payload) throws Exception {
+        ApiResult<AuthUserInfo> result = objectMapper.readValue(payload, resultType);
+        return result.isSuccess() ? result.getData() : null;
+    }
+
+    private AuthUserInfo decodeMap(byte[] payload) throws Exception {
+        Map<String, Object> result = objectMapper.readValue(payload, new TypeReference<Map<String, Object>>() {
+        });
+        if (!Boolean.TRUE.equals(result.get("success")) || !(result.get("data") instanceof Map)) {
+            return null;
+        }
+        Map<?, ?> data = (Map<?, ?>) result.get("data");
+        AuthUserInfo userInfo = new AuthUserInfo();
+        Object id = data.get("id");
+        userInfo.setId(id instanceof Number ? ((Number) id).longValue() : null);
+        userInfo.setUsername(data.get("username") != null ? String.valueOf(data.get("username")) : null);
+        userInfo.setRole(data.get("role") != null ? String.valueOf(data.get("role")) : null);
+        Object status = data.get("status");
+        userInfo.setStatus(status instanceof Number ? ((Number) status).intValue() : null);
+        return userInfo;
+    }
+
+    /**
+     * 当前线程累计分配的字节数，JVM 不支持时返回 0
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
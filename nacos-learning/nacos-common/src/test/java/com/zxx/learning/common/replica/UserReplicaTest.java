@@ -0,0 +1,225 @@
+package com.zxx.learning.common.replica;
+
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link UserReplica} 测试：快照 + 重放、seq 空洞的等待与超时、变更被清理后的 reset
+ *
+ * <p>使用内存中的变更流模拟 user-service 的 t_user_change：seq 按分配顺序递增，未提交的事务对读取不可见。</p>
+ *
+ * @author zxx
+ */
+class UserReplicaTest {
+
+    private final FakeFeed feed = new FakeFeed();
+
+    @Test
+    void snapshotThenReplayPicksUpChangeCommittedLate() {
+        feed.create(1L, "a");
+        feed.create(2L, "b");
+        long late = feed.begin(3L, "c");
+        feed.create(4L, "d");
+        UserReplica<String> replica = replica(10, 60000);
+
+        replica.sync();
+
+        // 快照时 seq 3 尚未提交：先应用已读到的变更，游标停在空洞前，空洞等待期间副本不可用
+        assertEquals(1, feed.snapshotCalls);
+        assertEquals("d", replica.get(4L));
+        assertNull(replica.get(3L));
+        assertFalse(replica.isFresh());
+
+        feed.commit(late);
+        replica.sync();
+
+        assertEquals("c", replica.get(3L));
+        assertEquals(4, replica.size());
+        assertTrue(replica.isFresh());
+    }
+
+    @Test
+    void gapIsSkippedAfterTimeout() throws InterruptedException {
+        feed.create(1L, "a");
+        UserReplica<String> replica = replica(0, 50);
+        replica.sync();
+        assertTrue(replica.isFresh());
+
+        // seq 2 的事务回滚，永远不会出现
+        feed.begin(2L, "rolled-back");
+        feed.create(3L, "c");
+        replica.sync();
+        assertEquals("c", replica.get(3L));
+        assertFalse(replica.isFresh());
+
+        Thread.sleep(60);
+        replica.sync();
+        assertTrue(replica.isFresh());
+
+        feed.create(4L, "d");
+        replica.sync();
+        assertEquals("d", replica.get(4L));
+        assertNull(replica.get(2L));
+        assertTrue(replica.isFresh());
+    }
+
+    @Test
+    void resetAfterPruneReloadsSnapshot() {
+        feed.create(1L, "a");
+        feed.create(2L, "b");
+        UserReplica<String> replica = replica(0, 60000);
+        replica.sync();
+        assertEquals(2, replica.size());
+
+        // 副本离线期间的变更已被清理，只剩最新一条
+        feed.delete(1L);
+        feed.create(3L, "c");
+        feed.create(4L, "d");
+        feed.pruneBefore(feed.head());
+        replica.sync();
+
+        assertEquals(2, feed.snapshotCalls);
+        assertNull(replica.get(1L));
+        assertEquals("b", replica.get(2L));
+        assertEquals("c", replica.get(3L));
+        assertEquals("d", replica.get(4L));
+        assertTrue(replica.isFresh());
+    }
+
+    @Test
+    void resetInsideReplayWindowSkipsToSnapshotHead() {
+        feed.create(1L, "a");
+        feed.create(2L, "b");
+        feed.create(3L, "c");
+        feed.pruneBefore(feed.head());
+        UserReplica<String> replica = replica(10, 60000);
+
+        replica.sync();
+
+        // 重放区间的变更已被清理，不重新快照，直接从快照序号开始增量同步
+        assertEquals(1, feed.snapshotCalls);
+        assertEquals(3, replica.size());
+        assertTrue(replica.isFresh());
+
+        feed.create(4L, "d");
+        replica.sync();
+        assertEquals(1, feed.snapshotCalls);
+        assertEquals("d", replica.get(4L));
+    }
+
+    private UserReplica<String> replica(int snapshotReplay, long gapTimeout) {
+        UserReplicaProperties properties = new UserReplicaProperties();
+        properties.setPageSize(2);
+        properties.setSnapshotPageSize(2);
+        properties.setSnapshotReplay(snapshotReplay);
+        properties.setGapTimeout(gapTimeout);
+        properties.setMaxStaleness(60000);
+        return new UserReplica<>(feed, UserChange::getUsername, properties);
+    }
+
+    /**
+     * 内存变更流：与 UserChangeFeed 一致，变更携带用户读取时刻的最新状态，最小可见 seq 之前的变更视为已清理
+     */
+    static class FakeFeed implements UserChangeSource {
+
+        private final Map<Long, String> users = new HashMap<>();
+        private final TreeMap<Long, Long> committed = new TreeMap<>();
+        private final Map<Long, Object[]> uncommitted = new HashMap<>();
+        private long nextSeq = 1;
+        private int snapshotCalls;
+
+        void create(Long id, String username) {
+            commit(begin(id, username));
+        }
+
+        void delete(Long id) {
+            long seq = nextSeq++;
+            users.remove(id);
+            committed.put(seq, id);
+        }
+
+        /**
+         * 分配 seq 但不提交：对变更流和快照都不可见
+         */
+        long begin(Long id, String username) {
+            long seq = nextSeq++;
+            uncommitted.put(seq, new Object[]{id, username});
+            return seq;
+        }
+
+        void commit(long seq) {
+            Object[] change = uncommitted.remove(seq);
+            users.put((Long) change[0], (String) change[1]);
+            committed.put(seq, (Long) change[0]);
+        }
+
+        long head() {
+            return committed.isEmpty() ? 0 : committed.lastKey();
+        }
+
+        void pruneBefore(long seq) {
+            committed.headMap(seq, false).clear();
+        }
+
+        @Override
+        public UserChangeBatch changes(long since, int limit) {
+            UserChangeBatch batch = new UserChangeBatch();
+            if (!committed.isEmpty() && since + 1 < committed.firstKey()) {
+                batch.setReset(true);
+                batch.setNextSince(since);
+                return batch;
+            }
+            List<UserChange> changes = new ArrayList<>();
+            for (Map.Entry<Long, Long> entry : committed.tailMap(since, false).entrySet()) {
+                if (changes.size() == limit) {
+                    break;
+                }
+                changes.add(user(entry.getKey(), entry.getValue()));
+            }
+            batch.setChanges(changes);
+            batch.setNextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq());
+            batch.setHasMore(changes.size() == limit);
+            return batch;
+        }
+
+        @Override
+        public UserSnapshotPage snapshot(Long cursor, int size) {
+            if (cursor == null) {
+                snapshotCalls++;
+            }
+            UserSnapshotPage page = new UserSnapshotPage();
+            page.setHeadSeq(head());
+            List<UserChange> result = new ArrayList<>();
+            for (Long id : new TreeMap<>(users).tailMap(cursor != null ? cursor : 0L, false).keySet()) {
+                if (result.size() == size) {
+                    break;
+                }
+                result.add(user(page.getHeadSeq(), id));
+            }
+            page.setUsers(result);
+            page.setNextCursor(result.size() == size ? result.get(result.size() - 1).getId() : null);
+            return page;
+        }
+
+        private UserChange user(long seq, Long id) {
+            UserChange change = new UserChange();
+            change.setSeq(seq);
+            change.setId(id);
+            change.setUsername(users.get(id));
+            return change;
+        }
+    }
+}
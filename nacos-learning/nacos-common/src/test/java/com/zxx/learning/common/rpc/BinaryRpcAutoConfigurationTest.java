@@ -0,0 +1,152 @@
+package com.zxx.learning.common.rpc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+import com.zxx.learning.common.web.ConditionalGet;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@link BinaryRpcAutoConfiguration} 测试：按 Accept 协商 Smile / JSON 时响应带 Vary: Accept（包括 304），
+ * 以及 Smile 与 JSON 的体积、编解码耗时对比（耗时只打印，受机器影响不做断言）
+ *
+ * @author zxx
+ */
+@Slf4j
+class BinaryRpcAutoConfigurationTest {
+
+    private static final int USERS = 200;
+    private static final int WARMUP = 2000;
+    private static final int ROUNDS = 10000;
+    private static final LocalDateTime UPDATE_TIME = LocalDateTime.of(2024, 1, 1, 12, 0, 0, 123_000_000);
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        mockMvc = MockMvcBuilders.standaloneSetup(new SnapshotController())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(),
+                        BinaryRpcAutoConfiguration.smileConverter(
+                                beanFactory.getBeanProvider(Jackson2ObjectMapperBuilder.class)))
+                .addInterceptors(new BinaryRpcAutoConfiguration.VaryAcceptInterceptor())
+                .build();
+    }
+
+    @Test
+    void jsonResponseVariesOnAccept() throws Exception {
+        mockMvc.perform(get("/snapshot").header(HttpHeaders.ACCEPT, "application/json"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/json"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andExpect(header().exists(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void smileResponseSharesEtagAndVariesOnAccept() throws Exception {
+        String jsonEtag = mockMvc.perform(get("/snapshot").header(HttpHeaders.ACCEPT, "application/json"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/snapshot").header(HttpHeaders.ACCEPT, BinaryRpcAutoConfiguration.FEIGN_ACCEPT))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, BinaryRpcAutoConfiguration.SMILE_MEDIA_TYPE))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                // 两种编码的弱 ETag 相同，缓存只能靠 Vary 区分
+                .andExpect(header().string(HttpHeaders.ETAG, jsonEtag));
+    }
+
+    @Test
+    void notModifiedKeepsVary() throws Exception {
+        MvcResult first = mockMvc.perform(get("/snapshot")).andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/snapshot").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+    }
+
+    /**
+     * 一页快照（{@value #USERS} 个用户）的体积与编码 + 解码耗时
+     */
+    @Test
+    void smileComparedWithJson() throws Exception {
+        ObjectMapper json = new ObjectMapper();
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+        UserSnapshotPage page = snapshot();
+        byte[] jsonBytes = json.writeValueAsBytes(page);
+        byte[] smileBytes = smile.writeValueAsBytes(page);
+        assertEquals(USERS, smile.readValue(smileBytes, UserSnapshotPage.class).getUsers().size());
+        assertTrue(smileBytes.length < jsonBytes.length);
+
+        for (int i = 0; i < WARMUP; i++) {
+            json.readValue(json.writeValueAsBytes(page), UserSnapshotPage.class);
+            smile.readValue(smile.writeValueAsBytes(page), UserSnapshotPage.class);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            json.readValue(json.writeValueAsBytes(page), UserSnapshotPage.class);
+        }
+        long jsonNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            smile.readValue(smile.writeValueAsBytes(page), UserSnapshotPage.class);
+        }
+        long smileNanos = System.nanoTime() - start;
+
+        log.info("快照页（{} 个用户）: json={}B / {}us, smile={}B / {}us，每秒 json={} 页, smile={} 页",
+                USERS, jsonBytes.length, jsonNanos / 1000 / ROUNDS, smileBytes.length, smileNanos / 1000 / ROUNDS,
+                ROUNDS * 1_000_000_000L / jsonNanos, ROUNDS * 1_000_000_000L / smileNanos);
+    }
+
+    private static UserSnapshotPage snapshot() {
+        UserSnapshotPage page = new UserSnapshotPage();
+        page.setHeadSeq(1_000_000L);
+        for (int i = 0; i < USERS; i++) {
+            UserChange user = new UserChange();
+            user.setSeq(1_000_000L);
+            user.setId(10_000L + i);
+            user.setUsername("user" + i);
+            user.setRole(i % 10 == 0 ? "admin" : "user");
+            user.setEmail("user" + i + "@example.com");
+            user.setStatus(1);
+            page.getUsers().add(user);
+        }
+        page.setNextCursor(10_000L + USERS);
+        return page;
+    }
+
+    @RestController
+    static class SnapshotController {
+
+        @GetMapping("/snapshot")
+        public UserSnapshotPage snapshot(WebRequest request) {
+            if (ConditionalGet.checkNotModified(request, 1L, UPDATE_TIME)) {
+                return null;
+            }
+            return BinaryRpcAutoConfigurationTest.snapshot();
+        }
+    }
+}
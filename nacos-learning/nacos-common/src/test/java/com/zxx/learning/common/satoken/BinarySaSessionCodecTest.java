@@ -0,0 +1,175 @@
+package com.zxx.learning.common.satoken;
+
+import cn.dev33.satoken.listener.SaTokenEventCenter;
+import cn.dev33.satoken.listener.SaTokenListenerForSimple;
+import cn.dev33.satoken.session.SaSession;
+import cn.dev33.satoken.session.TokenSign;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link BinarySaSessionCodec} 测试：往返一致性、解码副作用，以及与 JDK 序列化的体积 / 耗时对比
+ *
+ * @author zxx
+ */
+@Slf4j
+class BinarySaSessionCodecTest {
+
+    private static final int SIGN_COUNT = 5;
+    private static final int WARMUP = 2000;
+    private static final int ROUNDS = 20000;
+
+    /**
+     * 与 Spring Boot 默认配置一致：忽略 SaSession 中只有 getter 的派生属性
+     */
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final BinarySaSessionCodec codec = new BinarySaSessionCodec(objectMapper, 512);
+
+    @Test
+    void roundTripKeepsIdTokenSignsAndAttributes() throws Exception {
+        SaSession session = populatedSession();
+
+        SaSession decoded = codec.decode(codec.encode(session));
+
+        assertEquals(session.getId(), decoded.getId());
+        assertEquals(session.getCreateTime(), decoded.getCreateTime());
+        assertEquals(SIGN_COUNT, decoded.getTokenSignList().size());
+        for (int i = 0; i < SIGN_COUNT; i++) {
+            TokenSign expected = session.getTokenSignList().get(i);
+            TokenSign actual = decoded.getTokenSignList().get(i);
+            assertEquals(expected.getValue(), actual.getValue());
+            assertEquals(expected.getDevice(), actual.getDevice());
+        }
+        assertEquals("zhangsan", decoded.get("username"));
+        assertEquals(42, decoded.get("loginCount"));
+        assertEquals(1700000000000L, decoded.get("lastLoginAt"));
+        assertEquals(Boolean.TRUE, decoded.get("mfa"));
+        assertEquals(0.75, decoded.get("score"));
+        // 非基础类型按 JSON 写入，读回与历史 JSON 格式一致（Map / List）
+        assertEquals(Arrays.asList("admin", "user"), decoded.get("roles"));
+        assertEquals("shanghai", ((Map<?, ?>) decoded.get("profile")).get("city"));
+    }
+
+    @Test
+    void roundTripAboveCompressThreshold() throws Exception {
+        SaSession session = populatedSession();
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            large.append("permission:").append(i).append(',');
+        }
+        session.set("permissions", large.toString());
+
+        byte[] bytes = codec.encode(session);
+        SaSession decoded = codec.decode(bytes);
+
+        assertEquals(1, bytes[2] & 1, "超过阈值时应压缩");
+        assertEquals(large.toString(), decoded.get("permissions"));
+        assertEquals(SIGN_COUNT, decoded.getTokenSignList().size());
+    }
+
+    @Test
+    void decodeKeepsVectorAndDoesNotFireCreateEvent() throws Exception {
+        byte[] binary = codec.encode(populatedSession());
+        byte[] json = objectMapper.writeValueAsBytes(populatedSession());
+        final AtomicInteger created = new AtomicInteger();
+        SaTokenListenerForSimple listener = new SaTokenListenerForSimple() {
+            @Override
+            public void doCreateSession(String id) {
+                created.incrementAndGet();
+            }
+        };
+        SaTokenEventCenter.registerListener(listener);
+        try {
+            assertTrue(codec.decode(binary).getTokenSignList() instanceof Vector);
+            assertTrue(codec.decode(json).getTokenSignList() instanceof Vector);
+            assertTrue(new JsonSaSessionCodec(objectMapper).decode(json).getTokenSignList() instanceof Vector);
+        } finally {
+            SaTokenEventCenter.removeListener(listener);
+        }
+        assertEquals(0, created.get());
+    }
+
+    /**
+     * 与 JDK 序列化对比体积与编解码耗时（耗时只打印，受机器影响不做断言）
+     */
+    @Test
+    void comparedWithJdkSerialization() throws Exception {
+        SaSession session = populatedSession();
+        byte[] binary = codec.encode(session);
+        byte[] jdk = jdkEncode(session);
+        byte[] json = objectMapper.writeValueAsBytes(session);
+        log.info("SaSession 体积: binary={}B, json={}B, jdk={}B", binary.length, json.length, jdk.length);
+        assertTrue(binary.length < jdk.length);
+        assertTrue(binary.length < json.length);
+
+        for (int i = 0; i < WARMUP; i++) {
+            codec.decode(codec.encode(session));
+            jdkDecode(jdkEncode(session));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            codec.decode(codec.encode(session));
+        }
+        long binaryNanos = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            jdkDecode(jdkEncode(session));
+        }
+        long jdkNanos = System.nanoTime() - start;
+        log.info("SaSession 编码 + 解码平均耗时: binary={}us, jdk={}us（{} 次）",
+                String.format("%.1f", binaryNanos / 1000.0 / ROUNDS), String.format("%.1f", jdkNanos / 1000.0 / ROUNDS),
+                ROUNDS);
+    }
+
+    private static SaSession populatedSession() {
+        SaSession session = new SaSession();
+        session.setId("satoken:login:session:10001");
+        session.setCreateTime(1700000000000L);
+        List<TokenSign> tokenSigns = session.getTokenSignList();
+        for (int i = 0; i < SIGN_COUNT; i++) {
+            tokenSigns.add(new TokenSign("3f2a9c1e-7b4d-4e8a-9c55-0d1e2f3a4b5" + i, i % 2 == 0 ? "PC" : "APP"));
+        }
+        session.set("username", "zhangsan");
+        session.set("loginCount", 42);
+        session.set("lastLoginAt", 1700000000000L);
+        session.set("mfa", true);
+        session.set("score", 0.75);
+        session.set("roles", Arrays.asList("admin", "user"));
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("city", "shanghai");
+        profile.put("level", 3);
+        session.set("profile", profile);
+        return session;
+    }
+
+    private static byte[] jdkEncode(SaSession session) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(session);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static SaSession jdkDecode(byte[] bytes) throws Exception {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (SaSession) in.readObject();
+        }
+    }
+}
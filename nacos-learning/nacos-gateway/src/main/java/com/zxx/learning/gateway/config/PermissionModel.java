@@ -0,0 +1,345 @@
+package com.zxx.learning.gateway.config;
+
+import lombok.Getter;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 编译后的权限模型（只读，配置变化时整体替换）
+ *
+ * <p>角色与权限点统一分配位编号，每个角色编译为固定长度的位图：自身角色位 + 自身权限点 + 继承角色的全部位。
+ * 路径规则编译为两个位图：anyOf（所需角色，拥有任意一个即可）与 allOf（所需权限点，必须全部拥有），
+ * 鉴权时只需对用户位图做按位与，耗时与角色、规则数量无关。</p>
+ *
+ * @author zxx
+ */
+public class PermissionModel {
+
+    /**
+     * 未配置任何路径规则时的默认规则
+     */
+    private static final Map<String, String> DEFAULT_PATH_ROLES = new LinkedHashMap<>();
+
+    static {
+        DEFAULT_PATH_ROLES.put("/api/admin/**", "admin");
+        DEFAULT_PATH_ROLES.put("/api/auth/admin/**", "admin");
+        DEFAULT_PATH_ROLES.put("/api/user/delete", "admin");
+        DEFAULT_PATH_ROLES.put("/api/user/**", "user,admin");
+        DEFAULT_PATH_ROLES.put("/api/order/**", "user,admin");
+    }
+
+    /**
+     * 角色组合 -> 位图 的缓存上限（组合数量通常很少）
+     */
+    private static final int MAX_ROLE_COMBINATIONS = 1024;
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * 位图长度（long 个数），所有位图等长
+     */
+    private final int words;
+    private final Map<String, long[]> roleMasks;
+    private final List<String> bitNames;
+    private final Set<Integer> permissionBits;
+    private final List<Rule> rules;
+    private final int pathCacheSize;
+    private final Map<String, Requirement> pathCache = new ConcurrentHashMap<>();
+    private final Map<String, long[]> comboCache = new ConcurrentHashMap<>();
+
+    private PermissionModel(int words, Map<String, long[]> roleMasks, List<String> bitNames,
+                            Set<Integer> permissionBits, List<Rule> rules, int pathCacheSize) {
+        this.words = words;
+        this.roleMasks = roleMasks;
+        this.bitNames = bitNames;
+        this.permissionBits = permissionBits;
+        this.rules = rules;
+        this.pathCacheSize = pathCacheSize;
+    }
+
+    /**
+     * 编译权限配置
+     *
+     * @throws IllegalStateException 角色继承存在循环时
+     */
+    public static PermissionModel compile(PermissionProperties properties) {
+        Map<String, String> pathRoles = properties.getPathRoles();
+        if (pathRoles.isEmpty() && properties.getPathPermissions().isEmpty()) {
+            pathRoles = DEFAULT_PATH_ROLES;
+        }
+
+        // 1. 分配位编号：先角色后权限点
+        Map<String, Integer> roleBits = new LinkedHashMap<>();
+        Map<String, Integer> permBits = new LinkedHashMap<>();
+        List<String> bitNames = new ArrayList<>();
+        for (String roles : pathRoles.values()) {
+            for (String role : split(roles)) {
+                assign(roleBits, bitNames, role);
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : properties.getRoleHierarchy().entrySet()) {
+            assign(roleBits, bitNames, entry.getKey().trim());
+            for (String child : trimmed(entry.getValue())) {
+                assign(roleBits, bitNames, child);
+            }
+        }
+        for (String role : properties.getRolePermissions().keySet()) {
+            assign(roleBits, bitNames, role.trim());
+        }
+        for (List<String> permissions : properties.getRolePermissions().values()) {
+            for (String permission : trimmed(permissions)) {
+                assign(permBits, bitNames, permission);
+            }
+        }
+        for (String permissions : properties.getPathPermissions().values()) {
+            for (String permission : split(permissions)) {
+                assign(permBits, bitNames, permission);
+            }
+        }
+        int words = Math.max(1, (bitNames.size() + 63) >>> 6);
+
+        // 2. 展开角色继承
+        Map<String, List<String>> hierarchy = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : properties.getRoleHierarchy().entrySet()) {
+            hierarchy.put(entry.getKey().trim(), trimmed(entry.getValue()));
+        }
+        Map<String, List<String>> rolePermissions = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : properties.getRolePermissions().entrySet()) {
+            rolePermissions.put(entry.getKey().trim(), trimmed(entry.getValue()));
+        }
+        Map<String, long[]> roleMasks = new LinkedHashMap<>();
+        for (String role : roleBits.keySet()) {
+            expand(role, words, roleBits, permBits, hierarchy, rolePermissions, roleMasks, new LinkedHashSet<String>());
+        }
+
+        // 3. 编译路径规则（保持配置顺序）
+        Map<String, Rule> rules = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : pathRoles.entrySet()) {
+            Rule rule = rules.computeIfAbsent(entry.getKey().trim(), p -> new Rule(p, words));
+            for (String role : split(entry.getValue())) {
+                set(rule.anyOf, roleBits.get(role));
+                rule.roles.add(role);
+            }
+        }
+        for (Map.Entry<String, String> entry : properties.getPathPermissions().entrySet()) {
+            Rule rule = rules.computeIfAbsent(entry.getKey().trim(), p -> new Rule(p, words));
+            for (String permission : split(entry.getValue())) {
+                set(rule.allOf, permBits.get(permission));
+                rule.permissions.add(permission);
+            }
+        }
+
+        return new PermissionModel(words, Collections.unmodifiableMap(roleMasks),
+                Collections.unmodifiableList(bitNames), new HashSet<>(permBits.values()),
+                new ArrayList<>(rules.values()), properties.getPathCacheSize());
+    }
+
+    /**
+     * 角色列表对应的有效权限位图（含继承）
+     */
+    public long[] maskOf(Collection<String> roles) {
+        if (roles == null || roles.isEmpty()) {
+            return new long[words];
+        }
+        String key = String.join(",", roles);
+        long[] cached = comboCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long[] mask = new long[words];
+        for (String role : roles) {
+            long[] roleMask = roleMasks.get(role);
+            if (roleMask != null) {
+                for (int i = 0; i < words; i++) {
+                    mask[i] |= roleMask[i];
+                }
+            }
+        }
+        if (comboCache.size() < MAX_ROLE_COMBINATIONS) {
+            comboCache.put(key, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * 请求路径的鉴权要求（所有匹配规则的合并结果，按路径缓存）
+     */
+    public Requirement requirementFor(String path) {
+        Requirement cached = pathCache.get(path);
+        if (cached != null) {
+            return cached;
+        }
+        long[] anyOf = new long[words];
+        long[] allOf = new long[words];
+        Set<String> roles = new LinkedHashSet<>();
+        Set<String> permissions = new LinkedHashSet<>();
+        for (Rule rule : rules) {
+            if (pathMatcher.match(rule.pattern, path)) {
+                for (int i = 0; i < words; i++) {
+                    anyOf[i] |= rule.anyOf[i];
+                    allOf[i] |= rule.allOf[i];
+                }
+                roles.addAll(rule.roles);
+                permissions.addAll(rule.permissions);
+            }
+        }
+        Requirement requirement = roles.isEmpty() && permissions.isEmpty()
+                ? Requirement.NONE
+                : new Requirement(anyOf, allOf, new ArrayList<>(roles), new ArrayList<>(permissions));
+        if (pathCache.size() < pathCacheSize) {
+            pathCache.put(path, requirement);
+        }
+        return requirement;
+    }
+
+    /**
+     * 位图中包含的权限点名称
+     */
+    public List<String> permissionsOf(long[] mask) {
+        List<String> permissions = new ArrayList<>();
+        for (int bit = 0; bit < bitNames.size(); bit++) {
+            if (permissionBits.contains(bit) && (mask[bit >>> 6] & (1L << bit)) != 0) {
+                permissions.add(bitNames.get(bit));
+            }
+        }
+        return permissions;
+    }
+
+    private static long[] expand(String role, int words, Map<String, Integer> roleBits, Map<String, Integer> permBits,
+                                 Map<String, List<String>> hierarchy, Map<String, List<String>> rolePermissions,
+                                 Map<String, long[]> roleMasks, Set<String> visiting) {
+        long[] mask = roleMasks.get(role);
+        if (mask != null) {
+            return mask;
+        }
+        if (!visiting.add(role)) {
+            throw new IllegalStateException("角色继承存在循环: " + visiting + " -> " + role);
+        }
+        mask = new long[words];
+        set(mask, roleBits.get(role));
+        List<String> permissions = rolePermissions.get(role);
+        if (permissions != null) {
+            for (String permission : permissions) {
+                set(mask, permBits.get(permission));
+            }
+        }
+        List<String> children = hierarchy.get(role);
+        if (children != null) {
+            for (String child : children) {
+                long[] childMask = expand(child, words, roleBits, permBits, hierarchy, rolePermissions, roleMasks, visiting);
+                for (int i = 0; i < words; i++) {
+                    mask[i] |= childMask[i];
+                }
+            }
+        }
+        visiting.remove(role);
+        roleMasks.put(role, mask);
+        return mask;
+    }
+
+    private static void assign(Map<String, Integer> bits, List<String> bitNames, String name) {
+        if (!bits.containsKey(name)) {
+            bits.put(name, bitNames.size());
+            bitNames.add(name);
+        }
+    }
+
+    private static void set(long[] mask, Integer bit) {
+        if (bit != null) {
+            mask[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static List<String> split(String value) {
+        List<String> result = new ArrayList<>();
+        if (value != null) {
+            for (String item : value.split(",")) {
+                if (StringUtils.hasText(item)) {
+                    result.add(item.trim());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static List<String> trimmed(List<String> values) {
+        List<String> result = new ArrayList<>();
+        if (values != null) {
+            for (String value : values) {
+                result.addAll(split(value));
+            }
+        }
+        return result;
+    }
+
+    private static class Rule {
+        private final String pattern;
+        private final long[] anyOf;
+        private final long[] allOf;
+        private final List<String> roles = new ArrayList<>();
+        private final List<String> permissions = new ArrayList<>();
+
+        Rule(String pattern, int words) {
+            this.pattern = pattern;
+            this.anyOf = new long[words];
+            this.allOf = new long[words];
+        }
+    }
+
+    /**
+     * 路径的鉴权要求
+     */
+    public static class Requirement {
+
+        /**
+         * 无任何要求（只需登录）
+         */
+        public static final Requirement NONE = new Requirement(new long[0], new long[0],
+                Collections.<String>emptyList(), Collections.<String>emptyList());
+
+        private final long[] anyOf;
+        private final long[] allOf;
+        @Getter
+        private final List<String> roles;
+        @Getter
+        private final List<String> permissions;
+        private final boolean anyOfEmpty;
+
+        Requirement(long[] anyOf, long[] allOf, List<String> roles, List<String> permissions) {
+            this.anyOf = anyOf;
+            this.allOf = allOf;
+            this.roles = roles;
+            this.permissions = permissions;
+            this.anyOfEmpty = roles.isEmpty();
+        }
+
+        public boolean isEmpty() {
+            return this == NONE;
+        }
+
+        /**
+         * 用户位图是否满足要求：拥有 anyOf 中任意一位，且拥有 allOf 中全部位
+         */
+        public boolean isSatisfiedBy(long[] mask) {
+            boolean any = anyOfEmpty;
+            for (int i = 0; i < allOf.length; i++) {
+                if ((mask[i] & allOf[i]) != allOf[i]) {
+                    return false;
+                }
+                any |= (mask[i] & anyOf[i]) != 0;
+            }
+            return any;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.zxx.learning.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 路径权限配置（与 {@link IgnoreUrlsConfig} 共用 gateway.auth 前缀）
+ *
+ * <p>配置在加载 / Nacos 刷新时由 {@link PermissionService} 编译为 {@link PermissionModel}，
+ * 请求鉴权不再逐条解析配置。路径作为 Map 的 key 时需要写成 "[/api/user/**]" 形式，否则 / 和 * 会被去掉。</p>
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "gateway.auth")
+public class PermissionProperties {
+
+    /**
+     * 路径 -> 所需角色（逗号分隔，拥有任意一个即可，继承的角色同样生效），为空时使用内置的默认规则
+     */
+    private Map<String, String> pathRoles = new LinkedHashMap<>();
+
+    /**
+     * 路径 -> 所需权限点（逗号分隔，必须全部拥有）
+     */
+    private Map<String, String> pathPermissions = new LinkedHashMap<>();
+
+    /**
+     * 角色继承：角色 -> 被包含的角色，例如 admin: [user] 表示 admin 拥有 user 的全部角色与权限点
+     */
+    private Map<String, List<String>> roleHierarchy = new LinkedHashMap<>();
+
+    /**
+     * 角色 -> 权限点
+     */
+    private Map<String, List<String>> rolePermissions = new LinkedHashMap<>();
+
+    /**
+     * 会话用户权限位缓存时间，单位毫秒（会话吊销广播会立即清除对应用户的缓存）
+     */
+    private long permissionCacheTtl = 5000;
+
+    /**
+     * 会话用户权限位缓存的最大用户数
+     */
+    private int permissionCacheSize = 100000;
+
+    /**
+     * 请求路径 -> 编译后鉴权要求 的缓存条数
+     */
+    private int pathCacheSize = 10000;
+}
@@ -0,0 +1,118 @@
+package com.zxx.learning.gateway.config;
+
+import cn.dev33.satoken.stp.StpUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.context.scope.refresh.RefreshScopeRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 路径鉴权服务
+ *
+ * <p>持有当前编译好的 {@link PermissionModel}，Nacos 配置刷新后重新编译并整体替换；
+ * 会话用户的有效权限位图按 loginId 短时缓存，避免每次请求都读 Redis 角色，
+ * 收到会话吊销广播时立即清除对应用户。无状态 token 的角色在 claims 中，直接计算位图。</p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PermissionService {
+
+    private final PermissionProperties properties;
+
+    private volatile PermissionModel model;
+
+    private final Map<String, CachedMask> userMasks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        model = PermissionModel.compile(properties);
+    }
+
+    /**
+     * Nacos 配置刷新后（gateway.auth 已重新绑定）重新编译；编译失败时保留旧模型
+     */
+    @EventListener(RefreshScopeRefreshedEvent.class)
+    public void onRefresh() {
+        try {
+            model = PermissionModel.compile(properties);
+            userMasks.clear();
+            log.info("权限模型已重新编译");
+        } catch (Exception e) {
+            log.error("编译权限配置异常，继续使用旧配置", e);
+        }
+    }
+
+    /**
+     * 请求路径的鉴权要求
+     */
+    public PermissionModel.Requirement requirementFor(String path) {
+        return model.requirementFor(path);
+    }
+
+    /**
+     * 检查会话用户是否满足要求（角色来自 Redis，按 loginId 缓存位图）
+     */
+    public boolean permits(String loginId, PermissionModel.Requirement requirement) {
+        if (requirement.isEmpty()) {
+            return true;
+        }
+        PermissionModel current = model;
+        long now = System.currentTimeMillis();
+        CachedMask cached = userMasks.get(loginId);
+        if (cached == null || cached.model != current || cached.expireAt < now) {
+            List<String> roles = StpUtil.getRoleList(loginId);
+            cached = new CachedMask(current, current.maskOf(roles), now + properties.getPermissionCacheTtl());
+            if (userMasks.size() >= properties.getPermissionCacheSize()) {
+                userMasks.clear();
+            }
+            userMasks.put(loginId, cached);
+        }
+        return requirement.isSatisfiedBy(cached.mask);
+    }
+
+    /**
+     * 检查角色列表（无状态 token claims）是否满足要求
+     */
+    public boolean permits(Collection<String> roles, PermissionModel.Requirement requirement) {
+        return requirement.isEmpty() || requirement.isSatisfiedBy(model.maskOf(roles));
+    }
+
+    /**
+     * 角色列表对应的权限点（含继承）
+     */
+    public List<String> permissionsOf(Collection<String> roles) {
+        PermissionModel current = model;
+        return current.permissionsOf(current.maskOf(roles));
+    }
+
+    /**
+     * 清除用户的权限位缓存（会话吊销广播）
+     */
+    public void evict(Collection<String> loginIds) {
+        for (String loginId : loginIds) {
+            userMasks.remove(loginId);
+        }
+    }
+
+    private static class CachedMask {
+        private final PermissionModel model;
+        private final long[] mask;
+        private final long expireAt;
+
+        CachedMask(PermissionModel model, long[] mask, long expireAt) {
+            this.model = model;
+            this.mask = mask;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.zxx.learning.gateway.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxx.learning.common.auth.TokenRevocationKeys;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 会话吊销广播订阅配置
+ *
+ * <p>auth-service 批量吊销会话后向 {@link TokenRevocationKeys#REVOCATION_CHANNEL} 发布事件，
+ * 每个 Gateway 实例收到后立即丢弃对应用户的本地认证状态与权限位缓存。
+ * Pub/Sub 不保证送达，丢失的事件由 {@link StatelessTokenVerifier} 的定时同步兜底。</p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Configuration
+public class RevocationListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer revocationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                     StatelessTokenVerifier statelessTokenVerifier,
+                                                                     PermissionService permissionService,
+                                                                     ObjectMapper objectMapper) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            try {
+                JsonNode event = objectMapper.readTree(new String(message.getBody(), StandardCharsets.UTF_8));
+                List<String> loginIds = new ArrayList<>();
+                for (JsonNode loginId : event.path("loginIds")) {
+                    loginIds.add(loginId.asText());
+                }
+                long revokedAt = event.path("revokedAt").asLong(System.currentTimeMillis());
+                statelessTokenVerifier.onUsersRevoked(loginIds, revokedAt);
+                permissionService.evict(loginIds);
+                log.info("收到会话吊销广播, users={}", loginIds.size());
+            } catch (Exception e) {
+                log.error("处理会话吊销广播异常", e);
+            }
+        }, new ChannelTopic(TokenRevocationKeys.REVOCATION_CHANNEL));
+        return container;
+    }
+}
@@ -1,9 +1,9 @@
 package com.zxx.learning.gateway.config;
 
 import cn.dev33.satoken.stp.StpInterface;
+import com.zxx.learning.common.redis.RedisShardRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -14,12 +14,12 @@ import java.util.Set;
 /**
  * Sa-Token 权限与角色获取实现类。
  *
- * <p>这里仅实现角色查询逻辑，权限列表返回空集合即可。</p>
+ * <p>权限点由角色按 gateway.auth.role-permissions / role-hierarchy 展开（见 {@link PermissionService}）。</p>
  *
  * Sa-Token 会自动从 Spring 容器中查找 {@link StpInterface} 实现，
  * 并通过 {@link #getRoleList(Object, String)} 获取当前登录用户的角色列表。
  *
- * 角色数据来源：Redis（与 auth-service 共享，key: sa:roles:{loginId}）
+ * 角色数据来源：Redis（与 auth-service 共享，key: sa:roles:{loginId}，按 {@link RedisShardRouter} 分片）
  *
  * @author zxx
  */
@@ -30,12 +30,13 @@ public class SaTokenStpInterfaceImpl implements StpInterface {
 
     private static final String KEY_PREFIX = "sa:roles:";
 
-    private final StringRedisTemplate redisTemplate;
+    private final RedisShardRouter shardRouter;
+
+    private final PermissionService permissionService;
 
     @Override
     public List<String> getPermissionList(Object loginId, String loginType) {
-        // 本示例不做权限点控制，返回空集合即可
-        return Collections.emptyList();
+        return permissionService.permissionsOf(getRoleList(loginId, loginType));
     }
 
     @Override
@@ -48,9 +49,13 @@ public class SaTokenStpInterfaceImpl implements StpInterface {
             return Collections.emptyList();
         }
         
-        String key = KEY_PREFIX + loginIdStr.trim();
+        final String key = KEY_PREFIX + loginIdStr.trim();
         try {
-            Set<String> roles = redisTemplate.opsForSet().members(key);
+            // 每次鉴权都会查询角色，优先读从库，未命中时回到主库
+            Set<String> roles = shardRouter.readReplica(key, template -> {
+                Set<String> members = template.opsForSet().members(key);
+                return members == null || members.isEmpty() ? null : members;
+            });
             if (roles == null || roles.isEmpty()) {
                 return Collections.emptyList();
             }
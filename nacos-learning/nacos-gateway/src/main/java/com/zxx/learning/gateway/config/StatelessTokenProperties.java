@@ -0,0 +1,41 @@
+package com.zxx.learning.gateway.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 无状态签名 token 配置（与 auth-service 保持一致）
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "auth.stateless")
+public class StatelessTokenProperties {
+
+    /**
+     * 是否启用无状态 token 校验
+     */
+    private boolean enabled = false;
+
+    /**
+     * HMAC 签名密钥，必须与 auth-service 一致
+     */
+    private String secret;
+
+    /**
+     * token 最长有效期，单位秒，用于清理过期的按用户吊销记录
+     */
+    private long timeout = 2592000;
+
+    /**
+     * 吊销集合同步间隔，单位毫秒
+     */
+    private long revocationSyncInterval = 5000;
+
+    /**
+     * 本地布隆过滤器误判率
+     */
+    private double bloomFpp = 0.001;
+}
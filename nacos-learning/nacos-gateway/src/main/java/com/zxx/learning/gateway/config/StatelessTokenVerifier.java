@@ -0,0 +1,186 @@
+package com.zxx.learning.gateway.config;
+
+import cn.dev33.satoken.exception.NotLoginException;
+import cn.dev33.satoken.stp.StpUtil;
+import com.zxx.learning.common.auth.SignedTokenCodec;
+import com.zxx.learning.common.auth.TokenClaims;
+import com.zxx.learning.common.auth.TokenRevocationKeys;
+import com.zxx.learning.common.util.BloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 无状态签名 token 本地校验器
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>验签、过期判断全部在本地完成，请求路径上不访问 Redis</li>
+ *     <li>吊销数据由后台定时从 Redis 同步：布隆过滤器做快速排除，精确集合做最终确认</li>
+ *     <li>按用户吊销（踢人）记录 loginId -> 吊销时间，早于该时间签发的 token 失效</li>
+ *     <li>每次同步构建新的快照整体替换，读路径无锁</li>
+ *     <li>收到批量吊销广播时立即合并到当前快照，无需等待下一次定时同步</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StatelessTokenVerifier {
+
+    private final StatelessTokenProperties properties;
+    private final StringRedisTemplate redisTemplate;
+
+    private SignedTokenCodec codec;
+
+    private volatile RevocationSnapshot snapshot = RevocationSnapshot.EMPTY;
+
+    @PostConstruct
+    public void init() {
+        if (properties.isEnabled()) {
+            codec = new SignedTokenCodec(properties.getSecret());
+            syncRevocations();
+            log.info("已启用无状态 token 本地校验, syncInterval={}ms", properties.getRevocationSyncInterval());
+        }
+    }
+
+    public boolean isEnabled() {
+        return codec != null;
+    }
+
+    /**
+     * 校验无状态 token
+     *
+     * @param tokenValue token 字符串
+     * @return 声明信息
+     * @throws NotLoginException 验签失败、已过期或已吊销
+     */
+    public TokenClaims verify(String tokenValue) {
+        TokenClaims claims = codec.decode(tokenValue);
+        if (claims == null) {
+            throw NotLoginException.newInstance(StpUtil.getLoginType(), NotLoginException.INVALID_TOKEN, tokenValue);
+        }
+        if (claims.isExpired(System.currentTimeMillis())) {
+            throw NotLoginException.newInstance(StpUtil.getLoginType(), NotLoginException.TOKEN_TIMEOUT, tokenValue);
+        }
+        if (snapshot.isRevoked(claims)) {
+            throw NotLoginException.newInstance(StpUtil.getLoginType(), NotLoginException.KICK_OUT, tokenValue);
+        }
+        return claims;
+    }
+
+    /**
+     * 合并按用户吊销记录（由吊销广播触发）
+     *
+     * @param loginIds  被吊销的登录ID
+     * @param revokedAt 吊销时间（毫秒）
+     */
+    public synchronized void onUsersRevoked(Collection<String> loginIds, long revokedAt) {
+        if (!isEnabled() || loginIds == null || loginIds.isEmpty()) {
+            return;
+        }
+        snapshot = snapshot.withRevokedUsers(loginIds, revokedAt);
+        log.debug("合并吊销广播, users={}", loginIds.size());
+    }
+
+    /**
+     * 从 Redis 同步吊销集合，并清理已过期的吊销记录
+     */
+    @Scheduled(fixedDelayString = "${auth.stateless.revocation-sync-interval:5000}")
+    public void syncRevocations() {
+        if (!isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            // token 过期后吊销记录已无意义，顺带清理
+            redisTemplate.opsForZSet().removeRangeByScore(TokenRevocationKeys.REVOKED_TOKENS, 0, now);
+            Set<String> tokens = redisTemplate.opsForZSet()
+                    .rangeByScore(TokenRevocationKeys.REVOKED_TOKENS, now, Double.MAX_VALUE);
+
+            Map<Object, Object> users = redisTemplate.opsForHash().entries(TokenRevocationKeys.REVOKED_USERS);
+            Map<String, Long> revokedUsers = new HashMap<>(users.size() * 2);
+            long expiredBefore = now - properties.getTimeout() * 1000;
+            for (Map.Entry<Object, Object> entry : users.entrySet()) {
+                long revokedAt = Long.parseLong(entry.getValue().toString());
+                if (properties.getTimeout() > 0 && revokedAt < expiredBefore) {
+                    redisTemplate.opsForHash().delete(TokenRevocationKeys.REVOKED_USERS, entry.getKey());
+                    continue;
+                }
+                revokedUsers.put(entry.getKey().toString(), revokedAt);
+            }
+
+            snapshot = RevocationSnapshot.build(tokens, revokedUsers, properties.getBloomFpp());
+            log.debug("同步无状态 token 吊销集合完成, tokens={}, users={}", snapshot.tokens.size(), revokedUsers.size());
+        } catch (Exception e) {
+            // 同步失败时保留上一次快照，不影响请求校验
+            log.error("同步无状态 token 吊销集合异常", e);
+        }
+    }
+
+    /**
+     * 吊销数据快照（构建完成后只读）
+     */
+    private static final class RevocationSnapshot {
+
+        static final RevocationSnapshot EMPTY = new RevocationSnapshot(null,
+                Collections.<String>emptySet(), Collections.<String, Long>emptyMap());
+
+        private final BloomFilter bloomFilter;
+        private final Set<String> tokens;
+        private final Map<String, Long> revokedUsers;
+
+        private RevocationSnapshot(BloomFilter bloomFilter, Set<String> tokens, Map<String, Long> revokedUsers) {
+            this.bloomFilter = bloomFilter;
+            this.tokens = tokens;
+            this.revokedUsers = revokedUsers;
+        }
+
+        static RevocationSnapshot build(Set<String> tokens, Map<String, Long> revokedUsers, double fpp) {
+            Set<String> exact = tokens != null ? new HashSet<>(tokens) : Collections.<String>emptySet();
+            BloomFilter bloomFilter = null;
+            if (!exact.isEmpty()) {
+                bloomFilter = BloomFilter.create(exact.size(), fpp);
+                for (String jti : exact) {
+                    bloomFilter.put(jti);
+                }
+            }
+            return new RevocationSnapshot(bloomFilter, exact, revokedUsers);
+        }
+
+        RevocationSnapshot withRevokedUsers(Collection<String> loginIds, long revokedAt) {
+            Map<String, Long> merged = new HashMap<>((revokedUsers.size() + loginIds.size()) * 2);
+            merged.putAll(revokedUsers);
+            for (String loginId : loginIds) {
+                Long previous = merged.get(loginId);
+                if (previous == null || previous < revokedAt) {
+                    merged.put(loginId, revokedAt);
+                }
+            }
+            return new RevocationSnapshot(bloomFilter, tokens, merged);
+        }
+
+        boolean isRevoked(TokenClaims claims) {
+            if (!revokedUsers.isEmpty()) {
+                Long revokedAt = revokedUsers.get(claims.getLoginId());
+                if (revokedAt != null && claims.getIssuedAt() <= revokedAt) {
+                    return true;
+                }
+            }
+            // 布隆过滤器判定不存在时一定未吊销，绝大多数请求在此返回
+            return bloomFilter != null && bloomFilter.mightContain(claims.getJti()) && tokens.contains(claims.getJti());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.zxx.learning.order.config;
+
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+import com.zxx.learning.common.entity.User;
+import com.zxx.learning.common.replica.UserChangeSource;
+import com.zxx.learning.common.replica.UserReplica;
+import com.zxx.learning.common.replica.UserReplicaProperties;
+import com.zxx.learning.order.feign.UserServiceClient;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 本地用户副本配置：订单填充用户信息时优先读本地副本，副本过期时回退到调用 user-service
+ *
+ * <p>本地只保存订单需要的字段（ID、用户名、邮箱、状态）。</p>
+ *
+ * @author zxx
+ */
+@Configuration
+public class UserReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties(prefix = "order.user-replica")
+    public UserReplicaProperties userReplicaProperties() {
+        return new UserReplicaProperties();
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "order.user-replica", name = "enabled", havingValue = "true")
+    public UserReplica<User> userReplica(UserServiceClient userServiceClient, UserReplicaProperties properties) {
+        UserChangeSource source = new UserChangeSource() {
+            @Override
+            public UserChangeBatch changes(long since, int limit) {
+                return unwrap(userServiceClient.getChanges(since, limit));
+            }
+
+            @Override
+            public UserSnapshotPage snapshot(Long cursor, int size) {
+                return unwrap(userServiceClient.getSnapshot(cursor, size));
+            }
+        };
+        return new UserReplica<>(source, UserReplicaConfig::toUser, properties);
+    }
+
+    private static User toUser(UserChange change) {
+        User user = new User();
+        user.setId(change.getId());
+        user.setUsername(change.getUsername());
+        user.setEmail(change.getEmail());
+        user.setStatus(change.getStatus());
+        return user;
+    }
+
+    private static <T> T unwrap(ApiResult<T> result) {
+        if (result == null || !result.isSuccess()) {
+            throw new IllegalStateException("调用 user-service 变更流失败: " + (result != null ? result.getMsg() : "无响应"));
+        }
+        return result.getData();
+    }
+}
@@ -1,9 +1,18 @@
 package com.zxx.learning.order.feign;
 
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
 import com.zxx.learning.common.entity.User;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import java.util.Collection;
+import java.util.Map;
 
 /**
  * 用户服务 Feign 客户端
@@ -22,4 +31,32 @@ public interface UserServiceClient {
      */
     @GetMapping("/{id}")
     User getUserById(@PathVariable("id") Long id);
+
+    /**
+     * 根据用户ID批量获取用户信息（单次最多 1000 个）
+     *
+     * @param ids 用户ID列表
+     * @return 用户ID -> 用户信息，未找到的ID不包含在结果中
+     */
+    @PostMapping("/batch")
+    ApiResult<Map<Long, User>> getUsersByIds(@RequestBody Collection<Long> ids);
+
+    /**
+     * 读取用户变更流（用于维护本地用户副本）
+     *
+     * @param since 上次读取到的变更序号
+     * @param limit 本页最大条数
+     */
+    @GetMapping("/changes")
+    ApiResult<UserChangeBatch> getChanges(@RequestParam("since") long since, @RequestParam("limit") int limit);
+
+    /**
+     * 读取用户全量快照的一页
+     *
+     * @param cursor 上一页返回的游标，首页为 null
+     * @param size   每页条数
+     */
+    @GetMapping("/changes/snapshot")
+    ApiResult<UserSnapshotPage> getSnapshot(@RequestParam(value = "cursor", required = false) Long cursor,
+                                            @RequestParam("size") int size);
 }
@@ -1,6 +1,9 @@
 package com.zxx.learning.order.service;
 
+import com.zxx.learning.common.dto.ApiResult;
 import com.zxx.learning.common.entity.Order;
+import com.zxx.learning.common.entity.User;
+import com.zxx.learning.common.replica.UserReplica;
 import com.zxx.learning.order.feign.UserServiceClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,7 +11,11 @@ import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -21,8 +28,19 @@ import java.util.stream.Collectors;
 @Service
 public class OrderService {
 
+    /**
+     * 批量查询用户时每次调用的最大ID数量（与 user-service 的限制一致）
+     */
+    private static final int USER_BATCH_SIZE = 1000;
+
     @Autowired
     private UserServiceClient userServiceClient;
+
+    /**
+     * 本地用户副本（order.user-replica.enabled=true 时存在），过期时回退到调用 user-service
+     */
+    @Autowired(required = false)
+    private UserReplica<User> userReplica;
     
     // 模拟数据库，使用内存存储
     private final List<Order> orderDatabase = new ArrayList<>();
@@ -52,7 +70,9 @@ public class OrderService {
         } else {
             // 如果订单存在，通过Feign调用用户服务获取用户信息
             try {
-                order.setUser(userServiceClient.getUserById(order.getUserId()));
+                order.setUser(userReplica != null
+                        ? userReplica.lookup(order.getUserId(), userServiceClient::getUserById)
+                        : userServiceClient.getUserById(order.getUserId()));
             } catch (Exception e) {
                 log.warn("获取用户信息失败: {}", e.getMessage());
             }
@@ -120,16 +140,52 @@ public class OrderService {
                 .filter(o -> o.getUserId().equals(userId))
                 .collect(Collectors.toList());
         
-        // 为每个订单填充用户信息
-        orders.forEach(order -> {
+        // 为订单填充用户信息（去重后批量查询，一次调用）
+        fillUsers(orders);
+        
+        return orders;
+    }
+    
+    /**
+     * 批量填充订单的用户信息：收集去重后的 userId，优先读本地用户副本，否则按批次调用 user-service，而不是每个订单调用一次
+     */
+    private void fillUsers(List<Order> orders) {
+        List<Long> userIds = orders.stream()
+                .map(Order::getUserId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, User> users = userReplica != null
+                ? userReplica.lookupAll(userIds, this::fetchUsers)
+                : fetchUsers(userIds);
+        for (Order order : orders) {
+            User user = users.get(order.getUserId());
+            if (user != null) {
+                order.setUser(user);
+            }
+        }
+    }
+
+    private Map<Long, User> fetchUsers(Collection<Long> ids) {
+        List<Long> userIds = new ArrayList<>(ids);
+        Map<Long, User> users = new HashMap<>();
+        for (int from = 0; from < userIds.size(); from += USER_BATCH_SIZE) {
+            List<Long> chunk = userIds.subList(from, Math.min(from + USER_BATCH_SIZE, userIds.size()));
             try {
-                order.setUser(userServiceClient.getUserById(userId));
+                ApiResult<Map<Long, User>> result = userServiceClient.getUsersByIds(chunk);
+                if (result != null && result.isSuccess() && result.getData() != null) {
+                    users.putAll(result.getData());
+                } else {
+                    log.warn("批量获取用户信息失败: {}", result != null ? result.getMsg() : "无响应");
+                }
             } catch (Exception e) {
-                log.warn("获取用户信息失败: {}", e.getMessage());
+                log.warn("批量获取用户信息失败: {}", e.getMessage());
             }
-        });
-        
-        return orders;
+        }
+        return users;
     }
     
     /**
@@ -3,10 +3,12 @@ package com.zxx.learning.merchant.controller;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.zxx.learning.common.entity.Merchant;
+import com.zxx.learning.common.web.ConditionalGet;
 import com.zxx.learning.merchant.service.MerchantService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -27,20 +29,29 @@ public class MerchantController {
     /**
      * 根据ID获取商家表
      * GET /merchant/{id}
+     * 支持 If-None-Match / If-Modified-Since，未变化时返回 304
      */
     @GetMapping("/{id}")
-    public Merchant getById(@PathVariable Long id) {
+    public Merchant getById(@PathVariable Long id, WebRequest webRequest) {
         log.info("根据ID获取商家表，ID: {}", id);
-        return merchantService.getById(id);
+        Merchant merchant = merchantService.getById(id);
+        if (merchant != null && ConditionalGet.checkNotModified(webRequest, id, merchant.getUpdateTime())) {
+            return null;
+        }
+        return merchant;
     }
     
     /**
      * 获取商家表列表
      * GET /merchant/list
+     * 按集合版本（总数 + 最大ID + 最大更新时间）做条件 GET，未变化时返回 304
      */
     @GetMapping("/list")
-    public List<Merchant> list() {
+    public List<Merchant> list(WebRequest webRequest) {
         log.info("获取商家表列表");
+        if (ConditionalGet.checkNotModified(webRequest, merchantService.collectionVersion())) {
+            return null;
+        }
         return merchantService.list();
     }
     
@@ -50,8 +61,12 @@ public class MerchantController {
      */
     @GetMapping("/page")
     public Page<Merchant> page(@RequestParam(defaultValue = "1") Integer current,
-                                   @RequestParam(defaultValue = "10") Integer size) {
+                                   @RequestParam(defaultValue = "10") Integer size,
+                                   WebRequest webRequest) {
         log.info("分页查询商家表，current: {}, size: {}", current, size);
+        if (ConditionalGet.checkNotModified(webRequest, merchantService.collectionVersion())) {
+            return null;
+        }
         return merchantService.page(new Page<>(current, size));
     }
     
@@ -2,6 +2,7 @@ package com.zxx.learning.merchant.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.zxx.learning.common.entity.Merchant;
+import com.zxx.learning.common.web.ConditionalGet;
 
 /**
  * 商家表服务接口
@@ -9,4 +10,9 @@ import com.zxx.learning.common.entity.Merchant;
  * @author code-generator
  */
 public interface MerchantService extends IService<Merchant> {
+
+    /**
+     * 商家集合版本（总数 + 最大ID + 最大更新时间），用于列表接口的条件 GET
+     */
+    ConditionalGet.Version collectionVersion();
 }
@@ -1,7 +1,9 @@
 package com.zxx.learning.merchant.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.zxx.learning.common.entity.Merchant;
+import com.zxx.learning.common.web.ConditionalGet;
 import com.zxx.learning.merchant.mapper.MerchantMapper;
 import com.zxx.learning.merchant.service.MerchantService;
 import org.springframework.stereotype.Service;
@@ -13,4 +15,10 @@ import org.springframework.stereotype.Service;
  */
 @Service
 public class MerchantServiceImpl extends ServiceImpl<MerchantMapper, Merchant> implements MerchantService {
+
+    @Override
+    public ConditionalGet.Version collectionVersion() {
+        return ConditionalGet.Version.of(getMap(new QueryWrapper<Merchant>()
+                .select("COUNT(*) AS cnt", "MAX(id) AS rev", "MAX(update_time) AS updated")));
+    }
 }
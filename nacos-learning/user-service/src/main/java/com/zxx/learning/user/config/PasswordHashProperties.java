@@ -0,0 +1,36 @@
+package com.zxx.learning.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 密码哈希线程池配置
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user.password-hash")
+public class PasswordHashProperties {
+
+    /**
+     * 线程数，小于等于 0 时使用 CPU 核数（BCrypt 为纯 CPU 计算，超过核数没有收益）
+     */
+    private int threads = 0;
+
+    /**
+     * 等待队列长度，队列满时直接拒绝并提示稍后重试
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * 请求线程等待结果的最长时间，单位毫秒
+     */
+    private long waitTimeout = 3000;
+
+    /**
+     * 批量导入专用哈希线程数，小于等于 0 时使用 CPU 核数的一半（与登录使用的线程池隔离，导入期间登录不受影响）
+     */
+    private int importThreads = 0;
+}
@@ -0,0 +1,170 @@
+package com.zxx.learning.user.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 密码哈希专用线程池
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>BCrypt 的 encode / matches 都是重 CPU 计算，放到按 CPU 核数设置的独立线程池中执行，
+ *     登录高峰时不会占满 Tomcat 线程、拖慢 /user/{id} 等其他接口</li>
+ *     <li>等待队列有界，队列满时立即抛出 {@link BusyException}，调用方返回“稍后重试”</li>
+ *     <li>批量导入使用独立的 import 线程池（{@link #encodeAll}），队列满时由调用线程执行，自然形成背压，不占用登录线程池</li>
+ *     <li>指标：user.password.hash（哈希耗时）、user.password.hash.queue（排队数）、
+ *     user.password.hash.active（执行中）、user.password.hash.rejected（拒绝次数）</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PasswordHasher {
+
+    private final PasswordHashProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+
+    private ThreadPoolExecutor executor;
+    private ThreadPoolExecutor importExecutor;
+    private Timer matchesTimer;
+    private Timer encodeTimer;
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        int threads = properties.getThreads() > 0
+                ? properties.getThreads() : Runtime.getRuntime().availableProcessors();
+        final AtomicInteger index = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(Math.max(1, properties.getQueueCapacity())),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-" + index.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        int importThreads = properties.getImportThreads() > 0
+                ? properties.getImportThreads() : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        final AtomicInteger importIndex = new AtomicInteger();
+        importExecutor = new ThreadPoolExecutor(importThreads, importThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(importThreads * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hash-import-" + importIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        matchesTimer = Timer.builder("user.password.hash").tag("op", "matches").register(meterRegistry);
+        encodeTimer = Timer.builder("user.password.hash").tag("op", "encode").register(meterRegistry);
+        rejectedCounter = Counter.builder("user.password.hash.rejected").register(meterRegistry);
+        Gauge.builder("user.password.hash.queue", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("user.password.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        log.info("密码哈希线程池已启动, threads={}, queueCapacity={}", threads, properties.getQueueCapacity());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+        importExecutor.shutdown();
+    }
+
+    /**
+     * 校验明文密码与 BCrypt 密文是否匹配
+     *
+     * @throws BusyException 线程池繁忙
+     */
+    public boolean matches(final String rawPassword, final String encodedPassword) {
+        return execute(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * BCrypt 加密明文密码
+     *
+     * @throws BusyException 线程池繁忙
+     */
+    public String encode(final String rawPassword) {
+        return execute(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * 批量导入：在 import 线程池中并行加密，返回结果与入参顺序一致
+     */
+    public List<String> encodeAll(List<String> rawPasswords) {
+        List<CompletableFuture<String>> futures = new ArrayList<>(rawPasswords.size());
+        for (final String rawPassword : rawPasswords) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)), importExecutor));
+        }
+        List<String> encoded = new ArrayList<>(futures.size());
+        for (CompletableFuture<String> future : futures) {
+            encoded.add(future.join());
+        }
+        return encoded;
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new BusyException();
+        }
+        try {
+            return future.get(properties.getWaitTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejectedCounter.increment();
+            throw new BusyException();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new BusyException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 密码哈希线程池繁忙
+     */
+    public static class BusyException extends RuntimeException {
+
+        public BusyException() {
+            super("登录繁忙，请稍后重试");
+        }
+    }
+}
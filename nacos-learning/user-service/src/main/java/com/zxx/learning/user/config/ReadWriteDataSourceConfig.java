@@ -0,0 +1,95 @@
+package com.zxx.learning.user.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zxx.learning.user.datasource.DataSourceRouteAspect;
+import com.zxx.learning.user.datasource.ReadWriteRoutingDataSource;
+import com.zxx.learning.user.datasource.RoutingStatementInterceptor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离数据源配置（user.datasource.routing.enabled=true 时生效）
+ *
+ * <p>主库使用 spring.datasource，连接池参数与自动配置一样绑定 spring.datasource.hikari.*；从库使用 user.datasource.routing.replicas；
+ * 对外暴露的 DataSource 为 LazyConnectionDataSourceProxy(ReadWriteRoutingDataSource)，
+ * MyBatis-Plus、事务管理器、JdbcTemplate 均使用它。</p>
+ *
+ * @author zxx
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "user.datasource.routing", name = "enabled", havingValue = "true")
+public class ReadWriteDataSourceConfig {
+
+    /**
+     * 主库连接池：先设置默认池名，再由 spring.datasource.hikari.* 覆盖（maximum-pool-size、connection-timeout 等）
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        primary.setPoolName("user-primary");
+        return primary;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(HikariDataSource primaryDataSource,
+                                                                 DataSourceProperties dataSourceProperties,
+                                                                 ReadWriteDataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReadWriteDataSourceProperties.Replica> configured = properties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReadWriteDataSourceProperties.Replica replica = configured.get(i);
+            String name = StringUtils.hasText(replica.getName()) ? replica.getName() : "replica-" + i;
+            String username = StringUtils.hasText(replica.getUsername())
+                    ? replica.getUsername() : dataSourceProperties.determineUsername();
+            String password = StringUtils.hasText(replica.getPassword())
+                    ? replica.getPassword() : dataSourceProperties.determinePassword();
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(username)
+                    .password(password)
+                    .build();
+            dataSource.setPoolName("user-" + name);
+            dataSource.setMaximumPoolSize(replica.getMaxPoolSize());
+            dataSource.setReadOnly(true);
+            // 从库不可达时不阻止启动，由健康检查摘除
+            dataSource.setInitializationFailTimeout(-1);
+            dataSource.setConnectionTimeout(Math.max(250L, properties.getValidationTimeout() * 1000L));
+            replicas.put(name, dataSource);
+        }
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicas, properties.getLagQuery(),
+                properties.getLagColumn(), properties.getMaxLag(), properties.getValidationTimeout());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    @Bean
+    public RoutingStatementInterceptor routingStatementInterceptor() {
+        return new RoutingStatementInterceptor();
+    }
+
+    @Bean
+    public DataSourceRouteAspect dataSourceRouteAspect() {
+        return new DataSourceRouteAspect();
+    }
+}
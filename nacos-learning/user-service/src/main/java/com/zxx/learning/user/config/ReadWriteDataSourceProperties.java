@@ -0,0 +1,77 @@
+package com.zxx.learning.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 读写分离配置：主库沿用 spring.datasource，这里只配置从库
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user.datasource.routing")
+public class ReadWriteDataSourceProperties {
+
+    /**
+     * 是否启用读写分离，关闭时所有请求走 spring.datasource
+     */
+    private boolean enabled = false;
+
+    /**
+     * 从库列表，为空时所有请求走主库
+     */
+    private List<Replica> replicas = new ArrayList<>();
+
+    /**
+     * 从库健康检查间隔，单位毫秒
+     */
+    private long healthCheckInterval = 5000;
+
+    /**
+     * 健康检查中连接校验的超时，单位秒
+     */
+    private int validationTimeout = 2;
+
+    /**
+     * 复制延迟查询（MySQL 8.0.22 之前为 SHOW SLAVE STATUS，之后可用 SHOW REPLICA STATUS），为空时不检查延迟
+     */
+    private String lagQuery = "SHOW SLAVE STATUS";
+
+    /**
+     * 复制延迟查询结果中表示延迟秒数的列（SHOW REPLICA STATUS 为 Seconds_Behind_Source）
+     */
+    private String lagColumn = "Seconds_Behind_Master";
+
+    /**
+     * 最大允许的复制延迟，单位秒：超过时该从库暂停接收读请求，全部从库都不可用时读请求回退到主库
+     */
+    private long maxLag = 5;
+
+    @Data
+    public static class Replica {
+
+        /**
+         * 从库名称（日志中使用），为空时按顺序命名为 replica-0、replica-1 ...
+         */
+        private String name;
+
+        private String url;
+
+        /**
+         * 用户名 / 密码为空时沿用主库配置
+         */
+        private String username;
+
+        private String password;
+
+        /**
+         * 连接池最大连接数
+         */
+        private int maxPoolSize = 10;
+    }
+}
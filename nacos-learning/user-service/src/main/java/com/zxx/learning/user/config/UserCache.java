@@ -0,0 +1,249 @@
+package com.zxx.learning.user.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.zxx.learning.user.entity.TUser;
+import com.zxx.learning.user.event.UserChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 用户查询二级缓存（用户名 -> 用户、ID -> 用户）
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>一级：Caffeine 本地缓存，有界；二级：Redis，key 为 user:cache:name:{username} / user:cache:id:{id}，值为用户 JSON；
+ *     缓存的是不含密码的投影，密码哈希不进入本地缓存与 Redis，登录校验时由 {@link com.zxx.learning.user.service.TUserService#getPasswordHash(Long)}
+ *     从数据库读取；
+ *     用户名按 {@link UsernameBloomFilter#normalize(String)} 规范化，大小写不同的登录名命中同一个 key，失效时不会遗漏</li>
+ *     <li>用户不存在也会缓存（空值，较短有效期），未注册用户名的登录 / 注册检查不会反复访问数据库</li>
+ *     <li>防击穿：本地未命中时由 Caffeine 按 key 加锁加载，同一实例同一 key 的并发请求只有一个访问 Redis / 数据库</li>
+ *     <li>失效：{@link UserChangedEvent} 在事务提交后删除本地与 Redis 缓存，并通过 {@link #INVALIDATION_CHANNEL}
+ *     广播给其他实例清除本地缓存；延迟 {@link UserCacheProperties#getDoubleDeleteDelay()} 后再删除一次，
+ *     清掉失效前已读到旧数据、失效后才回写 Redis 的并发加载结果</li>
+ *     <li>返回值为缓存对象的副本，调用方可以放心修改</li>
+ *     <li>指标：user.cache.local（Caffeine 统计）、user.cache.redis（Redis 命中 / 未命中）、user.cache.db.load（数据库加载次数）</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserCache {
+
+    /**
+     * 缓存失效广播频道，消息体为 {"id":1,"usernames":["zhangsan"]}
+     */
+    public static final String INVALIDATION_CHANNEL = "user:cache:invalidate";
+
+    private static final String NAME_KEY_PREFIX = "user:cache:name:";
+    private static final String ID_KEY_PREFIX = "user:cache:id:";
+    private static final String NULL_VALUE = "";
+
+    private final UserCacheProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, Optional<TUser>> local;
+    private Counter redisHits;
+    private Counter redisMisses;
+    private Counter dbLoads;
+    private ScheduledExecutorService delayedInvalidator;
+
+    @PostConstruct
+    public void init() {
+        local = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfter(new Expiry<String, Optional<TUser>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<TUser> value, long currentTime) {
+                        long ttl = value.isPresent() ? properties.getLocalTtl() : properties.getNullTtl();
+                        return TimeUnit.MILLISECONDS.toNanos(ttl);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<TUser> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<TUser> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "user.cache.local");
+        redisHits = Counter.builder("user.cache.redis").tag("result", "hit").register(meterRegistry);
+        redisMisses = Counter.builder("user.cache.redis").tag("result", "miss").register(meterRegistry);
+        dbLoads = Counter.builder("user.cache.db.load").register(meterRegistry);
+        delayedInvalidator = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "user-cache-invalidator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        delayedInvalidator.shutdownNow();
+    }
+
+    /**
+     * 按用户名查询
+     *
+     * @param username 用户名
+     * @param loader   缓存未命中时的数据库查询
+     * @return 用户副本（不含密码），不存在时返回 null
+     */
+    public TUser getByUsername(String username, Supplier<TUser> loader) {
+        return get(nameKey(username), loader);
+    }
+
+    /**
+     * 按ID查询
+     *
+     * @param id     用户ID
+     * @param loader 缓存未命中时的数据库查询
+     * @return 用户副本（不含密码），不存在时返回 null
+     */
+    public TUser getById(Long id, Supplier<TUser> loader) {
+        return get(ID_KEY_PREFIX + id, loader);
+    }
+
+    private TUser get(final String key, final Supplier<TUser> loader) {
+        if (!properties.isEnabled()) {
+            TUser user = loader.get();
+            return user != null ? copy(user) : null;
+        }
+        Optional<TUser> value = local.get(key, k -> load(k, loader));
+        return value != null && value.isPresent() ? copy(value.get()) : null;
+    }
+
+    /**
+     * 本地未命中：先查 Redis，再查数据库并回写 Redis（同一用户的另一类 key 一并写入）
+     */
+    private Optional<TUser> load(String key, Supplier<TUser> loader) {
+        try {
+            String cached = redisTemplate.opsForValue().get(key);
+            if (cached != null) {
+                redisHits.increment();
+                return NULL_VALUE.equals(cached)
+                        ? Optional.<TUser>empty() : Optional.of(objectMapper.readValue(cached, TUser.class));
+            }
+            redisMisses.increment();
+        } catch (Exception e) {
+            log.warn("读取 Redis 用户缓存异常, key={}", key, e);
+        }
+
+        dbLoads.increment();
+        TUser loaded = loader.get();
+        TUser user = loaded != null ? copy(loaded) : null;
+        try {
+            if (user == null) {
+                redisTemplate.opsForValue().set(key, NULL_VALUE, properties.getNullTtl(), TimeUnit.MILLISECONDS);
+            } else {
+                String json = objectMapper.writeValueAsString(user);
+                redisTemplate.opsForValue().set(nameKey(user.getUsername()), json,
+                        properties.getRedisTtl(), TimeUnit.MILLISECONDS);
+                redisTemplate.opsForValue().set(ID_KEY_PREFIX + user.getId(), json,
+                        properties.getRedisTtl(), TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            log.warn("写入 Redis 用户缓存异常, key={}", key, e);
+        }
+        return Optional.ofNullable(user);
+    }
+
+    /**
+     * 用户变更后失效缓存（事务提交后执行，无事务时立即执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(final UserChangedEvent event) {
+        invalidate(event);
+        long delay = properties.getDoubleDeleteDelay();
+        if (delay > 0) {
+            // 失效前已从数据库读到旧数据的并发加载可能在失效之后才回写 Redis，延迟后再删一次
+            try {
+                delayedInvalidator.schedule(() -> invalidate(event), delay, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                log.warn("延迟失效用户缓存任务提交失败, event={}", event);
+            }
+        }
+    }
+
+    private void invalidate(UserChangedEvent event) {
+        List<String> keys = keys(event);
+        local.invalidateAll(keys);
+        try {
+            redisTemplate.delete(keys);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.error("失效 Redis 用户缓存异常, event={}", event, e);
+        }
+        log.debug("用户缓存已失效, event={}", event);
+    }
+
+    /**
+     * 其他实例的失效广播：只清除本地缓存（Redis 已由发布方删除）
+     */
+    public void onInvalidationMessage(String message) {
+        try {
+            local.invalidateAll(keys(objectMapper.readValue(message, UserChangedEvent.class)));
+        } catch (Exception e) {
+            log.error("处理用户缓存失效广播异常, message={}", message, e);
+        }
+    }
+
+    private static List<String> keys(UserChangedEvent event) {
+        List<String> keys = new ArrayList<>();
+        if (event.getId() != null) {
+            keys.add(ID_KEY_PREFIX + event.getId());
+        }
+        for (String username : event.getUsernames()) {
+            keys.add(nameKey(username));
+        }
+        return keys;
+    }
+
+    private static String nameKey(String username) {
+        return NAME_KEY_PREFIX + UsernameBloomFilter.normalize(username);
+    }
+
+    /**
+     * 复制为不含密码的投影（升级前写入 Redis 的旧值带有密码，读出后同样丢弃）
+     */
+    private static TUser copy(TUser source) {
+        TUser user = new TUser();
+        user.setId(source.getId());
+        user.setUsername(source.getUsername());
+        user.setRole(source.getRole());
+        user.setEmail(source.getEmail());
+        user.setStatus(source.getStatus());
+        user.setCreateTime(source.getCreateTime());
+        user.setUpdateTime(source.getUpdateTime());
+        return user;
+    }
+}
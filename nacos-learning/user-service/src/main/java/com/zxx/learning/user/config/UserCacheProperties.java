@@ -0,0 +1,46 @@
+package com.zxx.learning.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户查询二级缓存配置
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user.cache")
+public class UserCacheProperties {
+
+    /**
+     * 是否启用缓存，关闭后所有查询直接访问数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最大条数（用户名、ID 两类 key 合计）
+     */
+    private long localMaxSize = 10000;
+
+    /**
+     * 本地缓存有效期，单位毫秒（其他实例的修改通过广播失效，这里只是兜底）
+     */
+    private long localTtl = 60000;
+
+    /**
+     * Redis 缓存有效期，单位毫秒
+     */
+    private long redisTtl = 1800000;
+
+    /**
+     * 用户不存在时的缓存有效期，单位毫秒（防止未注册用户名反复穿透到数据库）
+     */
+    private long nullTtl = 30000;
+
+    /**
+     * 延迟双删的间隔，单位毫秒，需大于一次缓存加载（读 Redis + 查数据库 + 回写）的耗时；0 表示不做第二次删除
+     */
+    private long doubleDeleteDelay = 1000;
+}
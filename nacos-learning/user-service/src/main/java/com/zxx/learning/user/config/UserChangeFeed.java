@@ -0,0 +1,156 @@
+package com.zxx.learning.user.config;
+
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 用户变更流（发件箱 t_user_change）
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>用户创建 / 修改 / 禁用 / 删除时，在同一事务中向 t_user_change 追加一条记录，seq 自增，事务回滚时记录一并回滚</li>
+ *     <li>读取变更时关联 t_user 返回用户最新状态（不含密码），消费方只需按 seq 顺序覆盖本地副本</li>
+ *     <li>自增 seq 按分配顺序而非提交顺序可见，并发事务可能让较小的 seq 晚于较大的 seq 出现，
+ *     消费方需要对 seq 空洞做短暂等待（见 nacos-common 的 UserReplica）</li>
+ *     <li>超过保留时间的记录定期清理，落后过多的消费方会收到 reset，需要重新拉取全量快照</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserChangeFeed {
+
+    private static final String CHANGE_COLUMNS =
+            "SELECT c.seq, c.user_id, c.op, u.username, u.role, u.email, u.status "
+                    + "FROM t_user_change c LEFT JOIN t_user u ON u.id = c.user_id ";
+
+    private static final RowMapper<UserChange> CHANGE_MAPPER = (rs, rowNum) -> {
+        UserChange change = new UserChange();
+        change.setSeq(rs.getLong("seq"));
+        change.setId(rs.getLong("user_id"));
+        change.setOp(rs.getString("op"));
+        change.setUsername(rs.getString("username"));
+        change.setRole(rs.getString("role"));
+        change.setEmail(rs.getString("email"));
+        change.setStatus(rs.getObject("status", Integer.class));
+        return change;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final UserChangeFeedProperties properties;
+
+    /**
+     * 记录一次变更，需要在修改 t_user 的同一事务中调用
+     */
+    public void record(Long userId, String op) {
+        if (userId == null) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO t_user_change (user_id, op) VALUES (?, ?)", userId, op);
+    }
+
+    /**
+     * 按用户名记录批量创建（批量导入时插入语句拿不到自增ID），需要在插入用户的同一事务中调用
+     */
+    public void recordCreated(Collection<String> usernames) {
+        if (usernames == null || usernames.isEmpty()) {
+            return;
+        }
+        namedParameterJdbcTemplate.update(
+                "INSERT INTO t_user_change (user_id, op) SELECT id, '" + UserChange.CREATE
+                        + "' FROM t_user WHERE username IN (:usernames) ORDER BY id",
+                Collections.singletonMap("usernames", usernames));
+    }
+
+    /**
+     * 读取 since 之后的变更
+     *
+     * @param since 上次读取到的 seq，0 表示从头读取
+     * @param limit 本页最大条数
+     */
+    public UserChangeBatch changesSince(long since, int limit) {
+        UserChangeBatch batch = new UserChangeBatch();
+        Long minSeq = jdbcTemplate.queryForObject("SELECT MIN(seq) FROM t_user_change", Long.class);
+        if (minSeq != null && since + 1 < minSeq) {
+            batch.setReset(true);
+            batch.setNextSince(since);
+            return batch;
+        }
+        List<UserChange> changes = jdbcTemplate.query(CHANGE_COLUMNS + "WHERE c.seq > ? ORDER BY c.seq LIMIT ?",
+                CHANGE_MAPPER, since, limit);
+        batch.setChanges(changes);
+        batch.setNextSince(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq());
+        batch.setHasMore(changes.size() == limit);
+        return batch;
+    }
+
+    /**
+     * 读取全量快照的一页：先取变更流最新 seq 再读用户，快照期间发生的变更会在之后的增量同步中重放
+     */
+    public UserSnapshotPage snapshot(Long cursor, int size) {
+        UserSnapshotPage page = new UserSnapshotPage();
+        page.setHeadSeq(headSeq());
+        Map<String, Object> params = new HashMap<>();
+        params.put("cursor", cursor != null ? cursor : 0L);
+        params.put("size", size);
+        List<UserChange> users = namedParameterJdbcTemplate.query(
+                "SELECT id, username, role, email, status FROM t_user WHERE id > :cursor ORDER BY id LIMIT :size",
+                params, (rs, rowNum) -> {
+                    UserChange user = new UserChange();
+                    user.setSeq(page.getHeadSeq());
+                    user.setId(rs.getLong("id"));
+                    user.setUsername(rs.getString("username"));
+                    user.setRole(rs.getString("role"));
+                    user.setEmail(rs.getString("email"));
+                    user.setStatus(rs.getObject("status", Integer.class));
+                    return user;
+                });
+        page.setUsers(users);
+        page.setNextCursor(users.size() == size ? users.get(users.size() - 1).getId() : null);
+        return page;
+    }
+
+    public long headSeq() {
+        Long head = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM t_user_change", Long.class);
+        return head != null ? head : 0L;
+    }
+
+    /**
+     * 清理超过保留时间的变更记录（始终保留最新一条，用于判断消费方是否落后过多）
+     */
+    @Scheduled(fixedDelayString = "${user.change-feed.prune-interval:3600000}",
+            initialDelayString = "${user.change-feed.prune-interval:3600000}")
+    public void prune() {
+        long head = headSeq();
+        Timestamp before = new Timestamp(System.currentTimeMillis() - properties.getRetention());
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM t_user_change WHERE create_time < ? AND seq < ? LIMIT ?",
+                    before, head, properties.getPruneBatchSize());
+            total += deleted;
+        } while (deleted == properties.getPruneBatchSize());
+        if (total > 0) {
+            log.info("清理用户变更记录, deleted={}, before={}", total, before);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.zxx.learning.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户变更流配置
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user.change-feed")
+public class UserChangeFeedProperties {
+
+    /**
+     * 变更记录保留时间，单位毫秒；消费方落后超过该时间需要重新拉取全量快照
+     */
+    private long retention = 7 * 24 * 3600 * 1000L;
+
+    /**
+     * 清理任务执行间隔，单位毫秒
+     */
+    private long pruneInterval = 3600000;
+
+    /**
+     * 清理任务每批删除的条数
+     */
+    private int pruneBatchSize = 5000;
+}
@@ -0,0 +1,500 @@
+package com.zxx.learning.user.config;
+
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.util.HashUtil;
+import com.zxx.learning.user.entity.TUser;
+import com.zxx.learning.user.event.UserChangedEvent;
+import com.zxx.learning.user.mapper.TUserMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 用户名布隆过滤器（Redis 位图，多实例共享，可扩容）
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>{@link #mightContain} 返回 false 时用户名一定未被使用，不需要查询数据库；返回 true 时仍需查库确认，
+ *     最终以 t_user 的唯一索引为准</li>
+ *     <li>分层扩容：第 n 层容量为 capacity * 2^n、误判率为 fpp / 2^n，当前层写满后追加一层，查询时任一层命中即可能存在</li>
+ *     <li>key：user:bloom:username（元数据 Hash：gen、capacity、fpp、layers、count:{n}），
+ *     user:bloom:username:{gen}:{n}（第 n 层位图）</li>
+ *     <li>查询与写入各一个 Lua 脚本（{@link DefaultRedisScript}，按 SHA1 走 EVALSHA），同时校验本地缓存的元数据
+ *     （gen、层数）是否过期，过期时重新加载后重试</li>
+ *     <li>重建：启动时抢到重建锁的实例流式读取 t_user，在本地生成位图后写入新的 gen，再原子切换元数据。
+ *     重建期间存在标记 user:bloom:username:rebuilding，所有实例的写入在写旧 gen 的同时记入
+ *     user:bloom:username:pending（双写），切换后补写这些用户名，再按变更流 seq 重放重建开始之后的变更，
+ *     不依赖自增ID的大小顺序。重建完成前视为未就绪，所有检查都回退到数据库</li>
+ *     <li>用户名按 {@link #normalize(String)} 规范化，与 t_user.username 的排序规则保持一致；
+ *     删除用户不会从过滤器移除，只会略微增加误判</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UsernameBloomFilter {
+
+    private static final String META_KEY = "user:bloom:username";
+    private static final String LAYER_KEY_PREFIX = "user:bloom:username:";
+    private static final String LOCK_KEY = "user:bloom:username:rebuild-lock";
+    private static final String REBUILDING_KEY = "user:bloom:username:rebuilding";
+    private static final String PENDING_KEY = "user:bloom:username:pending";
+
+    /**
+     * 重建后按变更流补写时每页读取的条数
+     */
+    private static final int CATCH_UP_BATCH_SIZE = 500;
+
+    /**
+     * Unicode 组合附加符号（重音等），规范化时去掉
+     */
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    /**
+     * Redis 位图最大 2^32 位
+     */
+    private static final long MAX_BITS = 1L << 32;
+
+    private static final long NOT_READY = -2;
+    private static final long STALE = -1;
+
+    /**
+     * 重建进行中（KEYS[3] 存在）时把 ARGV[4] 记入待补写集合 KEYS[4]
+     */
+    private static final String PENDING_LUA =
+            "if redis.call('EXISTS', KEYS[3]) == 1 then\n" +
+            "  redis.call('SADD', KEYS[4], ARGV[4])\n" +
+            "  local ttl = redis.call('PTTL', KEYS[3])\n" +
+            "  if ttl > 0 then redis.call('PEXPIRE', KEYS[4], ttl) end\n" +
+            "end\n";
+
+    /**
+     * 元数据未就绪时只记录待补写：KEYS 与 ARGV 的位置与 {@link #ADD_SCRIPT} 一致。返回 -2
+     */
+    private static final RedisScript<Long> PENDING_SCRIPT = new DefaultRedisScript<>(
+            PENDING_LUA + "return -2", Long.class);
+
+    /**
+     * 查询：KEYS[1] 元数据，KEYS[2..n] 各层位图；ARGV[1] gen，之后每层依次为 {偏移量个数, 偏移量...}。
+     * 返回 1 可能存在，0 一定不存在，-1 元数据已变化，-2 未就绪
+     */
+    private static final RedisScript<Long> CHECK_SCRIPT = new DefaultRedisScript<>(
+            "local meta = redis.call('HMGET', KEYS[1], 'gen', 'layers')\n" +
+            "if not meta[1] then return -2 end\n" +
+            "if meta[1] ~= ARGV[1] or tonumber(meta[2]) ~= #KEYS - 1 then return -1 end\n" +
+            "local pos = 2\n" +
+            "for l = 2, #KEYS do\n" +
+            "  local n = tonumber(ARGV[pos])\n" +
+            "  local hit = 1\n" +
+            "  for i = pos + 1, pos + n do\n" +
+            "    if redis.call('GETBIT', KEYS[l], ARGV[i]) == 0 then hit = 0 break end\n" +
+            "  end\n" +
+            "  if hit == 1 then return 1 end\n" +
+            "  pos = pos + n + 1\n" +
+            "end\n" +
+            "return 0", Long.class);
+
+    /**
+     * 写入最新一层：KEYS[1] 元数据，KEYS[2] 最新一层位图，KEYS[3] 重建标记，KEYS[4] 重建待补写集合；
+     * ARGV[1] gen，ARGV[2] 层号，ARGV[3] 该层容量，ARGV[4] 用户名，ARGV[5..n] 偏移量。
+     * 重建进行中时先把用户名记入待补写集合（与重建标记同时过期）；已存在的用户名不计数；计数达到容量时追加一层。
+     * 返回 1 新写入，0 已存在，-1 元数据已变化，-2 未就绪
+     */
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            PENDING_LUA +
+            "local meta = redis.call('HMGET', KEYS[1], 'gen', 'layers')\n" +
+            "if not meta[1] then return -2 end\n" +
+            "if meta[1] ~= ARGV[1] or tonumber(meta[2]) ~= tonumber(ARGV[2]) + 1 then return -1 end\n" +
+            "local present = 1\n" +
+            "for i = 5, #ARGV do\n" +
+            "  if redis.call('SETBIT', KEYS[2], ARGV[i], 1) == 0 then present = 0 end\n" +
+            "end\n" +
+            "if present == 1 then return 0 end\n" +
+            "if redis.call('HINCRBY', KEYS[1], 'count:' .. ARGV[2], 1) >= tonumber(ARGV[3]) then\n" +
+            "  redis.call('HINCRBY', KEYS[1], 'layers', 1)\n" +
+            "end\n" +
+            "return 1", Long.class);
+
+    /**
+     * 切换到新 gen：KEYS[1] 元数据；ARGV[1] gen，ARGV[2] capacity，ARGV[3] fpp，ARGV[4] 第一层计数。
+     * 返回旧的 {gen, layers}，由调用方删除旧位图
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SWAP_SCRIPT = new DefaultRedisScript<>(
+            "local old = redis.call('HMGET', KEYS[1], 'gen', 'layers')\n" +
+            "redis.call('DEL', KEYS[1])\n" +
+            "redis.call('HSET', KEYS[1], 'gen', ARGV[1], 'capacity', ARGV[2], 'fpp', ARGV[3], 'layers', 1, 'count:0', ARGV[4])\n" +
+            "return {old[1] or '', old[2] or '0'}", List.class);
+
+    private final UsernameBloomProperties properties;
+    private final StringRedisTemplate redisTemplate;
+    private final TUserMapper tUserMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final UserChangeFeed userChangeFeed;
+
+    /**
+     * 本地缓存的元数据，为 null 表示尚未加载或未就绪
+     */
+    private volatile Meta meta;
+
+    /**
+     * 用户名是否可能已存在
+     *
+     * @return false 表示一定不存在；未启用、未就绪或 Redis 异常时返回 true（回退到数据库）
+     */
+    public boolean mightContain(String username) {
+        if (!properties.isEnabled() || !StringUtils.hasText(username)) {
+            return true;
+        }
+        String value = normalize(username);
+        try {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                Meta current = meta != null ? meta : loadMeta();
+                if (current == null) {
+                    return true;
+                }
+                long result = check(current, value);
+                if (result == STALE) {
+                    meta = null;
+                    continue;
+                }
+                if (result == NOT_READY) {
+                    meta = null;
+                    return true;
+                }
+                return result != 0;
+            }
+        } catch (Exception e) {
+            log.warn("查询用户名布隆过滤器异常, username={}", username, e);
+        }
+        return true;
+    }
+
+    /**
+     * 写入用户名（新注册、导入、修改用户名后调用）
+     */
+    public void add(String username) {
+        if (!properties.isEnabled() || !StringUtils.hasText(username)) {
+            return;
+        }
+        addNormalized(normalize(username));
+    }
+
+    private void addNormalized(String value) {
+        try {
+            for (int attempt = 0; attempt < 3; attempt++) {
+                Meta current = meta != null ? meta : loadMeta();
+                if (current == null) {
+                    // 未就绪：首次重建进行中时记入待补写集合，重建切换后补写
+                    redisTemplate.execute(PENDING_SCRIPT, scriptKeys(null, 0), "", "0", "0", value);
+                    return;
+                }
+                long result = add(current, value);
+                if (result == 1 || result == 0) {
+                    if (result == 1 && current.layerFull()) {
+                        meta = null;
+                    }
+                    return;
+                }
+                meta = null;
+                if (result == NOT_READY) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("写入用户名布隆过滤器异常, username={}", value, e);
+        }
+    }
+
+    /**
+     * 用户数据变更后写入涉及的用户名（事务提交后执行）
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        for (String username : event.getUsernames()) {
+            add(username);
+        }
+    }
+
+    /**
+     * 启动后在后台线程重建，不阻塞启动；重建完成前检查全部回退到数据库
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!properties.isEnabled() || !properties.isRebuildOnStartup()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.error("重建用户名布隆过滤器失败", e);
+            }
+        }, "username-bloom-rebuild");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 从 t_user 重建（同一时间只有一个实例执行）
+     *
+     * @return 是否执行了重建（false 表示其他实例近期已重建）
+     */
+    public boolean rebuild() {
+        Boolean locked = redisTemplate.opsForValue()
+                .setIfAbsent(LOCK_KEY, "1", properties.getRebuildLockTtl(), TimeUnit.MILLISECONDS);
+        if (!Boolean.TRUE.equals(locked)) {
+            log.info("其他实例已在重建用户名布隆过滤器，跳过");
+            return false;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Long total = tUserMapper.selectCount(null);
+            long capacity = Math.max(properties.getInitialCapacity(), (total != null ? total : 0) * 2);
+            final Meta next = new Meta(String.valueOf(start), capacity, properties.getFpp(), 1, 0);
+            final long bits = next.bitSize(0);
+            final int hashes = next.hashFunctions(0);
+            final byte[] bitmap = new byte[(int) ((bits + 7) >>> 3)];
+            final long[] state = {0};
+
+            // 0. 开启双写：之后所有实例的写入同时记入待补写集合；记下变更流位置，切换后从这里重放
+            redisTemplate.delete(PENDING_KEY);
+            redisTemplate.opsForValue().set(REBUILDING_KEY, next.gen, properties.getRebuildLockTtl(), TimeUnit.MILLISECONDS);
+            long since = userChangeFeed.headSeq();
+
+            // 1. 流式读取全部用户名，在本地生成第一层位图
+            transactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<TUser> cursor = tUserMapper.streamAll()) {
+                    for (TUser user : cursor) {
+                        for (long offset : offsets(normalize(user.getUsername()), bits, hashes)) {
+                            bitmap[(int) (offset >>> 3)] |= (byte) (0x80 >>> (offset & 7));
+                        }
+                        state[0]++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // 2. 写入新 gen 的位图并切换元数据
+            final byte[] layerKey = bytes(layerKey(next.gen, 0));
+            redisTemplate.execute((RedisCallback<Object>) connection -> connection.stringCommands().set(layerKey, bitmap));
+            List<?> old = redisTemplate.execute(SWAP_SCRIPT, Collections.singletonList(META_KEY), next.gen,
+                    String.valueOf(capacity), String.valueOf(next.fpp), String.valueOf(state[0]));
+            meta = null;
+
+            // 3. 删除旧位图（多删一层，覆盖切换前瞬间追加的层）
+            if (old != null && old.size() == 2) {
+                String oldGen = String.valueOf(old.get(0));
+                int oldLayers = Integer.parseInt(String.valueOf(old.get(1)));
+                if (!oldGen.isEmpty()) {
+                    List<String> keys = new ArrayList<>();
+                    for (int i = 0; i <= oldLayers; i++) {
+                        keys.add(layerKey(oldGen, i));
+                    }
+                    redisTemplate.delete(keys);
+                }
+            }
+
+            // 4. 结束双写并补写待补写集合：切换之后的写入已直接进入新 gen，切换之前的都在集合中
+            redisTemplate.delete(REBUILDING_KEY);
+            Set<String> pending = redisTemplate.opsForSet().members(PENDING_KEY);
+            if (pending != null) {
+                for (String value : pending) {
+                    addNormalized(value);
+                }
+            }
+            redisTemplate.delete(PENDING_KEY);
+
+            // 5. 按变更流 seq 重放重建开始之后的变更，覆盖写入失败、未发布事件的批量导入等情况
+            int replayed = 0;
+            UserChangeBatch batch;
+            do {
+                batch = userChangeFeed.changesSince(since, CATCH_UP_BATCH_SIZE);
+                if (batch.isReset()) {
+                    log.warn("重建期间的变更记录已被清理，跳过按变更流补写, since={}", since);
+                    break;
+                }
+                for (UserChange change : batch.getChanges()) {
+                    if (change.getUsername() != null) {
+                        add(change.getUsername());
+                        replayed++;
+                    }
+                }
+                since = batch.getNextSince();
+            } while (batch.isHasMore());
+            log.info("重建用户名布隆过滤器完成, users={}, capacity={}, bits={}, hashes={}, pending={}, replayed={}, cost={}ms",
+                    state[0], capacity, bits, hashes, pending != null ? pending.size() : 0, replayed,
+                    System.currentTimeMillis() - start);
+            return true;
+        } catch (RuntimeException e) {
+            redisTemplate.delete(Arrays.asList(LOCK_KEY, REBUILDING_KEY));
+            throw e;
+        }
+    }
+
+    private long check(Meta current, String value) {
+        List<String> keys = new ArrayList<>(current.layers + 1);
+        keys.add(META_KEY);
+        List<Object> args = new ArrayList<>();
+        args.add(current.gen);
+        for (int layer = 0; layer < current.layers; layer++) {
+            keys.add(layerKey(current.gen, layer));
+            long[] offsets = offsets(value, current.bitSize(layer), current.hashFunctions(layer));
+            args.add(String.valueOf(offsets.length));
+            for (long offset : offsets) {
+                args.add(String.valueOf(offset));
+            }
+        }
+        Long result = redisTemplate.execute(CHECK_SCRIPT, keys, args.toArray());
+        return result != null ? result : 1;
+    }
+
+    private long add(Meta current, String value) {
+        int layer = current.layers - 1;
+        long[] offsets = offsets(value, current.bitSize(layer), current.hashFunctions(layer));
+        Object[] args = new Object[offsets.length + 4];
+        args[0] = current.gen;
+        args[1] = String.valueOf(layer);
+        args[2] = String.valueOf(current.layerCapacity(layer));
+        args[3] = value;
+        for (int i = 0; i < offsets.length; i++) {
+            args[i + 4] = String.valueOf(offsets[i]);
+        }
+        Long result = redisTemplate.execute(ADD_SCRIPT, scriptKeys(current.gen, layer), args);
+        if (result != null && result == 1) {
+            current.count++;
+        }
+        return result != null ? result : STALE;
+    }
+
+    /**
+     * 写入脚本的 KEYS：元数据、最新一层位图（未就绪时 gen 为 null，脚本不会访问）、重建标记、待补写集合
+     */
+    private static List<String> scriptKeys(String gen, int layer) {
+        return Arrays.asList(META_KEY, gen != null ? layerKey(gen, layer) : META_KEY, REBUILDING_KEY, PENDING_KEY);
+    }
+
+    private Meta loadMeta() {
+        Map<Object, Object> hash = redisTemplate.opsForHash().entries(META_KEY);
+        if (hash == null || hash.get("gen") == null) {
+            return null;
+        }
+        int layers = Integer.parseInt(hash.get("layers").toString());
+        Object count = hash.get("count:" + (layers - 1));
+        Meta loaded = new Meta(hash.get("gen").toString(),
+                Long.parseLong(hash.get("capacity").toString()),
+                Double.parseDouble(hash.get("fpp").toString()),
+                layers, count != null ? Long.parseLong(count.toString()) : 0);
+        meta = loaded;
+        return loaded;
+    }
+
+    /**
+     * 双重哈希计算位偏移（与 {@link com.zxx.learning.common.util.BloomFilter} 相同的方式，扩展到 64 位以支持大位图）
+     */
+    private static long[] offsets(String value, long bits, int hashes) {
+        long hash = HashUtil.hash64(value);
+        long h1 = (int) hash;
+        long h2 = (int) (hash >>> 32);
+        long[] offsets = new long[hashes];
+        for (int i = 1; i <= hashes; i++) {
+            offsets[i - 1] = ((h1 + i * h2) & Long.MAX_VALUE) % bits;
+        }
+        return offsets;
+    }
+
+    /**
+     * 用户名规范化，与 t_user.username 的排序规则（MySQL 8 默认 utf8mb4_0900_ai_ci，不区分大小写、重音、全半角）一致：
+     * 去空格、转小写、NFKD 分解（全角转半角、拆出重音符号）后去掉组合符号；{@link UserCache} 的用户名 key 同样使用。
+     *
+     * <p>要求 username 列使用不区分大小写与重音的排序规则：若改为 _bin / _as_cs，这里会把数据库中不同的用户名折叠为同一个 key。
+     * ß 与 ss 这类多字符等价不处理，只会让布隆过滤器偶尔多查一次库</p>
+     */
+    static String normalize(String username) {
+        String value = username.trim().toLowerCase(Locale.ROOT);
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return COMBINING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFKD)).replaceAll("");
+            }
+        }
+        return value;
+    }
+
+    private static String layerKey(String gen, int layer) {
+        return LAYER_KEY_PREFIX + gen + ":" + layer;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 过滤器元数据（gen 与各层参数），各层的位数与哈希函数个数由 capacity、fpp 推导，所有实例一致
+     */
+    private static class Meta {
+        private final String gen;
+        private final long capacity;
+        private final double fpp;
+        private final int layers;
+        /**
+         * 最新一层的计数（本地近似值，仅用于判断是否需要重新加载元数据）
+         */
+        private volatile long count;
+
+        Meta(String gen, long capacity, double fpp, int layers, long count) {
+            this.gen = gen;
+            this.capacity = capacity;
+            this.fpp = fpp;
+            this.layers = layers;
+            this.count = count;
+        }
+
+        long layerCapacity(int layer) {
+            return capacity << Math.min(layer, 20);
+        }
+
+        long bitSize(int layer) {
+            double p = fpp / (1L << Math.min(layer, 20));
+            long n = layerCapacity(layer);
+            return Math.min(MAX_BITS, Math.max(64, (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)))));
+        }
+
+        int hashFunctions(int layer) {
+            return Math.max(1, (int) Math.round((double) bitSize(layer) / layerCapacity(layer) * Math.log(2)));
+        }
+
+        boolean layerFull() {
+            return count >= layerCapacity(layers - 1);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.zxx.learning.user.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 用户名布隆过滤器配置
+ *
+ * @author zxx
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "user.username-bloom")
+public class UsernameBloomProperties {
+
+    /**
+     * 是否启用，关闭后用户名检查全部查询数据库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 第一层的最小容量（重建时取 max(该值, 现有用户数 * 2)），写满后追加一层，每层容量翻倍
+     */
+    private long initialCapacity = 100000;
+
+    /**
+     * 第一层误判率，之后每层减半，总误判率不超过该值的 2 倍
+     */
+    private double fpp = 0.01;
+
+    /**
+     * 启动时是否从 t_user 重建
+     */
+    private boolean rebuildOnStartup = true;
+
+    /**
+     * 重建锁有效期，单位毫秒：多个实例同时启动时只有一个实例重建，该时间内启动的其他实例直接复用
+     */
+    private long rebuildLockTtl = 600000;
+}
@@ -1,15 +1,23 @@
 package com.zxx.learning.user.controller;
 
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.RevokeRequest;
+import com.zxx.learning.common.dto.RevokeResult;
+import com.zxx.learning.user.config.PasswordHasher;
 import com.zxx.learning.user.entity.TUser;
+import com.zxx.learning.user.feign.AuthServiceFeign;
 import com.zxx.learning.user.service.TUserService;
+import com.zxx.learning.user.service.UserImportService;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,7 +35,14 @@ public class AdminController {
     @Resource
     private TUserService tUserService;
 
-    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Resource
+    private AuthServiceFeign authServiceFeign;
+
+    @Resource
+    private PasswordHasher passwordHasher;
+
+    @Resource
+    private UserImportService userImportService;
 
     /**
      * 管理员新增用户接口
@@ -52,9 +67,8 @@ public class AdminController {
             return error("密码不能为空");
         }
 
-        // 用户名唯一性校验
-        TUser existing = tUserService.getByUsername(request.getUsername().trim());
-        if (existing != null) {
+        // 用户名唯一性校验（布隆过滤器判断一定不存在时不查询数据库，最终以唯一索引为准）
+        if (tUserService.isUsernameTaken(request.getUsername().trim())) {
             log.info("创建用户失败，用户名已存在: {}", request.getUsername());
             return error("用户名已存在");
         }
@@ -62,7 +76,7 @@ public class AdminController {
         // 创建新用户
         TUser entity = new TUser();
         entity.setUsername(request.getUsername().trim());
-        entity.setPassword(passwordEncoder.encode(request.getPassword()));
+        entity.setPassword(passwordHasher.encode(request.getPassword()));
         
         // 设置邮箱（可选）
         if (StringUtils.hasText(request.getEmail())) {
@@ -84,7 +98,12 @@ public class AdminController {
         }
 
         // 保存用户
-        tUserService.createUser(entity);
+        try {
+            tUserService.createUser(entity);
+        } catch (DuplicateKeyException e) {
+            log.info("创建用户失败，用户名已存在（并发创建）: {}", entity.getUsername());
+            return error("用户名已存在");
+        }
 
         log.info("管理员创建用户成功, username={}, role={}, status={}", 
                 entity.getUsername(), entity.getRole(), entity.getStatus());
@@ -101,6 +120,73 @@ public class AdminController {
         return success("创建成功", data);
     }
 
+    /**
+     * 管理员批量导入用户接口
+     * POST /admin/user/import?format=csv     （Content-Type: text/csv，首行表头：username,password,email,role,status）
+     * POST /admin/user/import?format=ndjson  （Content-Type: application/x-ndjson，每行一个 JSON 对象）
+     *
+     * 说明：
+     *  - 请求体流式读取，分批去重、并行加密、批量插入
+     *  - 单行失败不影响其他行，返回结果中包含失败行号与原因
+     *  - 未指定 format 时按 Content-Type 判断，包含 json 时为 NDJSON，否则为 CSV
+     */
+    @PostMapping("/user/import")
+    public Map<String, Object> importUsers(@RequestParam(required = false) String format,
+                                           HttpServletRequest request) throws IOException {
+        boolean csv = format != null
+                ? !"ndjson".equalsIgnoreCase(format)
+                : request.getContentType() == null || !request.getContentType().toLowerCase().contains("json");
+        UserImportService.ImportResult result = userImportService.importUsers(request.getInputStream(), csv);
+        log.info("管理员批量导入用户, total={}, created={}, failed={}",
+                result.getTotal(), result.getCreated(), result.getFailed());
+        return success("导入完成", result);
+    }
+
+    /**
+     * 管理员修改用户状态接口
+     * PUT /admin/user/{id}/status
+     *
+     * 说明：
+     *  - 禁用（status=0）时调用 auth-service 吊销该用户全部会话，透传当前管理员的 Authorization 请求头
+     *  - 吊销失败不回滚状态修改，返回结果中标记 revoked=false，可通过 /api/auth/admin/revoke 重试
+     */
+    @PutMapping("/user/{id}/status")
+    public Map<String, Object> updateStatus(@PathVariable Long id,
+                                            @RequestBody UpdateStatusRequest request,
+                                            @RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (request == null || request.getStatus() == null
+                || (request.getStatus() != 0 && request.getStatus() != 1)) {
+            return error("状态只能为 0 或 1");
+        }
+        TUser user = tUserService.updateStatus(id, request.getStatus());
+        if (user == null) {
+            return error("用户不存在");
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("id", user.getId());
+        data.put("username", user.getUsername());
+        data.put("status", user.getStatus());
+
+        if (user.getStatus() == 0) {
+            boolean revoked = false;
+            try {
+                ApiResult<RevokeResult> response = authServiceFeign.revoke(authorization,
+                        RevokeRequest.of(Collections.singletonList(user.getUsername())));
+                revoked = response != null && response.isSuccess();
+                if (!revoked) {
+                    log.warn("禁用用户后吊销会话失败, username={}, response={}", user.getUsername(), response);
+                }
+            } catch (Exception e) {
+                log.error("禁用用户后吊销会话异常, username={}", user.getUsername(), e);
+            }
+            data.put("revoked", revoked);
+        }
+
+        log.info("管理员修改用户状态, id={}, username={}, status={}", id, user.getUsername(), user.getStatus());
+        return success("修改成功", data);
+    }
+
     /**
      * 返回成功响应
      */
@@ -152,4 +238,15 @@ public class AdminController {
          */
         private Integer status;
     }
+
+    /**
+     * 修改用户状态请求参数
+     */
+    @Data
+    public static class UpdateStatusRequest {
+        /**
+         * 状态：1-正常，0-禁用
+         */
+        private Integer status;
+    }
 }
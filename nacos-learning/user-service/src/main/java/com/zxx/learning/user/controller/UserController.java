@@ -1,17 +1,36 @@
 package com.zxx.learning.user.controller;
 
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.AuthUserInfo;
+import com.zxx.learning.common.dto.LoginRequest;
+import com.zxx.learning.common.dto.RegisterRequest;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
 import com.zxx.learning.common.entity.User;
-import com.zxx.learning.user.dto.UserAuthDtos;
+import com.zxx.learning.common.web.ConditionalGet;
+import com.zxx.learning.user.config.PasswordHasher;
+import com.zxx.learning.user.config.UserChangeFeed;
 import com.zxx.learning.user.entity.TUser;
 import com.zxx.learning.user.service.TUserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.annotation.Resource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,6 +43,7 @@ import java.util.stream.Collectors;
  * 说明：
  *  - 对外仍然使用通用的 User DTO（com.zxx.learning.common.entity.User）
  *  - 内部通过 MyBatis-Plus 操作 t_user 表（实体：TUser）
+ *  - 大量数据使用 /user/page（游标分页）或 /user/export（流式导出），/user/list 会一次性加载全表
  *
  * 同时在此类中提供 /user/internal/** 内部接口，供网关在登录/注册时调用。
  *
@@ -34,19 +54,44 @@ import java.util.stream.Collectors;
 @RequestMapping("/user")
 public class UserController {
 
+    /**
+     * 批量查询接口单次允许的最大ID数量
+     */
+    private static final int MAX_BATCH_IDS = 1000;
+
+    /**
+     * 游标分页每页最大条数
+     */
+    private static final int MAX_PAGE_SIZE = 200;
+
+    /**
+     * 变更流 / 快照单页最大条数
+     */
+    private static final int MAX_CHANGE_PAGE_SIZE = 1000;
+
     @Resource
     private TUserService tUserService;
 
-    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Resource
+    private ObjectMapper objectMapper;
+
+    @Resource
+    private UserChangeFeed userChangeFeed;
+
+    /**
+     * BCrypt 计算在独立线程池中执行，不占用 Tomcat 线程的 CPU 时间
+     */
+    @Resource
+    private PasswordHasher passwordHasher;
 
     /**
      * 根据ID获取用户
      * GET /user/{id}
      *
-     * 说明：统一响应格式为 {success, msg, data}
+     * 说明：统一响应格式为 {success, msg, data}；支持 If-None-Match / If-Modified-Since，未变化时返回 304
      */
     @GetMapping("/{id}")
-    public Map<String, Object> getUserById(@PathVariable Long id) {
+    public Map<String, Object> getUserById(@PathVariable Long id, WebRequest webRequest) {
         log.info("根据ID获取用户，ID: {}", id);
 
         TUser entity = tUserService.getById(id);
@@ -54,6 +99,9 @@ public class UserController {
             log.info("未找到ID为 {} 的用户", id);
             return error("用户不存在");
         }
+        if (ConditionalGet.checkNotModified(webRequest, id, entity.getUpdateTime())) {
+            return null;
+        }
 
         User user = convertToDto(entity);
         log.info("返回用户: {}", user);
@@ -63,10 +111,15 @@ public class UserController {
     /**
      * 获取用户列表
      * GET /user/list
+     *
+     * 先用一条聚合查询（总数 + 变更流最大序号 + 最大更新时间）比对客户端缓存，未变化时返回 304，不再加载整个列表
      */
     @GetMapping("/list")
-    public Map<String, Object> getUserList() {
+    public Map<String, Object> getUserList(WebRequest webRequest) {
         log.info("获取用户列表");
+        if (ConditionalGet.checkNotModified(webRequest, tUserService.collectionVersion())) {
+            return null;
+        }
 
         List<TUser> list = tUserService.list();
         List<User> userList = list.stream()
@@ -75,6 +128,71 @@ public class UserController {
         return success("获取成功", userList);
     }
 
+    /**
+     * 游标分页获取用户列表（按ID keyset 分页，深翻页不会变慢）
+     * GET /user/page?cursor=&size=20
+     *
+     * 翻页时把上一页返回的 nextCursor 作为 cursor 传入，nextCursor 为 null 表示没有更多
+     */
+    @GetMapping("/page")
+    public Map<String, Object> getUserPage(@RequestParam(required = false) Long cursor,
+                                           @RequestParam(defaultValue = "20") int size,
+                                           WebRequest webRequest) {
+        if (ConditionalGet.checkNotModified(webRequest, tUserService.collectionVersion())) {
+            return null;
+        }
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        List<TUser> list = tUserService.listAfter(cursor, pageSize);
+        List<User> userList = list.stream()
+                .map(this::convertToDto)
+                .collect(Collectors.toList());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("users", userList);
+        data.put("nextCursor", list.size() == pageSize ? list.get(list.size() - 1).getId() : null);
+        return success("获取成功", data);
+    }
+
+    /**
+     * 导出全部用户（流式输出，逐行读取数据库并写出，内存占用与用户数量无关）
+     * GET /user/export?format=ndjson
+     * GET /user/export?format=csv
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@RequestParam(defaultValue = "ndjson") String format) {
+        final boolean csv = "csv".equalsIgnoreCase(format);
+        if (!csv && !"ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write("id,username,email,status,createTime\n");
+            }
+            final long[] rows = {0};
+            tUserService.forEachUser(entity -> {
+                try {
+                    if (csv) {
+                        writeCsvLine(writer, entity);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(convertToDto(entity)));
+                        writer.write('\n');
+                    }
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+            log.info("导出用户完成, format={}, rows={}", csv ? "csv" : "ndjson", rows[0]);
+        };
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=users." + (csv ? "csv" : "ndjson"))
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                        : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8))
+                .body(body);
+    }
+
     /**
      * 创建用户
      * POST /user
@@ -110,31 +228,99 @@ public class UserController {
         return success("获取成功", user);
     }
 
+    /**
+     * 检查用户名是否可用（注册页实时校验）
+     * GET /user/available?username=zhangsan
+     *
+     * 说明：大部分未使用的用户名由布隆过滤器直接判定，不查询数据库；提交注册时仍以唯一索引为准
+     */
+    @GetMapping("/available")
+    public Map<String, Object> checkUsernameAvailable(@RequestParam String username) {
+        if (!StringUtils.hasText(username)) {
+            return error("用户名不能为空");
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("username", username.trim());
+        data.put("available", !tUserService.isUsernameTaken(username));
+        return success("查询成功", data);
+    }
+
+    /**
+     * 根据ID批量获取用户（供其他服务批量填充用户信息）
+     * POST /user/batch
+     *
+     * 请求体：[1, 2, 3]，返回：{"1": {...}, "2": {...}}，未找到的ID不包含在结果中
+     */
+    @PostMapping("/batch")
+    public ApiResult<Map<Long, User>> getUsersByIds(@RequestBody List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return ApiResult.ok("获取成功", new HashMap<Long, User>());
+        }
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ApiResult.fail("单次最多查询 " + MAX_BATCH_IDS + " 个用户");
+        }
+        Map<Long, TUser> entities = tUserService.getByIds(ids);
+        Map<Long, User> users = new HashMap<>(entities.size() * 2);
+        for (Map.Entry<Long, TUser> entry : entities.entrySet()) {
+            users.put(entry.getKey(), convertToDto(entry.getValue()));
+        }
+        log.info("批量获取用户, requested={}, found={}", ids.size(), users.size());
+        return ApiResult.ok("获取成功", users);
+    }
+
+    /**
+     * 用户变更流（供其他服务增量同步本地副本，见 nacos-common 的 UserReplica）
+     * GET /user/changes?since=0&limit=500
+     *
+     * 返回 seq 大于 since 的变更（携带用户最新状态）；reset 为 true 时需要先通过 /user/changes/snapshot 重新拉取全量快照
+     */
+    @GetMapping("/changes")
+    public ApiResult<UserChangeBatch> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                 @RequestParam(defaultValue = "500") int limit) {
+        return ApiResult.ok("获取成功",
+                userChangeFeed.changesSince(Math.max(0, since), Math.max(1, Math.min(limit, MAX_CHANGE_PAGE_SIZE))));
+    }
+
+    /**
+     * 用户全量快照（按ID游标分页），消费方首次同步或收到 reset 时使用
+     * GET /user/changes/snapshot?cursor=&size=1000
+     */
+    @GetMapping("/changes/snapshot")
+    public ApiResult<UserSnapshotPage> getSnapshot(@RequestParam(required = false) Long cursor,
+                                                   @RequestParam(defaultValue = "1000") int size) {
+        return ApiResult.ok("获取成功",
+                userChangeFeed.snapshot(cursor, Math.max(1, Math.min(size, MAX_CHANGE_PAGE_SIZE))));
+    }
+
     /**
      * 内部注册接口，仅供网关调用
      * POST /user/internal/register
      */
     @PostMapping("/internal/register")
-    public Map<String, Object> internalRegister(@RequestBody UserAuthDtos.RegisterRequest request) {
+    public ApiResult<AuthUserInfo> internalRegister(@RequestBody RegisterRequest request) {
         String username = request != null ? request.getUsername() : null;
         String password = request != null ? request.getPassword() : null;
         String role = request != null ? request.getRole() : null;
 
         if (!StringUtils.hasText(username) || !StringUtils.hasText(password)) {
-            return error("用户名和密码不能为空");
+            return ApiResult.fail("用户名和密码不能为空");
         }
 
-        // 用户名唯一性校验
-        TUser existing = tUserService.getByUsername(username);
-        if (existing != null) {
+        // 用户名唯一性校验（布隆过滤器判断一定不存在时不查询数据库，最终以唯一索引为准）
+        if (tUserService.isUsernameTaken(username)) {
             log.info("注册失败，用户名已存在: {}", username);
-            return error("用户名已存在");
+            return ApiResult.fail("用户名已存在");
         }
 
         // 创建新用户，密码使用 BCrypt 加密
         TUser entity = new TUser();
         entity.setUsername(username.trim());
-        entity.setPassword(passwordEncoder.encode(password));
+        try {
+            entity.setPassword(passwordHasher.encode(password));
+        } catch (PasswordHasher.BusyException e) {
+            log.warn("注册繁忙，密码哈希线程池已满, username={}", username);
+            return ApiResult.busy(e.getMessage());
+        }
         // 角色：如果未指定则默认为 user
         if (!StringUtils.hasText(role)) {
             role = "user";
@@ -143,21 +329,16 @@ public class UserController {
         // 状态：1-正常
         entity.setStatus(1);
 
-        tUserService.createUser(entity);
+        try {
+            tUserService.createUser(entity);
+        } catch (DuplicateKeyException e) {
+            log.info("注册失败，用户名已存在（并发注册）: {}", username);
+            return ApiResult.fail("用户名已存在");
+        }
 
         log.info("内部注册成功, username={}, role={}", username, entity.getRole());
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("id", entity.getId());
-        data.put("username", entity.getUsername());
-        data.put("role", entity.getRole());
-        data.put("status", entity.getStatus());
-
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("msg", "注册成功");
-        result.put("data", data);
-        return result;
+        return ApiResult.ok("注册成功", toAuthUserInfo(entity));
     }
 
     /**
@@ -165,41 +346,45 @@ public class UserController {
      * POST /user/internal/validate-login
      */
     @PostMapping("/internal/validate-login")
-    public Map<String, Object> validateLogin(@RequestBody UserAuthDtos.LoginRequest request) {
+    public ApiResult<AuthUserInfo> validateLogin(@RequestBody LoginRequest request) {
         String username = request != null ? request.getUsername() : null;
         String password = request != null ? request.getPassword() : null;
 
         if (!StringUtils.hasText(username) || !StringUtils.hasText(password)) {
-            return error("用户名和密码不能为空");
+            return ApiResult.fail("用户名和密码不能为空");
         }
 
         TUser entity = tUserService.getByUsername(username);
         if (entity == null) {
             log.info("登录失败，用户不存在: {}", username);
-            return error("用户未注册");
+            return ApiResult.fail("用户未注册");
         }
 
         if (entity.getStatus() != null && entity.getStatus() == 0) {
             log.info("登录失败，用户已被禁用: {}", username);
-            return error("用户已被禁用");
+            return ApiResult.fail("用户已被禁用");
         }
 
-        if (!passwordEncoder.matches(password, entity.getPassword())) {
-            log.info("登录失败，密码错误: {}", username);
-            return error("用户名或密码错误");
+        // 缓存中不含密码，只在登录校验时从主库读取哈希
+        String passwordHash = tUserService.getPasswordHash(entity.getId());
+        if (passwordHash == null) {
+            log.info("登录失败，用户不存在: {}", username);
+            return ApiResult.fail("用户未注册");
         }
 
-        Map<String, Object> data = new HashMap<>();
-        data.put("id", entity.getId());
-        data.put("username", entity.getUsername());
-        data.put("role", entity.getRole());
-        data.put("status", entity.getStatus());
+        boolean matched;
+        try {
+            matched = passwordHasher.matches(password, passwordHash);
+        } catch (PasswordHasher.BusyException e) {
+            log.warn("登录繁忙，密码哈希线程池已满, username={}", username);
+            return ApiResult.busy(e.getMessage());
+        }
+        if (!matched) {
+            log.info("登录失败，密码错误: {}", username);
+            return ApiResult.fail("用户名或密码错误");
+        }
 
-        Map<String, Object> result = new HashMap<>();
-        result.put("success", true);
-        result.put("msg", "登录成功");
-        result.put("data", data);
-        return result;
+        return ApiResult.ok("登录成功", toAuthUserInfo(entity));
     }
 
     /**
@@ -226,7 +411,7 @@ public class UserController {
         // 构造管理员用户，密码使用 BCrypt 加密
         TUser entity = new TUser();
         entity.setUsername(username.trim());
-        entity.setPassword(passwordEncoder.encode(password));
+        entity.setPassword(passwordHasher.encode(password));
         entity.setRole("admin");
         entity.setStatus(1);
         if (StringUtils.hasText(email)) {
@@ -265,6 +450,47 @@ public class UserController {
         return user;
     }
 
+    private void writeCsvLine(Writer writer, TUser entity) throws IOException {
+        writer.write(String.valueOf(entity.getId()));
+        writer.write(',');
+        writer.write(csvField(entity.getUsername()));
+        writer.write(',');
+        writer.write(csvField(entity.getEmail()));
+        writer.write(',');
+        writer.write(entity.getStatus() != null ? String.valueOf(entity.getStatus()) : "");
+        writer.write(',');
+        writer.write(entity.getCreateTime() != null ? entity.getCreateTime().toString() : "");
+        writer.write('\n');
+    }
+
+    /**
+     * CSV 字段转义：包含逗号、引号、换行时加引号；以 = + - @ 开头时加单引号前缀，防止表格软件当作公式执行
+     */
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (!value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+
+    /**
+     * 将数据库实体 TUser 转换为认证用户信息
+     */
+    private AuthUserInfo toAuthUserInfo(TUser entity) {
+        AuthUserInfo info = new AuthUserInfo();
+        info.setId(entity.getId());
+        info.setUsername(entity.getUsername());
+        info.setRole(entity.getRole());
+        info.setStatus(entity.getStatus());
+        return info;
+    }
+
     /**
      * 返回成功响应
      */
@@ -0,0 +1,22 @@
+package com.zxx.learning.user.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 指定方法（或类中所有方法）使用的数据源，优先于按 SQL 类型的默认路由
+ *
+ * <p>读写事务中始终使用主库，该注解不会把事务内的读改到从库。</p>
+ *
+ * @author zxx
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface DataSourceRoute {
+
+    RouteKey value();
+}
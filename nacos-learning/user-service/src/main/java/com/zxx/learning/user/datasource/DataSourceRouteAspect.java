@@ -0,0 +1,47 @@
+package com.zxx.learning.user.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+
+import java.lang.reflect.Method;
+
+/**
+ * 处理 {@link DataSourceRoute} 注解：在方法执行期间设置路由
+ *
+ * <p>优先级高于 {@code @Transactional}，路由在事务开始前已经确定。</p>
+ *
+ * @author zxx
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DataSourceRouteAspect {
+
+    @Around("@annotation(com.zxx.learning.user.datasource.DataSourceRoute) "
+            + "|| @within(com.zxx.learning.user.datasource.DataSourceRoute)")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        DataSourceRoute route = findRoute(joinPoint);
+        if (route == null) {
+            return joinPoint.proceed();
+        }
+        RouteContext.push(route.value());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            RouteContext.pop();
+        }
+    }
+
+    private static DataSourceRoute findRoute(ProceedingJoinPoint joinPoint) {
+        Method method = ((MethodSignature) joinPoint.getSignature()).getMethod();
+        DataSourceRoute route = AnnotatedElementUtils.findMergedAnnotation(method, DataSourceRoute.class);
+        if (route == null) {
+            route = AnnotatedElementUtils.findMergedAnnotation(joinPoint.getTarget().getClass(), DataSourceRoute.class);
+        }
+        return route;
+    }
+}
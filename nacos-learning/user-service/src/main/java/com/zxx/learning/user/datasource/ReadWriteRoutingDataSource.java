@@ -0,0 +1,180 @@
+package com.zxx.learning.user.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 读写分离路由数据源
+ *
+ * <p>路由规则（按优先级）：
+ * <ol>
+ *     <li>读写事务中始终走主库</li>
+ *     <li>{@link DataSourceRoute} 注解指定的数据源</li>
+ *     <li>只读事务（{@code @Transactional(readOnly = true)}）走从库</li>
+ *     <li>MyBatis 语句路由：SELECT 走从库，其他走主库</li>
+ *     <li>其余（如 JdbcTemplate 直接执行的 SQL）走主库</li>
+ * </ol>
+ * 走从库时在健康的从库之间轮询；从库不可达或复制延迟超过阈值时暂停使用，全部不可用时回退到主库。
+ * 启动后第一次健康检查完成前读请求也走主库。</p>
+ *
+ * <p>需要包装在 LazyConnectionDataSourceProxy 中使用，事务开始时不会立即获取连接，
+ * 只读标记等事务属性已经就绪后才确定路由。</p>
+ *
+ * @author zxx
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements DisposableBean {
+
+    private static final String PRIMARY = "primary";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final String lagQuery;
+    private final String lagColumn;
+    private final long maxLag;
+    private final int validationTimeout;
+
+    private final AtomicInteger counter = new AtomicInteger();
+    private final Map<String, Boolean> status = new HashMap<>();
+
+    /**
+     * 当前可用的从库名称，健康检查后整体替换
+     */
+    private volatile String[] healthy = new String[0];
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, String lagQuery,
+                                      String lagColumn, long maxLag, int validationTimeout) {
+        this.primary = primary;
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+        this.maxLag = maxLag;
+        this.validationTimeout = validationTimeout;
+
+        Map<Object, Object> targets = new HashMap<>(this.replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        RouteKey key = RouteContext.current();
+        if (key == null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            key = RouteKey.REPLICA;
+        }
+        if (key == null) {
+            key = RouteContext.statement();
+        }
+        if (key != RouteKey.REPLICA) {
+            return PRIMARY;
+        }
+        String[] candidates = healthy;
+        if (candidates.length == 0) {
+            return PRIMARY;
+        }
+        return candidates[Math.floorMod(counter.getAndIncrement(), candidates.length)];
+    }
+
+    /**
+     * 检查所有从库：连接可用且复制延迟不超过阈值的从库参与读请求轮询
+     */
+    @Scheduled(fixedDelayString = "${user.datasource.routing.health-check-interval:5000}")
+    public void checkReplicas() {
+        List<String> available = new ArrayList<>(replicas.size());
+        for (Map.Entry<String, DataSource> entry : replicas.entrySet()) {
+            String name = entry.getKey();
+            String reason = check(entry.getValue());
+            if (reason == null) {
+                available.add(name);
+            }
+            Boolean previous = status.put(name, reason == null);
+            if (previous == null || previous != (reason == null)) {
+                if (reason == null) {
+                    log.info("从库可用, replica={}", name);
+                } else {
+                    log.warn("从库不可用，读请求暂停路由到该从库, replica={}, reason={}", name, reason);
+                }
+            }
+        }
+        healthy = available.toArray(new String[0]);
+    }
+
+    /**
+     * 当前可用的从库
+     */
+    public List<String> healthyReplicas() {
+        List<String> result = new ArrayList<>();
+        for (String name : healthy) {
+            result.add(name);
+        }
+        return result;
+    }
+
+    /**
+     * @return 不可用原因，可用时返回 null
+     */
+    private String check(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            if (!connection.isValid(validationTimeout)) {
+                return "连接校验失败";
+            }
+            if (!StringUtils.hasText(lagQuery)) {
+                return null;
+            }
+            try (Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                if (!rs.next()) {
+                    return "未配置复制";
+                }
+                long lag = rs.getLong(lagColumn);
+                if (rs.wasNull()) {
+                    return "复制已停止";
+                }
+                return lag > maxLag ? "复制延迟 " + lag + " 秒" : null;
+            }
+        } catch (Exception e) {
+            return e.getMessage();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        close(primary);
+        for (DataSource replica : replicas.values()) {
+            close(replica);
+        }
+    }
+
+    private static void close(DataSource dataSource) {
+        if (dataSource instanceof Closeable) {
+            try {
+                ((Closeable) dataSource).close();
+            } catch (IOException e) {
+                log.warn("关闭数据源失败: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.zxx.learning.user.datasource;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * 当前线程的数据源路由上下文
+ *
+ * <ul>
+ *     <li>指定路由：由 {@link DataSourceRoute} 注解设置，支持嵌套，内层优先</li>
+ *     <li>语句路由：由 MyBatis 拦截器按 SQL 类型设置（查询走从库，其他走主库），只在执行单条语句期间有效</li>
+ * </ul>
+ *
+ * @author zxx
+ */
+public final class RouteContext {
+
+    private static final ThreadLocal<Deque<RouteKey>> ROUTES = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private static final ThreadLocal<RouteKey> STATEMENT = new ThreadLocal<>();
+
+    private RouteContext() {
+    }
+
+    public static void push(RouteKey key) {
+        ROUTES.get().push(key);
+    }
+
+    public static void pop() {
+        Deque<RouteKey> routes = ROUTES.get();
+        routes.poll();
+        if (routes.isEmpty()) {
+            ROUTES.remove();
+        }
+    }
+
+    /**
+     * 注解指定的路由，没有时返回 null
+     */
+    public static RouteKey current() {
+        return ROUTES.get().peek();
+    }
+
+    /**
+     * 设置语句路由，返回之前的值用于恢复
+     */
+    public static RouteKey setStatement(RouteKey key) {
+        RouteKey previous = STATEMENT.get();
+        STATEMENT.set(key);
+        return previous;
+    }
+
+    public static void restoreStatement(RouteKey previous) {
+        if (previous == null) {
+            STATEMENT.remove();
+        } else {
+            STATEMENT.set(previous);
+        }
+    }
+
+    public static RouteKey statement() {
+        return STATEMENT.get();
+    }
+}
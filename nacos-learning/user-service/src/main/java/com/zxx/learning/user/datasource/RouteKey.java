@@ -0,0 +1,19 @@
+package com.zxx.learning.user.datasource;
+
+/**
+ * 数据源路由目标
+ *
+ * @author zxx
+ */
+public enum RouteKey {
+
+    /**
+     * 主库（写、事务、需要读到最新数据的读）
+     */
+    PRIMARY,
+
+    /**
+     * 从库（只读，可能有复制延迟）
+     */
+    REPLICA
+}
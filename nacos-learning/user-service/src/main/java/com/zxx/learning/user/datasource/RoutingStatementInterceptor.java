@@ -0,0 +1,46 @@
+package com.zxx.learning.user.datasource;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * MyBatis 拦截器：按 SQL 类型设置语句路由，SELECT 走从库，INSERT / UPDATE / DELETE 走主库
+ *
+ * <p>配合 LazyConnectionDataSourceProxy 使用：非事务语句在真正执行时才获取连接，此时路由已经确定。</p>
+ *
+ * @author zxx
+ */
+@Intercepts({
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class,
+                        CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class}),
+        @Signature(type = Executor.class, method = "update",
+                args = {MappedStatement.class, Object.class})
+})
+public class RoutingStatementInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        RouteKey key = statement.getSqlCommandType() == SqlCommandType.SELECT ? RouteKey.REPLICA : RouteKey.PRIMARY;
+        RouteKey previous = RouteContext.setStatement(key);
+        try {
+            return invocation.proceed();
+        } finally {
+            RouteContext.restoreStatement(previous);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.zxx.learning.user.entity;
 
+import com.baomidou.mybatisplus.annotation.FieldStrategy;
 import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
 import com.baomidou.mybatisplus.annotation.TableId;
 import com.baomidou.mybatisplus.annotation.TableName;
 import lombok.Data;
@@ -54,7 +56,9 @@ public class TUser {
 
     /**
      * 更新时间
+     * <p>由数据库 ON UPDATE CURRENT_TIMESTAMP(3) 维护，插入、更新时忽略客户端传入的值，保证 ETag 随每次修改变化</p>
      */
+    @TableField(insertStrategy = FieldStrategy.NEVER, updateStrategy = FieldStrategy.NEVER)
     private LocalDateTime updateTime;
 }
 
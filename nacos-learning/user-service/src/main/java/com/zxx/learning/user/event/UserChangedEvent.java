@@ -0,0 +1,36 @@
+package com.zxx.learning.user.event;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 用户数据变更事件（创建 / 修改 / 删除后发布），用于失效用户查询缓存
+ *
+ * @author zxx
+ */
+@Data
+public class UserChangedEvent {
+
+    /**
+     * 用户ID
+     */
+    private Long id;
+
+    /**
+     * 受影响的用户名（修改用户名时同时包含新旧用户名）
+     */
+    private List<String> usernames = new ArrayList<>();
+
+    public static UserChangedEvent of(Long id, String... usernames) {
+        UserChangedEvent event = new UserChangedEvent();
+        event.setId(id);
+        for (String username : usernames) {
+            if (username != null && !event.usernames.contains(username)) {
+                event.usernames.add(username);
+            }
+        }
+        return event;
+    }
+}
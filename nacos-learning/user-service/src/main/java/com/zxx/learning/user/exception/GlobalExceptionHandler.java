@@ -1,5 +1,6 @@
 package com.zxx.learning.user.exception;
 
+import com.zxx.learning.user.config.PasswordHasher;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -30,6 +31,17 @@ public class GlobalExceptionHandler {
                 .body(error(ex.getMessage() != null ? ex.getMessage() : "参数错误"));
     }
 
+    /**
+     * 处理密码哈希线程池繁忙
+     */
+    @ExceptionHandler(PasswordHasher.BusyException.class)
+    public ResponseEntity<Map<String, Object>> handleBusyException(PasswordHasher.BusyException ex) {
+        log.warn("密码哈希线程池繁忙");
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(error(ex.getMessage()));
+    }
+
     /**
      * 处理业务异常
      */
@@ -0,0 +1,31 @@
+package com.zxx.learning.user.feign;
+
+import com.zxx.learning.common.dto.ApiResult;
+import com.zxx.learning.common.dto.RevokeRequest;
+import com.zxx.learning.common.dto.RevokeResult;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+
+/**
+ * Auth Service Feign 客户端
+ *
+ * 调用 auth-service 的管理接口（吊销会话等），需要透传管理员的 Authorization 请求头。
+ *
+ * @author zxx
+ */
+@FeignClient(name = "auth-service", path = "/api/auth")
+public interface AuthServiceFeign {
+
+    /**
+     * 批量吊销会话
+     *
+     * @param authorization 管理员 token
+     * @param request       吊销的用户列表和/或角色
+     * @return 吊销结果
+     */
+    @PostMapping("/admin/revoke")
+    ApiResult<RevokeResult> revoke(@RequestHeader("Authorization") String authorization,
+                                   @RequestBody RevokeRequest request);
+}
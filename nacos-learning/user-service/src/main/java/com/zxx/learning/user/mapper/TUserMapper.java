@@ -3,6 +3,10 @@ package com.zxx.learning.user.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zxx.learning.user.entity.TUser;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
 
 /**
  * 用户表 Mapper 层
@@ -11,5 +15,13 @@ import org.apache.ibatis.annotations.Mapper;
  */
 @Mapper
 public interface TUserMapper extends BaseMapper<TUser> {
-}
 
+    /**
+     * 按ID顺序流式读取全部用户（不含密码），需在事务内迭代
+     *
+     * fetchSize = Integer.MIN_VALUE 让 MySQL 驱动逐行返回结果，而不是一次性把整个结果集读入内存
+     */
+    @Select("SELECT id, username, role, email, status, create_time, update_time FROM t_user ORDER BY id")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = Integer.MIN_VALUE)
+    Cursor<TUser> streamAll();
+}
@@ -1,21 +1,45 @@
 package com.zxx.learning.user.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.zxx.learning.common.web.ConditionalGet;
 import com.zxx.learning.user.entity.TUser;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 /**
  * 用户表服务接口（操作 t_user）
  */
 public interface TUserService extends IService<TUser> {
 
     /**
-     * 根据用户名查询用户
+     * 根据用户名查询用户（走缓存，不含密码）
      *
      * @param username 用户名
      * @return 用户实体，未找到时返回 null
      */
     TUser getByUsername(String username);
 
+    /**
+     * 查询用户的密码哈希，只用于登录校验；直接读主库，不经过缓存
+     *
+     * @param id 用户ID
+     * @return BCrypt 密码哈希，用户不存在时返回 null
+     */
+    String getPasswordHash(Long id);
+
+    /**
+     * 用户名是否已被使用：布隆过滤器判断一定不存在时不查询数据库，否则按用户名查询确认
+     *
+     * 说明：只用于提前提示，并发注册同名用户时以唯一索引为准（插入抛出 DuplicateKeyException）
+     *
+     * @param username 用户名
+     * @return 是否已被使用
+     */
+    boolean isUsernameTaken(String username);
+
     /**
      * 创建用户（设置默认角色和状态等）
      *
@@ -23,5 +47,42 @@ public interface TUserService extends IService<TUser> {
      * @return 创建后的用户（含主键）
      */
     TUser createUser(TUser user);
-}
 
+    /**
+     * 修改用户状态
+     *
+     * @param id     用户ID
+     * @param status 状态：1-正常，0-禁用
+     * @return 修改后的用户，未找到时返回 null
+     */
+    TUser updateStatus(Long id, Integer status);
+
+    /**
+     * 根据ID批量查询用户（去重后分批 IN 查询）
+     *
+     * @param ids 用户ID列表
+     * @return 用户ID -> 用户实体，未找到的ID不包含在结果中
+     */
+    Map<Long, TUser> getByIds(Collection<Long> ids);
+
+    /**
+     * 按ID游标分页查询用户（keyset 分页，不含密码）
+     *
+     * @param afterId 上一页最后一个用户ID，首页传 null
+     * @param size    每页条数
+     * @return 按ID升序的用户列表
+     */
+    List<TUser> listAfter(Long afterId, int size);
+
+    /**
+     * 用户集合版本（总数 + 变更流最大序号 + 最大更新时间），用于列表接口的条件 GET
+     */
+    ConditionalGet.Version collectionVersion();
+
+    /**
+     * 按ID顺序逐个处理全部用户（不含密码），结果集流式读取，内存占用与用户数量无关
+     *
+     * @param consumer 每个用户的处理逻辑
+     */
+    void forEachUser(Consumer<TUser> consumer);
+}
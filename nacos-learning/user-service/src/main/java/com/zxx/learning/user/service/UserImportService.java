@@ -0,0 +1,381 @@
+package com.zxx.learning.user.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zxx.learning.user.config.PasswordHasher;
+import com.zxx.learning.user.config.UserChangeFeed;
+import com.zxx.learning.user.event.UserChangedEvent;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用户批量导入
+ *
+ * <p>说明：
+ * <ul>
+ *     <li>请求体逐行读取（CSV 首行为表头，或 NDJSON 每行一个 JSON 对象），不会一次性加载到内存</li>
+ *     <li>每 {@link #BATCH_SIZE} 行一批：一条 IN 查询排除已存在的用户名 → 并行 BCrypt 加密 → JDBC 批量插入</li>
+ *     <li>用户名查重（导入数据内部、与数据库已有用户）不区分大小写，与 t_user.username 的排序规则一致</li>
+ *     <li>批量插入依赖 JDBC URL 中的 rewriteBatchedStatements=true，MySQL 驱动会改写为多行 INSERT</li>
+ *     <li>某一批插入失败（如并发注册了同名用户）时逐行重试，只有出错的行记为失败，不影响其他行</li>
+ *     <li>新用户与对应的变更流记录（{@link UserChangeFeed}）在同一事务中写入</li>
+ * </ul>
+ * </p>
+ *
+ * @author zxx
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class UserImportService {
+
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * 返回结果中最多包含的错误明细条数（失败总数仍完整统计）
+     */
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO t_user (username, password, role, email, status) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final PasswordHasher passwordHasher;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UserChangeFeed userChangeFeed;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 导入用户
+     *
+     * @param in  请求体
+     * @param csv true 为 CSV（表头：username,password,email,role,status），false 为 NDJSON
+     * @return 导入结果
+     */
+    public ImportResult importUsers(InputStream in, boolean csv) throws IOException {
+        ImportResult result = new ImportResult();
+        Set<String> seen = new HashSet<>();
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        Map<String, Integer> header = null;
+        String line;
+        int lineNo = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (!StringUtils.hasText(line)) {
+                continue;
+            }
+            if (csv && header == null) {
+                header = parseHeader(line);
+                if (!header.containsKey("username") || !header.containsKey("password")) {
+                    result.fail(lineNo, null, "CSV 表头必须包含 username 和 password");
+                    return result;
+                }
+                continue;
+            }
+            result.setTotal(result.getTotal() + 1);
+            ImportRow row;
+            try {
+                row = csv ? parseCsvRow(header, line) : parseJsonRow(line);
+            } catch (Exception e) {
+                result.fail(lineNo, null, "格式错误");
+                continue;
+            }
+            row.setLine(lineNo);
+            String error = validate(row);
+            if (error != null) {
+                result.fail(lineNo, row.getUsername(), error);
+                continue;
+            }
+            if (!seen.add(lowerCase(row.getUsername()))) {
+                result.fail(lineNo, row.getUsername(), "导入数据中用户名重复");
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() == BATCH_SIZE) {
+                flush(batch, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, result);
+        }
+        log.info("批量导入用户完成, total={}, created={}, failed={}",
+                result.getTotal(), result.getCreated(), result.getFailed());
+        return result;
+    }
+
+    private void flush(List<ImportRow> batch, ImportResult result) {
+        // 1. 一次查询排除数据库中已存在的用户名
+        List<String> usernames = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            usernames.add(row.getUsername());
+        }
+        Set<String> existing = new HashSet<>();
+        for (String username : namedParameterJdbcTemplate.queryForList(
+                "SELECT username FROM t_user WHERE username IN (:usernames)",
+                Collections.singletonMap("usernames", usernames), String.class)) {
+            existing.add(lowerCase(username));
+        }
+        final List<ImportRow> rows = new ArrayList<>(batch.size());
+        for (ImportRow row : batch) {
+            if (existing.contains(lowerCase(row.getUsername()))) {
+                result.fail(row.getLine(), row.getUsername(), "用户名已存在");
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // 2. 并行加密
+        List<String> passwords = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            passwords.add(row.getPassword());
+        }
+        List<String> encoded = passwordHasher.encodeAll(passwords);
+        for (int i = 0; i < rows.size(); i++) {
+            rows.get(i).setPassword(encoded.get(i));
+        }
+
+        // 3. 批量插入，失败时逐行重试定位出错的行
+        List<String> created = new ArrayList<>(rows.size());
+        try {
+            final List<String> rowUsernames = usernamesOf(rows);
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bind(ps, rows.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                });
+                userChangeFeed.recordCreated(rowUsernames);
+            });
+            created.addAll(rowUsernames);
+        } catch (DataAccessException e) {
+            log.warn("批量插入用户失败，改为逐行插入, rows={}, error={}", rows.size(), e.getMessage());
+            for (final ImportRow row : rows) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row));
+                        userChangeFeed.recordCreated(Collections.singletonList(row.getUsername()));
+                    });
+                    created.add(row.getUsername());
+                } catch (DuplicateKeyException ex) {
+                    result.fail(row.getLine(), row.getUsername(), "用户名已存在");
+                } catch (DataAccessException ex) {
+                    result.fail(row.getLine(), row.getUsername(), "写入失败");
+                    log.warn("导入用户写入失败, line={}, username={}", row.getLine(), row.getUsername(), ex);
+                }
+            }
+        }
+        result.setCreated(result.getCreated() + created.size());
+
+        // 4. 清除这些用户名“不存在”的缓存
+        if (!created.isEmpty()) {
+            eventPublisher.publishEvent(UserChangedEvent.of(null, created.toArray(new String[0])));
+        }
+    }
+
+    private static void bind(PreparedStatement ps, ImportRow row) throws SQLException {
+        ps.setString(1, row.getUsername());
+        ps.setString(2, row.getPassword());
+        ps.setString(3, row.getRole());
+        if (row.getEmail() != null) {
+            ps.setString(4, row.getEmail());
+        } else {
+            ps.setNull(4, Types.VARCHAR);
+        }
+        ps.setInt(5, row.getStatus());
+    }
+
+    private static String lowerCase(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    private static List<String> usernamesOf(List<ImportRow> rows) {
+        List<String> usernames = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            usernames.add(row.getUsername());
+        }
+        return usernames;
+    }
+
+    /**
+     * 校验并补全默认值（与管理员单个创建用户一致：角色默认 user，状态默认 1），长度限制与 t_user 表结构一致
+     */
+    private static String validate(ImportRow row) {
+        if (!StringUtils.hasText(row.getUsername())) {
+            return "用户名不能为空";
+        }
+        row.setUsername(row.getUsername().trim());
+        if (row.getUsername().length() > 50) {
+            return "用户名不能超过 50 个字符";
+        }
+        if (!StringUtils.hasText(row.getPassword())) {
+            return "密码不能为空";
+        }
+        row.setEmail(StringUtils.hasText(row.getEmail()) ? row.getEmail().trim() : null);
+        if (row.getEmail() != null && row.getEmail().length() > 100) {
+            return "邮箱不能超过 100 个字符";
+        }
+        row.setRole(StringUtils.hasText(row.getRole()) ? row.getRole().trim() : "user");
+        if (row.getRole().length() > 20) {
+            return "角色不能超过 20 个字符";
+        }
+        if (row.getStatus() == null) {
+            row.setStatus(1);
+        } else if (row.getStatus() != 0 && row.getStatus() != 1) {
+            return "状态只能为 0 或 1";
+        }
+        return null;
+    }
+
+    private ImportRow parseJsonRow(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        ImportRow row = new ImportRow();
+        row.setUsername(text(node, "username"));
+        row.setPassword(text(node, "password"));
+        row.setEmail(text(node, "email"));
+        row.setRole(text(node, "role"));
+        row.setStatus(node.hasNonNull("status") ? node.get("status").asInt() : null);
+        return row;
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+
+    private static Map<String, Integer> parseHeader(String line) {
+        List<String> columns = splitCsv(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(), i);
+        }
+        return header;
+    }
+
+    private static ImportRow parseCsvRow(Map<String, Integer> header, String line) {
+        List<String> values = splitCsv(line);
+        ImportRow row = new ImportRow();
+        row.setUsername(column(header, values, "username"));
+        row.setPassword(column(header, values, "password"));
+        row.setEmail(column(header, values, "email"));
+        row.setRole(column(header, values, "role"));
+        String status = column(header, values, "status");
+        row.setStatus(StringUtils.hasText(status) ? Integer.valueOf(status.trim()) : null);
+        return row;
+    }
+
+    private static String column(Map<String, Integer> header, List<String> values, String name) {
+        Integer index = header.get(name);
+        return index != null && index < values.size() ? values.get(index) : null;
+    }
+
+    /**
+     * 拆分一行 CSV：支持双引号包裹的字段与 "" 转义（不支持字段内换行）
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    @Data
+    private static class ImportRow {
+        private int line;
+        private String username;
+        private String password;
+        private String email;
+        private String role;
+        private Integer status;
+    }
+
+    /**
+     * 导入结果
+     */
+    @Data
+    public static class ImportResult {
+        /**
+         * 数据行数（不含表头与空行）
+         */
+        private int total;
+        private int created;
+        private int failed;
+        /**
+         * 失败明细（最多 {@link #MAX_REPORTED_ERRORS} 条）
+         */
+        private List<RowError> errors = new ArrayList<>();
+
+        void fail(int line, String username, String msg) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, username, msg));
+            }
+        }
+    }
+
+    @Data
+    public static class RowError {
+        private final int line;
+        private final String username;
+        private final String msg;
+    }
+}
@@ -1,29 +1,172 @@
 package com.zxx.learning.user.service.impl;
 
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.web.ConditionalGet;
+import com.zxx.learning.user.config.UserCache;
+import com.zxx.learning.user.config.UserChangeFeed;
+import com.zxx.learning.user.config.UsernameBloomFilter;
+import com.zxx.learning.user.datasource.DataSourceRoute;
+import com.zxx.learning.user.datasource.RouteKey;
 import com.zxx.learning.user.entity.TUser;
+import com.zxx.learning.user.event.UserChangedEvent;
 import com.zxx.learning.user.mapper.TUserMapper;
 import com.zxx.learning.user.service.TUserService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.apache.ibatis.cursor.Cursor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
 /**
  * 用户表服务实现类
+ *
+ * 说明：按用户名 / ID 查询走 {@link UserCache} 二级缓存；用户名是否已被使用先查 {@link UsernameBloomFilter}；
+ * 创建、修改、删除后发布 {@link UserChangedEvent} 失效缓存（通过 Wrapper 批量更新的场景不会发布事件，依赖缓存有效期兜底），
+ * 并在同一事务中写入 {@link UserChangeFeed} 变更流，供其他服务增量同步。
+ * 启用读写分离时，查询默认走从库；缓存的回源查询固定走主库，避免把复制延迟前的旧数据写入缓存。
+ * 缓存只保存不含密码的投影，密码哈希通过 {@link #getPasswordHash(Long)} 在登录时单独读取。
  */
 @Service
 public class TUserServiceImpl extends ServiceImpl<TUserMapper, TUser> implements TUserService {
 
+    /**
+     * 批量查询时每条 IN 语句的最大ID数量
+     */
+    private static final int IN_CHUNK_SIZE = 500;
+
+    @Resource
+    private UserCache userCache;
+
+    @Resource
+    private ApplicationEventPublisher eventPublisher;
+
+    @Resource
+    private UsernameBloomFilter usernameBloomFilter;
+
+    @Resource
+    private UserChangeFeed userChangeFeed;
+
     @Override
+    @DataSourceRoute(RouteKey.PRIMARY)
     public TUser getByUsername(String username) {
         if (!StringUtils.hasText(username)) {
             return null;
         }
-        return lambdaQuery()
+        return userCache.getByUsername(username, () -> cachedColumnsQuery()
                 .eq(TUser::getUsername, username)
+                .one());
+    }
+
+    @Override
+    @DataSourceRoute(RouteKey.PRIMARY)
+    public String getPasswordHash(Long id) {
+        if (id == null) {
+            return null;
+        }
+        TUser user = lambdaQuery()
+                .select(TUser::getPassword)
+                .eq(TUser::getId, id)
                 .one();
+        return user != null ? user.getPassword() : null;
+    }
+
+    @Override
+    @DataSourceRoute(RouteKey.PRIMARY)
+    public boolean isUsernameTaken(String username) {
+        if (!StringUtils.hasText(username)) {
+            return false;
+        }
+        return usernameBloomFilter.mightContain(username) && getByUsername(username.trim()) != null;
+    }
+
+    @Override
+    @DataSourceRoute(RouteKey.PRIMARY)
+    public TUser getById(Serializable id) {
+        if (!(id instanceof Long)) {
+            return getBaseMapper().selectById(id);
+        }
+        return userCache.getById((Long) id, () -> cachedColumnsQuery()
+                .eq(TUser::getId, id)
+                .one());
+    }
+
+    /**
+     * 缓存回源查询：不查询密码列
+     */
+    private LambdaQueryChainWrapper<TUser> cachedColumnsQuery() {
+        return lambdaQuery()
+                .select(TUser::getId, TUser::getUsername, TUser::getRole, TUser::getEmail,
+                        TUser::getStatus, TUser::getCreateTime, TUser::getUpdateTime);
+    }
+
+    @Override
+    public Map<Long, TUser> getByIds(Collection<Long> ids) {
+        Map<Long, TUser> result = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return result;
+        }
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        distinct.remove(null);
+        for (int from = 0; from < distinct.size(); from += IN_CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(from + IN_CHUNK_SIZE, distinct.size()));
+            for (TUser user : listByIds(chunk)) {
+                result.put(user.getId(), user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<TUser> listAfter(Long afterId, int size) {
+        return lambdaQuery()
+                .select(TUser::getId, TUser::getUsername, TUser::getRole, TUser::getEmail,
+                        TUser::getStatus, TUser::getCreateTime, TUser::getUpdateTime)
+                .gt(afterId != null, TUser::getId, afterId)
+                .orderByAsc(TUser::getId)
+                .last("LIMIT " + size)
+                .list();
+    }
+
+    @Override
+    public ConditionalGet.Version collectionVersion() {
+        // 用户的每次增删改都在同一事务中写入变更流，最大序号即修订号；与统计放在同一条语句中，读到的是同一份数据
+        return ConditionalGet.Version.of(getMap(new QueryWrapper<TUser>()
+                .select("COUNT(*) AS cnt", "(SELECT MAX(seq) FROM t_user_change) AS rev",
+                        "MAX(update_time) AS updated")));
     }
 
+    /**
+     * 游标需要在同一个连接上迭代，因此放在只读事务中
+     */
     @Override
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<TUser> consumer) {
+        try (Cursor<TUser> cursor = getBaseMapper().streamAll()) {
+            for (TUser user : cursor) {
+                consumer.accept(user);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
     public TUser createUser(TUser user) {
         if (user == null) {
             return null;
@@ -37,7 +180,52 @@ public class TUserServiceImpl extends ServiceImpl<TUserMapper, TUser> implements
             user.setRole("user");
         }
         save(user);
+        userChangeFeed.record(user.getId(), UserChange.CREATE);
+        // 清除该用户名“不存在”的缓存
+        eventPublisher.publishEvent(UserChangedEvent.of(user.getId(), user.getUsername()));
         return user;
     }
-}
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public TUser updateStatus(Long id, Integer status) {
+        TUser user = getById(id);
+        if (user == null) {
+            return null;
+        }
+        lambdaUpdate()
+                .eq(TUser::getId, id)
+                .set(TUser::getStatus, status)
+                .update();
+        userChangeFeed.record(id, Integer.valueOf(0).equals(status) ? UserChange.DISABLE : UserChange.UPDATE);
+        eventPublisher.publishEvent(UserChangedEvent.of(id, user.getUsername()));
+        user.setStatus(status);
+        return user;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean updateById(TUser entity) {
+        TUser before = entity.getId() != null ? getBaseMapper().selectById(entity.getId()) : null;
+        boolean updated = super.updateById(entity);
+        if (updated) {
+            userChangeFeed.record(entity.getId(),
+                    Integer.valueOf(0).equals(entity.getStatus()) ? UserChange.DISABLE : UserChange.UPDATE);
+            eventPublisher.publishEvent(UserChangedEvent.of(entity.getId(),
+                    before != null ? before.getUsername() : null, entity.getUsername()));
+        }
+        return updated;
+    }
+
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public boolean removeById(Serializable id) {
+        TUser before = getBaseMapper().selectById(id);
+        boolean removed = super.removeById(id);
+        if (removed && before != null) {
+            userChangeFeed.record(before.getId(), UserChange.DELETE);
+            eventPublisher.publishEvent(UserChangedEvent.of(before.getId(), before.getUsername()));
+        }
+        return removed;
+    }
+}
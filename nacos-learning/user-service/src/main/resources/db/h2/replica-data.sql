@@ -0,0 +1,3 @@
+-- 本地调试：从库独有的一条数据（两个内存库之间没有复制），用于观察读请求是否路由到了从库
+MERGE INTO t_user (id, username, password, role, email, status)
+  KEY (id) VALUES (1000000, 'from-replica', '-', 'user', 'replica@example.com', 1);
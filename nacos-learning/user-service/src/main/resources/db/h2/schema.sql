@@ -0,0 +1,35 @@
+-- 本地调试（H2，MySQL 兼容模式）表结构，与 code-generator 下的 MySQL 建表语句保持一致
+-- 内存库每个新连接都会执行一次（JDBC URL 中的 INIT），因此语句必须可重复执行
+CREATE TABLE IF NOT EXISTS t_user (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  username VARCHAR(50) NOT NULL,
+  password VARCHAR(255) NOT NULL,
+  role VARCHAR(20) NOT NULL DEFAULT 'user',
+  email VARCHAR(100),
+  status INT NOT NULL DEFAULT 1,
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (id),
+  CONSTRAINT uk_username UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS t_user_change (
+  seq BIGINT NOT NULL AUTO_INCREMENT,
+  user_id BIGINT NOT NULL,
+  op VARCHAR(16) NOT NULL,
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (seq)
+);
+
+CREATE TABLE IF NOT EXISTS merchant (
+  id BIGINT NOT NULL AUTO_INCREMENT,
+  name VARCHAR(100) NOT NULL,
+  contact_person VARCHAR(50),
+  phone VARCHAR(20),
+  email VARCHAR(100),
+  address VARCHAR(200),
+  status INT DEFAULT 1,
+  create_time DATETIME DEFAULT CURRENT_TIMESTAMP,
+  update_time DATETIME(3) DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+  PRIMARY KEY (id)
+);
@@ -0,0 +1,173 @@
+package com.zxx.learning.user.config;
+
+import com.zxx.learning.user.exception.GlobalExceptionHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link PasswordHasher} 测试：线程池饱和时抛出 {@link PasswordHasher.BusyException} 并映射为 503，
+ * 以及固定并发下的吞吐 / 拒绝数（只打印，受机器影响不做断言）
+ *
+ * @author zxx
+ */
+@Slf4j
+class PasswordHasherTest {
+
+    private static final String RAW = "p@ssw0rd";
+    private static final String ENCODED = new BCryptPasswordEncoder().encode(RAW);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void destroy() {
+        if (hasher != null) {
+            hasher.destroy();
+        }
+    }
+
+    @Test
+    void matchesWithinCapacity() {
+        hasher = hasher(1, 4, 5000);
+
+        assertTrue(hasher.matches(RAW, ENCODED));
+        assertEquals(0, rejected());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        // 1 个线程 + 1 个排队位置，8 个请求同时到达时至少 6 个被立即拒绝
+        hasher = hasher(1, 1, 10000);
+        int callers = 8;
+        AtomicInteger busy = new AtomicInteger();
+        AtomicInteger matched = new AtomicInteger();
+        runConcurrently(callers, () -> {
+            try {
+                if (hasher.matches(RAW, ENCODED)) {
+                    matched.incrementAndGet();
+                }
+            } catch (PasswordHasher.BusyException e) {
+                busy.incrementAndGet();
+            }
+        });
+
+        assertEquals(callers, busy.get() + matched.get());
+        assertTrue(busy.get() >= callers - 2, "busy=" + busy.get());
+        assertTrue(matched.get() >= 1);
+        assertEquals(busy.get(), rejected());
+    }
+
+    @Test
+    void rejectsWhenWaitTimesOut() {
+        // BCrypt(10) 一次远超 1ms，等待超时同样按繁忙处理
+        hasher = hasher(1, 4, 1);
+
+        assertThrows(PasswordHasher.BusyException.class, () -> hasher.matches(RAW, ENCODED));
+        assertEquals(1, rejected());
+    }
+
+    @Test
+    void busyMapsToServiceUnavailable() {
+        ResponseEntity<Map<String, Object>> response =
+                new GlobalExceptionHandler().handleBusyException(new PasswordHasher.BusyException());
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+        assertEquals(Boolean.FALSE, response.getBody().get("success"));
+        assertEquals(new PasswordHasher.BusyException().getMessage(), response.getBody().get("msg"));
+    }
+
+    /**
+     * 并发为线程数的 4 倍时的吞吐与拒绝数，用于调整 threads / queue-capacity
+     */
+    @Test
+    void throughputUnderSaturation() throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int callers = threads * 4;
+        int rounds = 5;
+        hasher = hasher(threads, threads, 2000);
+        AtomicInteger busy = new AtomicInteger();
+        AtomicInteger matched = new AtomicInteger();
+
+        long start = System.nanoTime();
+        runConcurrently(callers, () -> {
+            for (int i = 0; i < rounds; i++) {
+                try {
+                    if (hasher.matches(RAW, ENCODED)) {
+                        matched.incrementAndGet();
+                    }
+                } catch (PasswordHasher.BusyException e) {
+                    busy.incrementAndGet();
+                }
+            }
+        });
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        log.info("BCrypt 校验吞吐: threads={}, callers={}, matched={}, busy={}, {} 次/秒, 平均 {}ms/次",
+                threads, callers, matched.get(), busy.get(), String.format("%.1f", matched.get() / seconds),
+                String.format("%.1f", meterRegistry.get("user.password.hash").tag("op", "matches").timer()
+                        .mean(TimeUnit.MILLISECONDS)));
+        assertEquals(callers * rounds, matched.get() + busy.get());
+        assertTrue(matched.get() > 0);
+    }
+
+    private PasswordHasher hasher(int threads, int queueCapacity, long waitTimeout) {
+        PasswordHashProperties properties = new PasswordHashProperties();
+        properties.setThreads(threads);
+        properties.setQueueCapacity(queueCapacity);
+        properties.setWaitTimeout(waitTimeout);
+        properties.setImportThreads(1);
+        PasswordHasher passwordHasher = new PasswordHasher(properties, meterRegistry);
+        passwordHasher.init();
+        return passwordHasher;
+    }
+
+    private double rejected() {
+        return meterRegistry.get("user.password.hash.rejected").counter().count();
+    }
+
+    /**
+     * 所有调用方就绪后同时开始，等待全部结束
+     */
+    private static void runConcurrently(int callers, Runnable task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch ready = new CountDownLatch(callers);
+        CountDownLatch go = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>(callers);
+            for (int i = 0; i < callers; i++) {
+                futures.add(pool.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            ready.await();
+            go.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
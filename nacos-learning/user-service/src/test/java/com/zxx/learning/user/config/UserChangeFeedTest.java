@@ -0,0 +1,117 @@
+package com.zxx.learning.user.config;
+
+import com.zxx.learning.common.dto.UserChange;
+import com.zxx.learning.common.dto.UserChangeBatch;
+import com.zxx.learning.common.dto.UserSnapshotPage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link UserChangeFeed} 测试：变更携带用户最新状态、按 seq 分页、清理后落后的消费方收到 reset、快照分页
+ *
+ * <p>使用独立的 H2 内存库（MySQL 兼容模式，表结构与 local 配置相同），不启动 Spring 容器。</p>
+ *
+ * @author zxx
+ */
+class UserChangeFeedTest {
+
+    private static final String URL = "jdbc:h2:mem:user_change_feed;MODE=MySQL;DATABASE_TO_LOWER=TRUE;"
+            + "DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:db/h2/schema.sql'";
+
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(URL, "sa", ""));
+    private final UserChangeFeedProperties properties = new UserChangeFeedProperties();
+    private final UserChangeFeed feed = new UserChangeFeed(jdbcTemplate,
+            new NamedParameterJdbcTemplate(jdbcTemplate), properties);
+
+    @BeforeEach
+    void clean() {
+        jdbcTemplate.execute("TRUNCATE TABLE t_user_change RESTART IDENTITY");
+        jdbcTemplate.execute("TRUNCATE TABLE t_user RESTART IDENTITY");
+    }
+
+    @Test
+    void changesCarryLatestStateAndPageBySeq() {
+        long a = insertUser("a");
+        long b = insertUser("b");
+        feed.record(a, UserChange.CREATE);
+        feed.record(b, UserChange.CREATE);
+        jdbcTemplate.update("UPDATE t_user SET email = ? WHERE id = ?", "a@example.com", a);
+        feed.record(a, UserChange.UPDATE);
+        jdbcTemplate.update("DELETE FROM t_user WHERE id = ?", b);
+        feed.record(b, UserChange.DELETE);
+
+        UserChangeBatch first = feed.changesSince(0, 3);
+        assertEquals(3, first.getChanges().size());
+        assertTrue(first.isHasMore());
+        assertFalse(first.isReset());
+        // 较早的 CREATE 读到的也是最新状态：邮箱已修改，b 已删除
+        assertEquals("a@example.com", first.getChanges().get(0).getEmail());
+        assertTrue(first.getChanges().get(1).isRemoved());
+        assertEquals(first.getChanges().get(2).getSeq(), first.getNextSince());
+
+        UserChangeBatch second = feed.changesSince(first.getNextSince(), 3);
+        assertEquals(1, second.getChanges().size());
+        assertEquals(UserChange.DELETE, second.getChanges().get(0).getOp());
+        assertFalse(second.isHasMore());
+
+        UserChangeBatch empty = feed.changesSince(second.getNextSince(), 3);
+        assertTrue(empty.getChanges().isEmpty());
+        assertEquals(second.getNextSince(), empty.getNextSince());
+    }
+
+    @Test
+    void pruneKeepsHeadAndResetsLaggingConsumers() {
+        for (String username : Arrays.asList("a", "b", "c")) {
+            feed.record(insertUser(username), UserChange.CREATE);
+        }
+        long head = feed.headSeq();
+        // 保留时间为负：全部记录都已过期，只保留最新一条
+        properties.setRetention(-60000);
+        properties.setPruneBatchSize(1);
+
+        feed.prune();
+
+        assertEquals(1, (int) jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user_change", Integer.class));
+        assertEquals(head, feed.headSeq());
+        assertTrue(feed.changesSince(0, 10).isReset());
+        UserChangeBatch caughtUp = feed.changesSince(head - 1, 10);
+        assertFalse(caughtUp.isReset());
+        assertEquals(1, caughtUp.getChanges().size());
+        assertFalse(feed.changesSince(head, 10).isReset());
+    }
+
+    @Test
+    void snapshotPagesByIdAndReportsHeadSeq() {
+        for (String username : Arrays.asList("a", "b", "c")) {
+            insertUser(username);
+        }
+        feed.recordCreated(Arrays.asList("a", "b", "c"));
+        long head = feed.headSeq();
+
+        UserSnapshotPage first = feed.snapshot(null, 2);
+        assertEquals(head, first.getHeadSeq());
+        assertEquals(2, first.getUsers().size());
+        assertEquals(head, first.getUsers().get(0).getSeq());
+        assertEquals(first.getUsers().get(1).getId(), first.getNextCursor());
+
+        UserSnapshotPage second = feed.snapshot(first.getNextCursor(), 2);
+        assertEquals(1, second.getUsers().size());
+        assertEquals("c", second.getUsers().get(0).getUsername());
+        assertNull(second.getNextCursor());
+    }
+
+    private long insertUser(String username) {
+        jdbcTemplate.update("INSERT INTO t_user (username, password) VALUES (?, '-')", username);
+        return jdbcTemplate.queryForObject("SELECT id FROM t_user WHERE username = ?", Long.class, username);
+    }
+}
@@ -0,0 +1,167 @@
+package com.zxx.learning.user.datasource;
+
+import com.baomidou.mybatisplus.autoconfigure.MybatisPlusAutoConfiguration;
+import com.baomidou.mybatisplus.core.toolkit.Wrappers;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zxx.learning.user.config.ReadWriteDataSourceConfig;
+import com.zxx.learning.user.config.ReadWriteDataSourceProperties;
+import com.zxx.learning.user.entity.TUser;
+import com.zxx.learning.user.mapper.TUserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * 读写分离路由测试：使用 local 配置中的两个 H2 内存库（主库、从库之间没有复制），
+ * 从库独有用户 from-replica，按能否查到它判断语句落在了哪个库
+ *
+ * <p>只加载数据源、事务、MyBatis-Plus 与 AOP，不依赖 Nacos、Redis。</p>
+ *
+ * @author zxx
+ */
+@SpringBootTest(classes = ReadWriteRoutingDataSourceTest.TestApplication.class,
+        properties = "spring.datasource.hikari.maximum-pool-size=7")
+@ActiveProfiles("local")
+class ReadWriteRoutingDataSourceTest {
+
+    private static final String REPLICA_ONLY_USER = "from-replica";
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica-0";
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private TUserMapper userMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RoutedCalls routedCalls;
+
+    @BeforeEach
+    void checkReplicas() {
+        // 测试上下文未开启定时任务，手动执行一次健康检查
+        routingDataSource.checkReplicas();
+        assertEquals(1, routingDataSource.healthyReplicas().size());
+    }
+
+    @Test
+    void selectOutsideTransactionUsesReplica() {
+        assertNotNull(findByUsername(REPLICA_ONLY_USER));
+    }
+
+    @Test
+    void insertOutsideTransactionUsesPrimary() {
+        String username = "routing-insert-" + System.nanoTime();
+        TUser user = new TUser();
+        user.setUsername(username);
+        user.setPassword("-");
+        user.setRole("user");
+        user.setStatus(1);
+        userMapper.insert(user);
+
+        assertEquals(1, countOn(PRIMARY, username));
+        assertEquals(0, countOn(REPLICA, username));
+    }
+
+    @Test
+    void readWriteTransactionUsesPrimary() {
+        assertNull(routedCalls.findInTransaction(REPLICA_ONLY_USER));
+    }
+
+    @Test
+    void readOnlyTransactionUsesReplica() {
+        assertNotNull(routedCalls.findInReadOnlyTransaction(REPLICA_ONLY_USER));
+    }
+
+    @Test
+    void primaryRouteOverridesStatementRouting() {
+        assertNull(routedCalls.findOnPrimary(REPLICA_ONLY_USER));
+    }
+
+    @Test
+    void jdbcTemplateUsesPrimary() {
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM t_user WHERE username = ?",
+                Integer.class, REPLICA_ONLY_USER));
+    }
+
+    @Test
+    void primaryPoolBindsHikariProperties() {
+        HikariDataSource primary = (HikariDataSource) routingDataSource.getResolvedDataSources().get(PRIMARY);
+        assertEquals(7, primary.getMaximumPoolSize());
+        assertEquals("user-primary", primary.getPoolName());
+    }
+
+    private TUser findByUsername(String username) {
+        return userMapper.selectOne(Wrappers.<TUser>lambdaQuery().eq(TUser::getUsername, username));
+    }
+
+    /**
+     * 绕过路由，直接在指定的库上统计
+     */
+    private int countOn(String target, String username) {
+        DataSource dataSource = routingDataSource.getResolvedDataSources().get(target);
+        return new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM t_user WHERE username = ?",
+                Integer.class, username);
+    }
+
+    /**
+     * 带事务 / 路由注解的调用，需要经过 Spring 代理
+     */
+    static class RoutedCalls {
+
+        @Autowired
+        private TUserMapper userMapper;
+
+        @Transactional(rollbackFor = Exception.class)
+        public TUser findInTransaction(String username) {
+            return find(username);
+        }
+
+        @Transactional(readOnly = true)
+        public TUser findInReadOnlyTransaction(String username) {
+            return find(username);
+        }
+
+        @DataSourceRoute(RouteKey.PRIMARY)
+        public TUser findOnPrimary(String username) {
+            return find(username);
+        }
+
+        private TUser find(String username) {
+            return userMapper.selectOne(Wrappers.<TUser>lambdaQuery().eq(TUser::getUsername, username));
+        }
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, DataSourceTransactionManagerAutoConfiguration.class,
+            TransactionAutoConfiguration.class, JdbcTemplateAutoConfiguration.class, AopAutoConfiguration.class,
+            MybatisPlusAutoConfiguration.class})
+    @EnableConfigurationProperties(ReadWriteDataSourceProperties.class)
+    @Import({ReadWriteDataSourceConfig.class, RoutedCalls.class})
+    @MapperScan(basePackageClasses = TUserMapper.class)
+    static class TestApplication {
+    }
+}